@@ -0,0 +1,53 @@
+package ch.hslu.swda.entities;
+
+import org.bson.Document;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
+
+/**
+ * Benchmarks for the mapping of deliveries from and to MongoDB documents by number of articles per delivery.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class DeliveryMappingBenchmark {
+
+    @Param({"1", "10", "100"})
+    private int articles;
+
+    private Delivery delivery;
+    private Document deliveryDocument;
+
+    @Setup
+    public void setup() {
+        List<DeliveryArticle> deliveryArticles = LongStream.range(0, articles)
+                .mapToObj(i -> new DeliveryArticle(100000L + i, 1 + (int) (i % 10), DeliveryArticleStatus.RESERVED))
+                .toList();
+        delivery = new Delivery(1L, DeliveryStatus.NEW, deliveryArticles);
+        deliveryDocument = delivery.toDocument();
+    }
+
+    @Benchmark
+    public Delivery deliveryFromDocument() {
+        return new Delivery(deliveryDocument);
+    }
+
+    @Benchmark
+    public Document deliveryToDocument() {
+        return delivery.toDocument();
+    }
+}
@@ -0,0 +1,59 @@
+package ch.hslu.swda.entities;
+
+import org.bson.Document;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for the mapping of articles and reorders from and to MongoDB documents.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class EntityMappingBenchmark {
+
+    private Article article;
+    private Document articleDocument;
+    private Reorder reorder;
+    private Document reorderDocument;
+
+    @Setup
+    public void setup() {
+        article = new Article(100001L, "Test", new BigDecimal("12.95"), 5, 10, 2);
+        articleDocument = article.toDocument();
+        reorder = new Reorder(1L, ReorderStatus.NEW, "2023-11-20", 100001L, 5);
+        reorderDocument = reorder.toDocument();
+    }
+
+    @Benchmark
+    public Article articleFromDocument() {
+        return new Article(articleDocument);
+    }
+
+    @Benchmark
+    public Document articleToDocument() {
+        return article.toDocument();
+    }
+
+    @Benchmark
+    public Reorder reorderFromDocument() {
+        return new Reorder(reorderDocument);
+    }
+
+    @Benchmark
+    public Document reorderToDocument() {
+        return reorder.toDocument();
+    }
+}
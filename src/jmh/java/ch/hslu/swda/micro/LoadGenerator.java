@@ -0,0 +1,301 @@
+package ch.hslu.swda.micro;
+
+import ch.hslu.swda.business.Deliveries;
+import ch.hslu.swda.business.DeliveriesMemory;
+import ch.hslu.swda.business.ProductCatalog;
+import ch.hslu.swda.business.ProductCatalogMemory;
+import ch.hslu.swda.dto.ArticleGetDTO;
+import ch.hslu.swda.dto.ArticleOrderDTO;
+import ch.hslu.swda.dto.OrderDTO;
+import ch.hslu.swda.entities.Article;
+import ch.qos.logback.classic.Level;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import io.micrometer.core.instrument.Metrics;
+import org.slf4j.LoggerFactory;
+
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.IntFunction;
+import java.util.stream.LongStream;
+
+/**
+ * Load generator pushing order and article request messages through the message processors.
+ * <p>
+ * The messages are sent at fixed rates over an in-memory bus to the order, article and delivery processors, which use
+ * the in-memory repositories, neither RabbitMQ nor MongoDB is needed. The latency of a message is measured from its
+ * scheduled send time until it was processed, an overloaded service therefore shows growing latencies instead of a
+ * lower send rate.
+ * <p>
+ * Arguments as {@code key=value}: {@code orders} and {@code articles} (messages per second), {@code duration}
+ * (seconds), {@code items} (articles per message), {@code lanes} (order lanes), {@code consumers} (bus consumer
+ * threads) and {@code log} (log level of the service).
+ */
+public final class LoadGenerator {
+
+    private static final long BRANCH_ID = 1L;
+    private static final long FIRST_ARTICLE = 100000L;
+    private static final int CATALOG_SIZE = 1000;
+    private static final int STOCK = 1_000_000_000;
+    private static final BigDecimal PRICE = new BigDecimal("12.95");
+    private static final long NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private final int duration;
+    private final int items;
+    private final MessageListenerDummy bus = new MessageListenerDummy();
+    private final ExecutorService consumers;
+    private final ExecutorService deliveryExecutor = Executors.newSingleThreadExecutor();
+    private final PartitionedExecutor orderLanes;
+
+    /**
+     * Latencies of the messages of a route.
+     */
+    private static final class Recorder {
+
+        private final String route;
+        private final long[] latencies;
+        private final CountDownLatch done;
+        private final AtomicInteger errors = new AtomicInteger();
+
+        Recorder(final String route, final int messages) {
+            this.route = route;
+            this.latencies = new long[messages];
+            this.done = new CountDownLatch(messages);
+        }
+
+        void record(final int index, final long latency, final Throwable error) {
+            latencies[index] = latency;
+            if (error != null) {
+                errors.incrementAndGet();
+            }
+            done.countDown();
+        }
+
+        void await() throws InterruptedException {
+            done.await();
+        }
+
+        void report(final long elapsed) {
+            long[] sorted = latencies.clone();
+            Arrays.sort(sorted);
+            System.out.printf("%-16s %10d msgs %10.1f msgs/s  p50 %8.3f ms  p99 %8.3f ms  max %8.3f ms  %d errors%n",
+                    route, sorted.length, sorted.length * (double) NANOS_PER_SECOND / elapsed,
+                    millis(percentile(sorted, 0.5)), millis(percentile(sorted, 0.99)),
+                    millis(sorted.length > 0 ? sorted[sorted.length - 1] : 0), errors.get());
+        }
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param options Options of the load.
+     */
+    private LoadGenerator(final Map<String, String> options) {
+        this.duration = option(options, "duration", 30);
+        this.items = option(options, "items", 5);
+        this.consumers = Executors.newFixedThreadPool(option(options, "consumers", 4));
+        this.orderLanes = new PartitionedExecutor("order-lane",
+                option(options, "lanes", Runtime.getRuntime().availableProcessors()));
+
+        ProductCatalog catalog = new ProductCatalogMemory();
+        for (int i = 0; i < CATALOG_SIZE; i++) {
+            catalog.create(BRANCH_ID, new Article(FIRST_ARTICLE + i, "Article " + i, PRICE, 1, STOCK, 0));
+        }
+        Deliveries deliveries = new DeliveriesMemory();
+        DeliveryEvents events = new DeliveryEvents();
+        events.subscribe(new DeliveryProcessor(new MessagePublisherDummy<>(), catalog, deliveries, deliveryExecutor,
+                orderLanes, Metrics.globalRegistry));
+        new OrderMessageProcessor(bus, deliveries, events, orderLanes).run();
+        new ArticleMessageProcessor(bus, new MessagePublisherDummy<>(), catalog).run();
+    }
+
+    /**
+     * Runs the load generator.
+     *
+     * @param args Options as key=value.
+     * @throws InterruptedException Exception if interrupted while waiting for the messages.
+     */
+    public static void main(final String[] args) throws InterruptedException {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            String[] option = arg.split("=", 2);
+            if (option.length == 2) {
+                options.put(option[0], option[1]);
+            }
+        }
+        ((ch.qos.logback.classic.Logger) LoggerFactory.getLogger("ch.hslu.swda"))
+                .setLevel(Level.toLevel(options.getOrDefault("log", "WARN")));
+        LoadGenerator generator = new LoadGenerator(options);
+        generator.run(option(options, "orders", 1000), option(options, "articles", 1000));
+    }
+
+    /**
+     * Sends the messages at the requested rates and reports the results.
+     *
+     * @param orderRate   Order messages per second.
+     * @param articleRate Article request messages per second.
+     * @throws InterruptedException Exception if interrupted while waiting for the messages.
+     */
+    private void run(final int orderRate, final int articleRate) throws InterruptedException {
+        System.out.printf("Sending %d orders/s and %d article requests/s with %d articles for %d s%n",
+                orderRate, articleRate, items, duration);
+        List<Recorder> recorders = new ArrayList<>();
+        List<Thread> senders = new ArrayList<>();
+        long allocatedBefore = allocatedBytes();
+        long start = System.nanoTime();
+        if (orderRate > 0) {
+            senders.add(send(Routes.ORDER, orderRate, start, this::order, recorders));
+        }
+        if (articleRate > 0) {
+            senders.add(send(Routes.ARTICLE_GET, articleRate, start, this::articleGet, recorders));
+        }
+        for (Thread sender : senders) {
+            sender.join();
+        }
+        for (Recorder recorder : recorders) {
+            recorder.await();
+        }
+        long elapsed = System.nanoTime() - start;
+        orderLanes.drain().join();
+        CompletableFuture.runAsync(() -> { }, deliveryExecutor).join();
+        long drained = System.nanoTime() - start;
+        long allocated = allocatedBytes() - allocatedBefore;
+
+        recorders.forEach(r -> r.report(elapsed));
+        System.out.printf("Delivery processing drained after %.1f s%n", drained / (double) NANOS_PER_SECOND);
+        System.out.printf("Allocation rate %.1f MB/s (%d MB)%n",
+                allocated / 1e6 * NANOS_PER_SECOND / drained, allocated / 1_000_000);
+
+        consumers.shutdown();
+        deliveryExecutor.shutdown();
+        orderLanes.close();
+    }
+
+    /**
+     * Starts a thread sending the messages of a route at a fixed rate.
+     *
+     * @param route     Route of the messages.
+     * @param rate      Messages per second.
+     * @param start     Start time in nanoseconds.
+     * @param messages  Creates the message body by index.
+     * @param recorders Recorders of the routes, the recorder of the route is added.
+     * @return Sending thread.
+     */
+    private Thread send(final String route, final int rate, final long start, final IntFunction<byte[]> messages,
+                        final List<Recorder> recorders) {
+        int total = rate * duration;
+        long interval = NANOS_PER_SECOND / rate;
+        Recorder recorder = new Recorder(route, total);
+        recorders.add(recorder);
+        Thread sender = new Thread(() -> {
+            for (int i = 0; i < total; i++) {
+                final int index = i;
+                final long scheduled = start + i * interval;
+                for (long delay = scheduled - System.nanoTime(); delay > 0; delay = scheduled - System.nanoTime()) {
+                    LockSupport.parkNanos(delay);
+                }
+                byte[] body = messages.apply(index);
+                consumers.execute(() -> deliver(route, body)
+                        .whenComplete((r, e) -> recorder.record(index, System.nanoTime() - scheduled, e)));
+            }
+        }, "load-" + route);
+        sender.start();
+        return sender;
+    }
+
+    /**
+     * Delivers a message to the processor of the route.
+     *
+     * @param route Route of the message.
+     * @param body  Message body.
+     * @return Future completed when the message was processed.
+     */
+    private CompletableFuture<Void> deliver(final String route, final byte[] body) {
+        try {
+            return bus.deliver(route, body);
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * Returns the order message with a new order number for each index.
+     *
+     * @param index Index of the message.
+     * @return Message body.
+     */
+    private byte[] order(final int index) {
+        List<ArticleOrderDTO> articles = articleIds(index)
+                .mapToObj(id -> new ArticleOrderDTO(id, "Article", PRICE, 1, null))
+                .toList();
+        return write(new OrderDTO(BRANCH_ID, index + 1L, articles, List.of()));
+    }
+
+    /**
+     * Returns the article request message for the index.
+     *
+     * @param index Index of the message.
+     * @return Message body.
+     */
+    private byte[] articleGet(final int index) {
+        return write(new ArticleGetDTO(BRANCH_ID, index + 1L, articleIds(index).boxed().toList()));
+    }
+
+    /**
+     * Returns the article IDs of the message, spread over the whole catalog.
+     *
+     * @param index Index of the message.
+     * @return Article IDs.
+     */
+    private LongStream articleIds(final int index) {
+        return LongStream.range(0, items).map(i -> FIRST_ARTICLE + (index * (long) items + i) % CATALOG_SIZE);
+    }
+
+    /**
+     * Serializes the message.
+     *
+     * @param message Message.
+     * @return Message body.
+     */
+    private static byte[] write(final Object message) {
+        try {
+            return MessageCodec.write(message);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Returns the bytes allocated by all live threads.
+     *
+     * @return Allocated bytes.
+     */
+    private static long allocatedBytes() {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        return Arrays.stream(threads.getThreadAllocatedBytes(threads.getAllThreadIds())).filter(b -> b > 0).sum();
+    }
+
+    private static int option(final Map<String, String> options, final String key, final int defaultValue) {
+        return options.containsKey(key) ? Integer.parseInt(options.get(key)) : defaultValue;
+    }
+
+    private static long percentile(final long[] sorted, final double percentile) {
+        return sorted.length > 0 ? sorted[Math.max(0, (int) Math.ceil(percentile * sorted.length) - 1)] : 0;
+    }
+
+    private static double millis(final long nanos) {
+        return nanos / 1e6;
+    }
+}
@@ -0,0 +1,73 @@
+package ch.hslu.swda.micro;
+
+import ch.hslu.swda.dto.ArticleGetDTO;
+import ch.hslu.swda.dto.ArticleOrderDTO;
+import ch.hslu.swda.dto.OrderDTO;
+import ch.hslu.swda.entities.DeliveryArticleStatus;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
+
+/**
+ * Benchmarks for the JSON codec of the bus messages by number of articles per message.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class MessageCodecBenchmark {
+
+    @Param({"1", "10", "100"})
+    private int articles;
+
+    private OrderDTO order;
+    private byte[] orderBody;
+    private ArticleGetDTO articleGet;
+    private byte[] articleGetBody;
+
+    @Setup
+    public void setup() throws IOException {
+        List<ArticleOrderDTO> orderArticles = LongStream.range(0, articles)
+                .mapToObj(i -> new ArticleOrderDTO(100000L + i, "Article " + i, new BigDecimal("12.95"),
+                        1 + (int) (i % 10), DeliveryArticleStatus.ADD))
+                .toList();
+        order = new OrderDTO(1L, 1L, orderArticles, List.of());
+        orderBody = MessageCodec.write(order);
+        articleGet = new ArticleGetDTO(1L, 1L, LongStream.range(0, articles).map(i -> 100000L + i).boxed().toList());
+        articleGetBody = MessageCodec.write(articleGet);
+    }
+
+    @Benchmark
+    public OrderDTO readOrder() throws IOException {
+        return MessageCodec.read(orderBody, OrderDTO.class);
+    }
+
+    @Benchmark
+    public byte[] writeOrder() throws IOException {
+        return MessageCodec.write(order);
+    }
+
+    @Benchmark
+    public ArticleGetDTO readArticleGet() throws IOException {
+        return MessageCodec.read(articleGetBody, ArticleGetDTO.class);
+    }
+
+    @Benchmark
+    public byte[] writeArticleGet() throws IOException {
+        return MessageCodec.write(articleGet);
+    }
+}
@@ -16,16 +16,30 @@
 package ch.hslu.swda.bus;
 
 import java.io.IOException;
-import java.nio.charset.StandardCharsets;
-import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
+import ch.hslu.swda.bus.PublisherConfirms.PendingMessage;
 import com.rabbitmq.client.AMQP;
+import com.rabbitmq.client.BuiltinExchangeType;
 import com.rabbitmq.client.Channel;
 import com.rabbitmq.client.Connection;
 import com.rabbitmq.client.ConnectionFactory;
 import com.rabbitmq.client.DeliverCallback;
+import com.rabbitmq.client.Delivery;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -35,32 +49,107 @@ import org.slf4j.LoggerFactory;
 public final class BusConnector implements AutoCloseable {
 
     private static final Logger LOG = LoggerFactory.getLogger(BusConnector.class);
+    private static final AMQP.BasicProperties PROPS = new AMQP.BasicProperties();
+    private static final long CLOSE_TIMEOUT_MS = 5000L;
     private final RabbitMqConfig config;
+    private final PublisherConfirms confirms;
 
     private Connection connection;
 
+    private final List<Channel> channelsListen = new CopyOnWriteArrayList<>();
+    private final List<ExecutorService> workersListen = new CopyOnWriteArrayList<>();
+
     private Channel channelTalk;
-    private Channel channelListen;
+    private final ExecutorService resender = Executors.newSingleThreadExecutor(workerThreads("resend"));
+
+    private Channel channelCount;
+    private final Map<String, AtomicLong> queueCounts = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService counter =
+            Executors.newSingleThreadScheduledExecutor(workerThreads("queue-count"));
 
     public BusConnector(final RabbitMqConfig config) {
         this.config = config;
+        this.confirms = new PublisherConfirms(config.getConfirmWindow(), config.getConfirmRetries());
+        int interval = config.getQueueCountInterval();
+        this.counter.scheduleWithFixedDelay(this::countMessages, interval, interval, TimeUnit.SECONDS);
     }
 
     /**
      * Sends a message to RabbitMQ asynchronously.
+     * <p>
+     * Blocks only if the window of unconfirmed messages is full. Messages rejected by the broker are published
+     * again up to the configured number of retries by a separate thread.
      *
      * @param exchange RabbitMQ exchange.
      * @param route    Message route.
-     * @param message  Message.
+     * @param body     Message body.
+     * @return Future completed when the broker confirmed the message.
+     * @throws IOException Exception if sending message failed.
+     */
+    public CompletableFuture<Void> talkAsync(final String exchange, final String route, final byte[] body)
+            throws IOException {
+        confirms.acquire();
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        publish(new PendingMessage(exchange, route, body, future, 1));
+        return future;
+    }
+
+    /**
+     * Publishes a message and tracks it until the broker confirms it.
+     *
+     * @param message Pending message.
      * @throws IOException Exception if sending message failed.
      */
-    public void talkAsync(final String exchange, final String route, final String message) throws IOException {
-        AMQP.BasicProperties props = new AMQP.BasicProperties();
-        channelTalk.basicPublish(exchange, route, props, message.getBytes(StandardCharsets.UTF_8));
+    private synchronized void publish(final PendingMessage message) throws IOException {
+        long seqNo = channelTalk.getNextPublishSeqNo();
+        confirms.track(seqNo, message);
+        try {
+            channelTalk.basicPublish(message.exchange(), message.route(), PROPS, message.body());
+        } catch (IOException | RuntimeException e) {
+            confirms.fail(seqNo, message, e);
+            throw e;
+        }
+    }
+
+    /**
+     * Hands the messages rejected by the broker to the resend thread.
+     * <p>
+     * The confirm listener runs on the I/O thread of the connection and must not block, a publish waiting for the
+     * monitor of a blocked publisher would otherwise deadlock the connection.
+     *
+     * @param seqNo    Publish sequence number.
+     * @param multiple True if all messages up to the sequence number are rejected.
+     */
+    private void handleNack(final long seqNo, final boolean multiple) {
+        for (PendingMessage message : confirms.nack(seqNo, multiple)) {
+            try {
+                resender.execute(() -> resend(message));
+            } catch (RejectedExecutionException e) {
+                confirms.abandon(message, e);
+            }
+        }
+    }
+
+    /**
+     * Publishes a message rejected by the broker again.
+     *
+     * @param message Pending message.
+     */
+    private void resend(final PendingMessage message) {
+        try {
+            publish(message);
+        } catch (IOException | RuntimeException e) {
+            LOG.error("Failed to resend message with routing '{}': {}", message.route(), e.getMessage());
+        }
     }
 
     /**
      * Listens for incoming messages asynchronously.
+     * <p>
+     * Every route is consumed on its own channel and processed by its own pool of workers. A message is acked
+     * after the processing returned by the receiver completed, the prefetch count limits the number of unacked
+     * messages per route and thereby the backlog of the workers. A message whose processing failed is requeued once
+     * and moved to the dead letter queue of the route on the second failure, see {@link #deadLetterQueue(String)}.
      *
      * @param exchange  RabbitMQ exchange.
      * @param queueName Message queue.
@@ -71,18 +160,126 @@ public final class BusConnector implements AutoCloseable {
     public void listenFor(final String exchange, final String queueName, final String route,
                           final MessageReceiver receiver) throws IOException {
 
-        channelListen.queueDeclare(queueName, true, false, true, new HashMap<>());
-        channelListen.queueBind(queueName, exchange, route);
+        Channel channel = connection.createChannel();
+        channelsListen.add(channel);
+        channel.basicQos(config.getPrefetch(route));
+        String deadLetterExchange = config.getDeadLetterExchange();
+        channel.exchangeDeclare(deadLetterExchange, BuiltinExchangeType.DIRECT, true);
+        channel.queueDeclare(deadLetterQueue(queueName), true, false, false, null);
+        channel.queueBind(deadLetterQueue(queueName), deadLetterExchange, route);
+        channel.queueDeclare(queueName, true, false, true, Map.of("x-dead-letter-exchange", deadLetterExchange));
+        channel.queueBind(queueName, exchange, route);
+        queueCounts.putIfAbsent(queueName, new AtomicLong(-1));
+        queueCounts.putIfAbsent(deadLetterQueue(queueName), new AtomicLong(-1));
 
-        DeliverCallback deliverCallback = (consumerTag, delivery) -> {
-            String message = new String(delivery.getBody(), StandardCharsets.UTF_8);
-            receiver.onMessageReceived(route, delivery.getProperties().getReplyTo(),
-                    delivery.getProperties().getCorrelationId(), message);
-        };
-        channelListen.basicConsume(queueName, true, deliverCallback, consumerTag -> {
+        ExecutorService workers = Executors.newFixedThreadPool(config.getWorkers(route), workerThreads(route));
+        workersListen.add(workers);
+
+        DeliverCallback deliverCallback = (consumerTag, delivery) -> workers.execute(() -> {
+            CompletionStage<Void> processing;
+            try {
+                processing = receiver.onMessageReceived(route, delivery.getProperties().getReplyTo(),
+                        delivery.getProperties().getCorrelationId(), delivery.getBody());
+            } catch (RuntimeException e) {
+                processing = CompletableFuture.failedFuture(e);
+            }
+            processing.whenComplete((result, e) -> {
+                if (e != null) {
+                    LOG.error("Failed to process message with routing '{}': {}", route, e.getMessage(), e);
+                }
+                acknowledge(channel, delivery, e == null);
+            });
+        });
+        channel.basicConsume(queueName, false, deliverCallback, consumerTag -> {
         });
     }
 
+    /**
+     * Returns the name of the queue keeping the messages of a queue that failed twice. Unlike the queue itself, it is
+     * not deleted with the last consumer, so the messages can be inspected and moved back.
+     *
+     * @param queueName Message queue.
+     * @return Dead letter queue.
+     */
+    public static String deadLetterQueue(final String queueName) {
+        return queueName + " (dead)";
+    }
+
+    /**
+     * Acks or rejects a received message, a rejected message is requeued if it was not redelivered already and
+     * dead-lettered otherwise.
+     *
+     * @param channel   Channel the message was received on.
+     * @param delivery  Received message.
+     * @param processed True if the message was processed successfully.
+     */
+    private static void acknowledge(final Channel channel, final Delivery delivery, final boolean processed) {
+        long deliveryTag = delivery.getEnvelope().getDeliveryTag();
+        try {
+            synchronized (channel) {
+                if (processed) {
+                    channel.basicAck(deliveryTag, false);
+                } else if (!delivery.getEnvelope().isRedeliver()) {
+                    channel.basicNack(deliveryTag, false, true);
+                } else {
+                    LOG.warn("Moving message {} with routing '{}' to the dead letter queue after its second failure",
+                            deliveryTag, delivery.getEnvelope().getRoutingKey());
+                    channel.basicNack(deliveryTag, false, false);
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            LOG.error("Failed to acknowledge message {}: {}", deliveryTag, e.getMessage());
+        }
+    }
+
+    /**
+     * Creates the thread factory of the workers of a route.
+     *
+     * @param route Message route.
+     * @return Thread factory.
+     */
+    private static ThreadFactory workerThreads(final String route) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, "bus-" + route + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+
+    /**
+     * Returns the number of messages ready for delivery in a listened queue or its dead letter queue, as last read
+     * from the broker. The counts are read in the configured interval, so reading them never calls the broker.
+     *
+     * @param queueName Message queue.
+     * @return Number of messages, -1 if the queue is not listened to or could not be read.
+     */
+    public long messageCount(final String queueName) {
+        AtomicLong count = queueCounts.get(queueName);
+        return count != null ? count.get() : -1;
+    }
+
+    /**
+     * Reads the number of messages of all listened queues from the broker, on a single channel that is only opened
+     * again after it was closed.
+     */
+    private void countMessages() {
+        if (connection == null || queueCounts.isEmpty()) {
+            return;
+        }
+        queueCounts.forEach((queueName, count) -> {
+            try {
+                if (channelCount == null || !channelCount.isOpen()) {
+                    channelCount = connection.createChannel();
+                }
+                count.set(channelCount.messageCount(queueName));
+            } catch (IOException | RuntimeException e) {
+                LOG.warn("Failed to read message count of queue '{}': {}", queueName, e.getMessage());
+                count.set(-1);
+            }
+        });
+    }
 
     /**
      * Connects to Rabbit MQ retrying in case of a failure.
@@ -122,7 +319,9 @@ public final class BusConnector implements AutoCloseable {
         this.connection = factory.newConnection();
 
         this.channelTalk = connection.createChannel();
-        this.channelListen = connection.createChannel();
+        this.channelTalk.confirmSelect();
+        this.channelTalk.addConfirmListener((seqNo, multiple) -> confirms.ack(seqNo, multiple), this::handleNack);
+        this.channelTalk.addShutdownListener(cause -> confirms.failAll(cause));
         LOG.info("Successfully connected to {}...", config.getHost());
     }
 
@@ -133,9 +332,35 @@ public final class BusConnector implements AutoCloseable {
      */
     @Override
     public void close() {
+        try {
+            channelTalk.waitForConfirms(CLOSE_TIMEOUT_MS);
+        } catch (InterruptedException e) {
+            LOG.warn("Waiting for publisher confirms interrupted: {}", e.getMessage());
+            Thread.currentThread().interrupt();
+        } catch (TimeoutException e) {
+            LOG.warn("{} messages not confirmed before closing", confirms.outstanding());
+        }
+        resender.shutdown();
+        counter.shutdownNow();
+        workersListen.forEach(ExecutorService::shutdown);
+        try {
+            for (ExecutorService workers : workersListen) {
+                if (!workers.awaitTermination(CLOSE_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+                    LOG.warn("Workers still processing messages while closing");
+                }
+            }
+        } catch (InterruptedException e) {
+            LOG.warn("Waiting for workers interrupted: {}", e.getMessage());
+            Thread.currentThread().interrupt();
+        }
         try {
             channelTalk.close();
-            channelListen.close();
+            if (channelCount != null && channelCount.isOpen()) {
+                channelCount.close();
+            }
+            for (Channel channel : channelsListen) {
+                channel.close();
+            }
             connection.close();
         } catch (IOException | TimeoutException e) {
             LOG.error(e.getMessage(), e);
@@ -15,6 +15,8 @@
  */
 package ch.hslu.swda.bus;
 
+import java.util.concurrent.CompletionStage;
+
 /**
  * Listener interface to receive messages from RabbitMQ.
  */
@@ -26,7 +28,8 @@ public interface MessageReceiver {
      * @param route   Message route.
      * @param replyTo Message reply route.
      * @param corrId  Correlation id.
-     * @param message Message.
+     * @param body    Message body.
+     * @return Completion of the message processing, the message is acked when it completed successfully.
      */
-    void onMessageReceived(String route, String replyTo, String corrId, String message);
+    CompletionStage<Void> onMessageReceived(String route, String replyTo, String corrId, byte[] body);
 }
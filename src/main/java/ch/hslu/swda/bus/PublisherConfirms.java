@@ -0,0 +1,200 @@
+package ch.hslu.swda.bus;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Semaphore;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Tracks the outstanding publisher confirms of a channel.
+ * <p>
+ * Every published message holds a permit of the in-flight window until the broker confirms it or it finally fails,
+ * so publishing blocks only when the window is full. Rejected messages are handed back for a retry until the
+ * maximum number of retries is reached.
+ */
+final class PublisherConfirms {
+
+    private static final Logger LOG = LoggerFactory.getLogger(PublisherConfirms.class);
+
+    private final NavigableMap<Long, PendingMessage> outstanding = new ConcurrentSkipListMap<>();
+    private final Semaphore window;
+    private final int maxRetries;
+
+    /**
+     * Message waiting for the confirm of the broker.
+     *
+     * @param exchange RabbitMQ exchange.
+     * @param route    Message route.
+     * @param body     Message body.
+     * @param future   Future completed with the confirm.
+     * @param attempt  Number of the publish attempt, starting with 1.
+     */
+    record PendingMessage(String exchange, String route, byte[] body, CompletableFuture<Void> future, int attempt) {
+
+        /**
+         * Returns the message for the next publish attempt.
+         *
+         * @return Pending message.
+         */
+        PendingMessage retry() {
+            return new PendingMessage(exchange, route, body, future, attempt + 1);
+        }
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param windowSize Maximum number of unconfirmed messages.
+     * @param maxRetries Maximum number of retries of a rejected message.
+     */
+    PublisherConfirms(final int windowSize, final int maxRetries) {
+        if (windowSize < 1) {
+            throw new IllegalArgumentException("windowSize should not be lower than 1");
+        }
+        if (maxRetries < 0) {
+            throw new IllegalArgumentException("maxRetries should not be lower than 0");
+        }
+        this.window = new Semaphore(windowSize);
+        this.maxRetries = maxRetries;
+    }
+
+    /**
+     * Reserves a place in the in-flight window, waits if the window is full.
+     *
+     * @throws IOException Exception if the thread was interrupted while waiting.
+     */
+    void acquire() throws IOException {
+        try {
+            window.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for publisher confirms", e);
+        }
+    }
+
+    /**
+     * Tracks a published message.
+     *
+     * @param seqNo   Publish sequence number of the message.
+     * @param message Pending message.
+     */
+    void track(final long seqNo, final PendingMessage message) {
+        outstanding.put(seqNo, message);
+    }
+
+    /**
+     * Completes a message exceptionally that could not be published and frees its place in the window.
+     *
+     * @param seqNo   Publish sequence number of the message.
+     * @param message Pending message.
+     * @param cause   Reason of the failure.
+     */
+    void fail(final long seqNo, final PendingMessage message, final Throwable cause) {
+        if (outstanding.remove(seqNo, message)) {
+            complete(message, cause);
+        }
+    }
+
+    /**
+     * Handles a broker ack and completes the confirmed messages.
+     *
+     * @param seqNo    Publish sequence number.
+     * @param multiple True if all messages up to the sequence number are confirmed.
+     */
+    void ack(final long seqNo, final boolean multiple) {
+        remove(seqNo, multiple).forEach(message -> complete(message, null));
+    }
+
+    /**
+     * Handles a broker nack and returns the rejected messages that should be published again.
+     *
+     * @param seqNo    Publish sequence number.
+     * @param multiple True if all messages up to the sequence number are rejected.
+     * @return Messages to retry, they keep their place in the window.
+     */
+    List<PendingMessage> nack(final long seqNo, final boolean multiple) {
+        List<PendingMessage> retries = new ArrayList<>();
+        for (PendingMessage message : remove(seqNo, multiple)) {
+            if (message.attempt() <= maxRetries) {
+                LOG.warn("Message with routing '{}' rejected by broker, retry {} of {}",
+                        message.route(), message.attempt(), maxRetries);
+                retries.add(message.retry());
+            } else {
+                complete(message, new IOException("Message rejected by broker after " + maxRetries + " retries"));
+            }
+        }
+        return retries;
+    }
+
+    /**
+     * Completes a retry exceptionally that could not be published again and frees its place in the window.
+     *
+     * @param message Pending message, not tracked.
+     * @param cause   Reason of the failure.
+     */
+    void abandon(final PendingMessage message, final Throwable cause) {
+        complete(message, cause);
+    }
+
+    /**
+     * Completes all outstanding messages exceptionally, e.g. when the channel was closed.
+     *
+     * @param cause Reason of the failure.
+     */
+    void failAll(final Throwable cause) {
+        Map.Entry<Long, PendingMessage> entry;
+        while ((entry = outstanding.pollFirstEntry()) != null) {
+            complete(entry.getValue(), cause);
+        }
+    }
+
+    /**
+     * Returns the number of unconfirmed messages.
+     *
+     * @return Number of unconfirmed messages.
+     */
+    int outstanding() {
+        return outstanding.size();
+    }
+
+    /**
+     * Removes the messages covered by a confirm.
+     *
+     * @param seqNo    Publish sequence number.
+     * @param multiple True if all messages up to the sequence number are covered.
+     * @return Removed messages.
+     */
+    private List<PendingMessage> remove(final long seqNo, final boolean multiple) {
+        List<PendingMessage> removed = new ArrayList<>();
+        Iterable<Long> seqNos = multiple ? outstanding.headMap(seqNo, true).keySet() : List.of(seqNo);
+        for (Long key : seqNos) {
+            PendingMessage message = outstanding.remove(key);
+            if (message != null) {
+                removed.add(message);
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * Completes the future of the message and frees its place in the window.
+     *
+     * @param message Pending message.
+     * @param cause   Reason of the failure, null if the message was confirmed.
+     */
+    private void complete(final PendingMessage message, final Throwable cause) {
+        window.release();
+        if (cause == null) {
+            message.future().complete(null);
+        } else {
+            message.future().completeExceptionally(cause);
+        }
+    }
+}
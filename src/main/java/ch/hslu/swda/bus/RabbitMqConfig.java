@@ -29,10 +29,20 @@ public final class RabbitMqConfig {
 
     private static final Logger LOG = LoggerFactory.getLogger(RabbitMqConfig.class);
     private static final String EXCHANGE = "exchange";
+    private static final String DEAD_LETTER_EXCHANGE = "dead.letter.exchange";
     private static final String PASSWORD = "password";
     private static final String USER = "user";
     private static final String HOST_PROPERTY = "host";
     private static final String HOST_ENV = "RMQ_HOST";
+    private static final String CONFIRM_WINDOW = "confirm.window";
+    private static final String CONFIRM_RETRIES = "confirm.retries";
+    private static final int DEFAULT_CONFIRM_WINDOW = 256;
+    private static final int DEFAULT_CONFIRM_RETRIES = 3;
+    private static final String QUEUE_COUNT_INTERVAL = "queue.count.interval";
+    private static final int DEFAULT_QUEUE_COUNT_INTERVAL = 15;
+    private static final String PREFETCH = "prefetch";
+    private static final String WORKERS = "workers";
+    private static final int DEFAULT_PREFETCH = 50;
     private static final String CONFIG_FILE_NAME = "rabbitmq.properties";
 
     private final Properties properties = new Properties();
@@ -99,4 +109,80 @@ public final class RabbitMqConfig {
     public String getExchange() {
         return this.properties.getProperty(EXCHANGE);
     }
+
+    /**
+     * Returns the exchange receiving the messages that failed twice.
+     *
+     * @return Dead letter exchange configuration attribute, or the exchange with the suffix {@code .dead}.
+     */
+    public String getDeadLetterExchange() {
+        return this.properties.getProperty(DEAD_LETTER_EXCHANGE, getExchange() + ".dead");
+    }
+
+    /**
+     * Returns the maximum number of unconfirmed messages of a publisher.
+     *
+     * @return Confirm window configuration attribute.
+     */
+    int getConfirmWindow() {
+        return getInt(CONFIRM_WINDOW, DEFAULT_CONFIRM_WINDOW);
+    }
+
+    /**
+     * Returns the maximum number of retries of a message rejected by the broker.
+     *
+     * @return Confirm retries configuration attribute.
+     */
+    int getConfirmRetries() {
+        return getInt(CONFIRM_RETRIES, DEFAULT_CONFIRM_RETRIES);
+    }
+
+    /**
+     * Returns the interval in seconds in which the number of messages in the queues is read from the broker.
+     *
+     * @return Queue count interval configuration attribute.
+     */
+    int getQueueCountInterval() {
+        return getInt(QUEUE_COUNT_INTERVAL, DEFAULT_QUEUE_COUNT_INTERVAL);
+    }
+
+    /**
+     * Returns the maximum number of unacked messages of a route.
+     *
+     * @param route Message route.
+     * @return Prefetch configuration attribute of the route, or the common attribute if not specified.
+     */
+    int getPrefetch(final String route) {
+        return getInt(PREFETCH + "." + route, getInt(PREFETCH, DEFAULT_PREFETCH));
+    }
+
+    /**
+     * Returns the number of workers processing the messages of a route.
+     *
+     * @param route Message route.
+     * @return Workers configuration attribute of the route, or the common attribute if not specified.
+     */
+    int getWorkers(final String route) {
+        return getInt(WORKERS + "." + route, getInt(WORKERS, Runtime.getRuntime().availableProcessors()));
+    }
+
+    /**
+     * Returns a numeric attribute of the configuration.
+     *
+     * @param key          Attribute name.
+     * @param defaultValue Value if the attribute is missing or invalid.
+     * @return Numeric configuration attribute.
+     */
+    private int getInt(final String key, final int defaultValue) {
+        String value = this.properties.getProperty(key);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            LOG.warn("Invalid value {} of {}, using {}", value, key, defaultValue);
+            return defaultValue;
+        }
+    }
 }
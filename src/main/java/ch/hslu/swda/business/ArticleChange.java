@@ -0,0 +1,24 @@
+package ch.hslu.swda.business;
+
+/**
+ * Change of the stocked and reserved items of an article in the catalog of a branch.
+ *
+ * @param branchId  ID of the branch.
+ * @param articleId ID of the article.
+ * @param stock     Amount to change the stocked items by.
+ * @param reserved  Amount to change the reserved items by.
+ */
+public record ArticleChange(long branchId, long articleId, int stock, int reserved) {
+
+    /**
+     * Returns a change of the reserved items only.
+     *
+     * @param branchId  ID of the branch.
+     * @param articleId ID of the article.
+     * @param amount    Amount to change the reserved items by.
+     * @return Article change.
+     */
+    public static ArticleChange reserved(final long branchId, final long articleId, final int amount) {
+        return new ArticleChange(branchId, articleId, 0, amount);
+    }
+}
@@ -0,0 +1,38 @@
+package ch.hslu.swda.business;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.mongodb.lang.Nullable;
+import org.bson.Document;
+
+import java.math.BigDecimal;
+
+/**
+ * Requested fields of an article in a page of the catalog, the fields that were not requested are null.
+ *
+ * @param articleId ID of the article.
+ * @param name      Name of the article.
+ * @param price     Price per article.
+ * @param minStock  Minimum number of articles in stock.
+ * @param stock     Number of articles in stock.
+ * @param reserved  Number of reserved articles.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record ArticleProjection(long articleId, @Nullable String name, @Nullable BigDecimal price,
+                                @Nullable Integer minStock, @Nullable Integer stock, @Nullable Integer reserved) {
+
+    /**
+     * Creates the projection from a MongoDB document with the requested fields.
+     *
+     * @param document MongoDB document.
+     */
+    public ArticleProjection(final Document document) {
+        this(
+                document.getLong("articleId"),
+                document.getString("name"),
+                document.containsKey("price") ? new BigDecimal(document.getString("price")) : null,
+                document.getInteger("minStock"),
+                document.getInteger("stock"),
+                document.getInteger("reserved")
+        );
+    }
+}
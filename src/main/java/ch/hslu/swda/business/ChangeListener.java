@@ -0,0 +1,23 @@
+package ch.hslu.swda.business;
+
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import org.bson.Document;
+
+/**
+ * Listener for the changes of a MongoDB collection.
+ */
+public interface ChangeListener {
+
+    /**
+     * Handles a change of the collection.
+     *
+     * @param change Change event, with the current document for inserts, updates and replacements.
+     */
+    void onChange(ChangeStreamDocument<Document> change);
+
+    /**
+     * Handles the start of a change stream that could not be resumed, changes may have been missed before.
+     */
+    default void onReset() {
+    }
+}
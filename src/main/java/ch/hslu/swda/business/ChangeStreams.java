@@ -0,0 +1,258 @@
+package ch.hslu.swda.business;
+
+import com.mongodb.MongoCommandException;
+import com.mongodb.MongoException;
+import com.mongodb.client.ChangeStreamIterable;
+import com.mongodb.client.MongoChangeStreamCursor;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.ReplaceOptions;
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import com.mongodb.client.model.changestream.FullDocument;
+import jakarta.annotation.PreDestroy;
+import jakarta.inject.Inject;
+import jakarta.inject.Singleton;
+import org.bson.BsonDocument;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Watches MongoDB collections for changes and passes them to the subscribed listeners.
+ * <p>
+ * Every watched collection has its own daemon thread. The resume token is stored per instance whenever the stream is
+ * idle and at least every {@value #TOKEN_INTERVAL} changes, so a restarted instance continues after the last stored
+ * change. Change streams require a replica set, on a standalone server the watching stops and the listeners only see
+ * the changes of their own instance.
+ */
+@Singleton
+public final class ChangeStreams implements AutoCloseable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ChangeStreams.class);
+    public static final String COLLECTION = "changeStreamTokens";
+
+    private static final String ID = "_id";
+    private static final String TOKEN = "token";
+    private static final String INSTANCE_ENV = "INSTANCE_ID";
+    private static final String HOSTNAME_ENV = "HOSTNAME";
+    private static final int CHANGE_STREAM_NOT_SUPPORTED = 40573;
+    private static final int CHANGE_STREAM_HISTORY_LOST = 286;
+    private static final long MAX_AWAIT_TIME_MS = 1000L;
+    private static final long RETRY_DELAY_MS = 5000L;
+    private static final int TOKEN_INTERVAL = 100;
+
+    private final Function<String, MongoCollection<Document>> collections;
+    private final MongoCollection<Document> tokens;
+    private final String instance;
+    private final Map<String, Watcher> watchers = new ConcurrentHashMap<>();
+
+    private volatile boolean running = true;
+
+    /**
+     * Constructor using the shared MongoDB client.
+     *
+     * @param connector MongoDB connector.
+     */
+    @Inject
+    public ChangeStreams(final MongoDBConnector connector) {
+        this(connector::collection, instanceFromMap(System.getenv()));
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param collections Returns the collection with the specified name.
+     * @param instance    Name of the instance, used to store the resume tokens.
+     */
+    public ChangeStreams(final Function<String, MongoCollection<Document>> collections, final String instance) {
+        this.collections = collections;
+        this.tokens = collections.apply(COLLECTION);
+        this.instance = instance;
+    }
+
+    /**
+     * Subscribes to the changes of a collection, starts watching the collection with the first subscription.
+     *
+     * @param collection Name of the collection.
+     * @param listener   Change listener.
+     */
+    public synchronized void subscribe(final String collection, final ChangeListener listener) {
+        Watcher watcher = watchers.get(collection);
+        if (watcher == null) {
+            watcher = new Watcher(collection);
+            watcher.listeners.add(listener);
+            watchers.put(collection, watcher);
+            watcher.thread.start();
+        } else {
+            watcher.listeners.add(listener);
+        }
+    }
+
+    /**
+     * Stops watching all collections.
+     */
+    @PreDestroy
+    @Override
+    public void close() {
+        running = false;
+        for (Watcher watcher : watchers.values()) {
+            try {
+                watcher.thread.join(MAX_AWAIT_TIME_MS * 2);
+            } catch (InterruptedException e) {
+                LOG.warn("DB: waiting for change stream of {} interrupted", watcher.name);
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Returns the name of the instance from the environment variables.
+     *
+     * @param env Environment variables.
+     * @return Name of the instance.
+     */
+    static String instanceFromMap(final Map<String, String> env) {
+        return Objects.requireNonNullElse(env.get(INSTANCE_ENV), env.getOrDefault(HOSTNAME_ENV, "warehouse"));
+    }
+
+    /**
+     * Watches the changes of a single collection.
+     */
+    private final class Watcher implements Runnable {
+
+        private final String name;
+        private final String tokenId;
+        private final List<ChangeListener> listeners = new CopyOnWriteArrayList<>();
+        private final Thread thread;
+
+        private BsonDocument savedToken;
+
+        /**
+         * Constructor.
+         *
+         * @param name Name of the collection.
+         */
+        Watcher(final String name) {
+            this.name = name;
+            this.tokenId = instance + "/" + name;
+            this.thread = new Thread(this, "change-stream-" + name);
+            this.thread.setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            while (running) {
+                try {
+                    watch();
+                } catch (MongoCommandException e) {
+                    if (e.getErrorCode() == CHANGE_STREAM_NOT_SUPPORTED) {
+                        LOG.warn("DB: change streams not supported, stop watching {}: {}", name, e.getErrorMessage());
+                        return;
+                    }
+                    if (e.getErrorCode() == CHANGE_STREAM_HISTORY_LOST) {
+                        LOG.warn("DB: resume token of {} no longer valid, restart watching", name);
+                        tokens.deleteOne(Filters.eq(ID, tokenId));
+                        savedToken = null;
+                        continue;
+                    }
+                    retry(e);
+                } catch (MongoException e) {
+                    retry(e);
+                }
+            }
+        }
+
+        /**
+         * Opens the change stream and passes the changes to the listeners until stopped.
+         */
+        private void watch() {
+            ChangeStreamIterable<Document> stream = collections.apply(name).watch()
+                    .fullDocument(FullDocument.UPDATE_LOOKUP)
+                    .maxAwaitTime(MAX_AWAIT_TIME_MS, TimeUnit.MILLISECONDS);
+            BsonDocument token = savedToken != null ? savedToken : loadToken();
+            if (token != null) {
+                stream = stream.resumeAfter(token);
+            }
+            try (MongoChangeStreamCursor<ChangeStreamDocument<Document>> cursor = stream.cursor()) {
+                LOG.info("DB: watching changes of {}{}", name, token != null ? " from saved token" : "");
+                if (token == null) {
+                    listeners.forEach(ChangeListener::onReset);
+                }
+                int unsaved = 0;
+                while (running) {
+                    ChangeStreamDocument<Document> change = cursor.tryNext();
+                    if (change != null) {
+                        dispatch(change);
+                        unsaved++;
+                    }
+                    if (change == null || unsaved >= TOKEN_INTERVAL) {
+                        saveToken(cursor.getResumeToken());
+                        unsaved = 0;
+                    }
+                }
+            }
+        }
+
+        /**
+         * Passes a change to the listeners.
+         *
+         * @param change Change event.
+         */
+        private void dispatch(final ChangeStreamDocument<Document> change) {
+            for (ChangeListener listener : listeners) {
+                try {
+                    listener.onChange(change);
+                } catch (RuntimeException e) {
+                    LOG.error("DB: failed to handle change of {}: {}", name, e.getMessage(), e);
+                }
+            }
+        }
+
+        /**
+         * Loads the stored resume token of the instance.
+         *
+         * @return Resume token or null if none is stored.
+         */
+        private BsonDocument loadToken() {
+            Document stored = tokens.find(Filters.eq(ID, tokenId)).first();
+            return stored != null ? stored.get(TOKEN, Document.class).toBsonDocument() : null;
+        }
+
+        /**
+         * Stores the resume token of the instance if it changed since it was last stored.
+         *
+         * @param token Resume token.
+         */
+        private void saveToken(final BsonDocument token) {
+            if (token != null && !token.equals(savedToken)) {
+                tokens.replaceOne(Filters.eq(ID, tokenId), new Document(ID, tokenId).append(TOKEN, token),
+                        new ReplaceOptions().upsert(true));
+                savedToken = token;
+            }
+        }
+
+        /**
+         * Waits before the change stream is opened again.
+         *
+         * @param e Reason of the failure.
+         */
+        private void retry(final MongoException e) {
+            LOG.error("DB: watching changes of {} failed, retrying: {}", name, e.getMessage());
+            try {
+                TimeUnit.MILLISECONDS.sleep(RETRY_DELAY_MS);
+            } catch (InterruptedException ie) {
+                LOG.warn("DB: change stream retry of {} interrupted", name);
+                Thread.currentThread().interrupt();
+                running = false;
+            }
+        }
+    }
+}
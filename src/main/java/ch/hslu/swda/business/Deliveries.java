@@ -6,6 +6,7 @@ import ch.hslu.swda.entities.WarehouseEntity;
 import com.mongodb.lang.Nullable;
 
 import java.util.List;
+import java.util.stream.Stream;
 
 /**
  * Management of the order deliveries.
@@ -21,6 +22,16 @@ public interface Deliveries {
      */
     Delivery getById(long branchId, long orderNumber);
 
+    /**
+     * Returns the version of the delivery, which changes with every change of the delivery.
+     *
+     * @param branchId    ID of the branch.
+     * @param orderNumber Order number.
+     * @return Version of the delivery, null if the delivery does not exist.
+     */
+    @Nullable
+    Long getVersion(long branchId, long orderNumber);
+
     /**
      * Returns all deliveries of a branch.
      *
@@ -38,6 +49,36 @@ public interface Deliveries {
      */
     List<WarehouseEntity<Delivery>> getAllByStatus(DeliveryStatus status);
 
+    /**
+     * Streams all deliveries of a branch, the stream has to be closed after use.
+     *
+     * @param branchId ID of the branch.
+     * @param status   Optional status filter.
+     * @return Stream of all deliveries from a branch.
+     */
+    Stream<Delivery> streamByBranch(long branchId, @Nullable DeliveryStatus status);
+
+    /**
+     * Returns a page of the deliveries of a branch, ordered by order number.
+     *
+     * @param branchId ID of the branch.
+     * @param status   Optional status filter.
+     * @param after    Order number of the last delivery on the previous page, null for the first page.
+     * @param limit    Number of deliveries per page, 0 for all deliveries.
+     * @param fields   Fields of the deliveries, all fields if empty.
+     * @return Deliveries on the page with the requested fields.
+     */
+    List<DeliveryProjection> getPage(long branchId, @Nullable DeliveryStatus status, @Nullable Long after, int limit,
+                                     List<String> fields);
+
+    /**
+     * Streams all deliveries, the stream has to be closed after use.
+     *
+     * @param status Status of the deliveries.
+     * @return Stream of all deliveries.
+     */
+    Stream<WarehouseEntity<Delivery>> streamByStatus(DeliveryStatus status);
+
     /**
      * Adds a delivery for the branch.
      *
@@ -67,6 +108,27 @@ public interface Deliveries {
      */
     Delivery updateStatus(long branchId, long orderNumber, DeliveryStatus status);
 
+    /**
+     * Updates multiple deliveries with a single write, a delivery no longer in the expected status is left unchanged.
+     *
+     * @param deliveries Deliveries with their branch.
+     * @param expected   Status of the deliveries when they were read.
+     * @param ordered    True if the deliveries are updated in order and stop at the first failure.
+     * @return Number of updated deliveries.
+     */
+    int updateAll(List<WarehouseEntity<Delivery>> deliveries, DeliveryStatus expected, boolean ordered);
+
+    /**
+     * Updates the status of multiple deliveries with a single write, the articles are left unchanged. A delivery no
+     * longer in the expected status is left unchanged.
+     *
+     * @param deliveries Deliveries with their branch and new status.
+     * @param expected   Status of the deliveries when they were read.
+     * @param ordered    True if the deliveries are updated in order and stop at the first failure.
+     * @return Number of updated deliveries.
+     */
+    int updateStatusAll(List<WarehouseEntity<Delivery>> deliveries, DeliveryStatus expected, boolean ordered);
+
     /**
      * Deletes a delivery from the branch.
      *
@@ -75,4 +137,14 @@ public interface Deliveries {
      * @return True if successful, false if not.
      */
     boolean delete(long branchId, long orderNumber);
+
+    /**
+     * Deletes multiple deliveries with a single write, a delivery no longer in the expected status is kept.
+     *
+     * @param deliveries Deliveries with their branch.
+     * @param expected   Status of the deliveries when they were read.
+     * @param ordered    True if the deliveries are deleted in order and stop at the first failure.
+     * @return Number of deleted deliveries.
+     */
+    int deleteAll(List<WarehouseEntity<Delivery>> deliveries, DeliveryStatus expected, boolean ordered);
 }
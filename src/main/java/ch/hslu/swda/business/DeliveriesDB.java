@@ -3,20 +3,27 @@ package ch.hslu.swda.business;
 import ch.hslu.swda.entities.Delivery;
 import ch.hslu.swda.entities.DeliveryStatus;
 import ch.hslu.swda.entities.WarehouseEntity;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.DeleteOneModel;
 import com.mongodb.client.model.Filters;
-import com.mongodb.client.model.FindOneAndReplaceOptions;
 import com.mongodb.client.model.FindOneAndUpdateOptions;
+import com.mongodb.client.model.IndexModel;
+import com.mongodb.client.model.IndexOptions;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.Indexes;
 import com.mongodb.client.model.ReturnDocument;
+import com.mongodb.client.model.UpdateOneModel;
 import com.mongodb.client.model.Updates;
 import com.mongodb.lang.Nullable;
+import jakarta.inject.Inject;
 import jakarta.inject.Singleton;
 import org.bson.Document;
 import org.bson.conversions.Bson;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.ArrayList;
 import java.util.List;
+import java.util.stream.Stream;
 
 /**
  * Implementation of the deliveries using MongoDB.
@@ -30,61 +37,128 @@ public final class DeliveriesDB implements Deliveries {
     private static final String BRANCH_ID = "branchId";
     private static final String ORDER_NUMBER = "orderNumber";
     private static final String STATUS = "status";
+    private static final String ARTICLES = "articles";
+    private static final String VERSION = "version";
 
-    private final MongoDBConnector db;
+    static final List<IndexModel> INDEXES = List.of(
+            new IndexModel(Indexes.ascending(BRANCH_ID, ORDER_NUMBER),
+                    new IndexOptions().name("branchId_orderNumber").unique(true)),
+            new IndexModel(Indexes.ascending(STATUS), new IndexOptions().name("status"))
+    );
+    static final MongoDBPage PAGE = new MongoDBPage(ORDER_NUMBER, List.of(ORDER_NUMBER, STATUS, ARTICLES));
+
+    private final MongoCollection<Document> collection;
+    private final MongoDBBulkWrite bulkWrite;
+    private final int batchSize;
 
     /**
-     * Constructor with configuration from the environment variables.
+     * Constructor using the shared MongoDB client.
+     *
+     * @param connector MongoDB connector.
      */
-    public DeliveriesDB() {
-        this(new MongoDBConnector(COLLECTION));
+    @Inject
+    public DeliveriesDB(final MongoDBConnector connector) {
+        this(connector.collection(COLLECTION), connector.batchSize());
     }
 
     /**
-     * Constructor with custom configuration.
+     * Constructor with a custom collection, creates the missing indexes.
      *
-     * @param connector MongoDB connector.
+     * @param collection MongoDB collection.
      */
-    public DeliveriesDB(final MongoDBConnector connector) {
-        db = connector;
+    public DeliveriesDB(final MongoCollection<Document> collection) {
+        this(collection, MongoDBConfig.DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * Constructor with a custom collection and batch size, creates the missing indexes.
+     *
+     * @param collection MongoDB collection.
+     * @param batchSize  Number of documents fetched per batch when streaming.
+     */
+    public DeliveriesDB(final MongoCollection<Document> collection, final int batchSize) {
+        this.collection = collection;
+        this.bulkWrite = new MongoDBBulkWrite(collection);
+        this.batchSize = batchSize;
+        new MongoDBIndexes(collection, INDEXES).ensure();
     }
 
     @Override
     public Delivery getById(final long branchId, final long orderNumber) {
-        LOG.info("DB: read delivery from branch {} with id {}", branchId, orderNumber);
+        LOG.debug("DB: read delivery from branch {} with id {}", branchId, orderNumber);
         Bson filter = Filters.and(Filters.eq(BRANCH_ID, branchId), Filters.eq(ORDER_NUMBER, orderNumber));
-        Document exists = this.db.collection().find(filter).first();
+        Document exists = this.collection.find(filter).first();
         return exists != null ? new Delivery(exists) : null;
     }
 
+    @Override
+    public Long getVersion(final long branchId, final long orderNumber) {
+        Bson filter = Filters.and(Filters.eq(BRANCH_ID, branchId), Filters.eq(ORDER_NUMBER, orderNumber));
+        Document exists = this.collection.find(filter).projection(Projections.include(VERSION)).first();
+        if (exists == null) {
+            return null;
+        }
+        Object version = exists.get(VERSION);
+        return version instanceof Number number ? number.longValue() : 0L;
+    }
+
     @Override
     public List<Delivery> getAllByBranch(final long branchId, @Nullable final DeliveryStatus status) {
+        try (Stream<Delivery> stream = streamByBranch(branchId, status)) {
+            List<Delivery> deliveries = stream.toList();
+            LOG.debug("DB: read all {} deliveries from branch {}{}", deliveries.size(), branchId,
+                    status != null ? " with status " + status : "");
+            return deliveries;
+        }
+    }
+
+    @Override
+    public List<WarehouseEntity<Delivery>> getAllByStatus(final DeliveryStatus status) {
+        try (Stream<WarehouseEntity<Delivery>> stream = streamByStatus(status)) {
+            List<WarehouseEntity<Delivery>> deliveries = stream.toList();
+            LOG.debug("DB: read all {} deliveries with status {}", deliveries.size(), status);
+            return deliveries;
+        }
+    }
+
+    @Override
+    public Stream<Delivery> streamByBranch(final long branchId, @Nullable final DeliveryStatus status) {
         Bson filter = Filters.eq(BRANCH_ID, branchId);
         if (status != null) {
             filter = Filters.and(filter, Filters.eq(STATUS, status.name()));
         }
-        List<Document> documents = this.db.collection().find(filter).into(new ArrayList<>());
-        LOG.info("DB: read all {} deliveries from branch {}{}", documents.size(), branchId,
-                status != null ? " with status " + status : "");
-        return documents.stream().map(Delivery::new).toList();
+        return MongoDBStreams.stream(this.collection.find(filter), batchSize, Delivery::new);
     }
 
     @Override
-    public List<WarehouseEntity<Delivery>> getAllByStatus(final DeliveryStatus status) {
+    public List<DeliveryProjection> getPage(final long branchId, @Nullable final DeliveryStatus status,
+                                            @Nullable final Long after, final int limit, final List<String> fields) {
+        Bson filter = Filters.eq(BRANCH_ID, branchId);
+        if (status != null) {
+            filter = Filters.and(filter, Filters.eq(STATUS, status.name()));
+        }
+        List<DeliveryProjection> deliveries = PAGE.find(this.collection, filter, after, limit, fields,
+                DeliveryProjection::new);
+        LOG.debug("DB: read {} deliveries from branch {}{} after {}", deliveries.size(), branchId,
+                status != null ? " with status " + status : "", after);
+        return deliveries;
+    }
+
+    @Override
+    public Stream<WarehouseEntity<Delivery>> streamByStatus(final DeliveryStatus status) {
         Bson filter = Filters.eq(STATUS, status);
-        List<Document> documents = this.db.collection().find(filter).into(new ArrayList<>());
-        LOG.info("DB: read all {} deliveries with status {}", documents.size(), status);
-        return documents.stream().map(d -> new WarehouseEntity<>(d.getLong(BRANCH_ID), new Delivery(d))).toList();
+        return MongoDBStreams.stream(this.collection.find(filter), batchSize,
+                d -> new WarehouseEntity<>(d.getLong(BRANCH_ID), new Delivery(d)));
     }
 
     @Override
     public Delivery create(final long branchId, final Delivery delivery) {
         Bson filter = Filters.and(Filters.eq(BRANCH_ID, branchId), Filters.eq(ORDER_NUMBER, delivery.orderNumber()));
-        Document exists = this.db.collection().find(filter).first();
+        Document exists = this.collection.find(filter).first();
         if (exists == null) {
             WarehouseEntity<Delivery> warehouseEntity = new WarehouseEntity<>(branchId, delivery);
-            this.db.collection().insertOne(warehouseEntity.toDocument());
-            LOG.info("DB: created delivery for branch {} with id {}", branchId, delivery.orderNumber());
+            this.collection.insertOne(warehouseEntity.toDocument().append(VERSION, 1L));
+            LOG.debug("DB: created delivery for branch {} with id {}", branchId, delivery.orderNumber());
         } else {
             LOG.warn("DB: delivery {} already exists for branch {}", delivery.orderNumber(), branchId);
         }
@@ -99,10 +173,9 @@ public final class DeliveriesDB implements Deliveries {
         }
 
         Bson filter = Filters.and(Filters.eq(BRANCH_ID, branchId), Filters.eq(ORDER_NUMBER, orderNumber));
-        WarehouseEntity<Delivery> warehouseEntity = new WarehouseEntity<>(branchId, current);
-        FindOneAndReplaceOptions options = new FindOneAndReplaceOptions().returnDocument(ReturnDocument.AFTER);
-        Document updated = this.db.collection().findOneAndReplace(filter, warehouseEntity.toDocument(), options);
-        LOG.info("DB: {}updated delivery for branch {} with id {}",
+        FindOneAndUpdateOptions options = new FindOneAndUpdateOptions().returnDocument(ReturnDocument.AFTER);
+        Document updated = this.collection.findOneAndUpdate(filter, replace(current), options);
+        LOG.debug("DB: {}updated delivery for branch {} with id {}",
                 updated != null ? "" : "not ", branchId, orderNumber);
         return updated != null ? new Delivery(updated) : null;
     }
@@ -111,18 +184,78 @@ public final class DeliveriesDB implements Deliveries {
     public Delivery updateStatus(final long branchId, final long orderNumber, final DeliveryStatus status) {
         Bson filter = Filters.and(Filters.eq(BRANCH_ID, branchId), Filters.eq(ORDER_NUMBER, orderNumber));
         FindOneAndUpdateOptions options = new FindOneAndUpdateOptions().returnDocument(ReturnDocument.AFTER);
-        Document updated = this.db.collection().findOneAndUpdate(filter, Updates.set(STATUS, status), options);
-        LOG.info("DB: {}updated delivery status for branch {} with id {} to {}",
+        Bson updates = Updates.combine(Updates.set(STATUS, status), Updates.inc(VERSION, 1L));
+        Document updated = this.collection.findOneAndUpdate(filter, updates, options);
+        LOG.debug("DB: {}updated delivery status for branch {} with id {} to {}",
                 updated != null ? "" : "not ", branchId, orderNumber, status);
         return updated != null ? new Delivery(updated) : null;
     }
 
+    @Override
+    public int updateAll(final List<WarehouseEntity<Delivery>> deliveries, final DeliveryStatus expected,
+                         final boolean ordered) {
+        int updated = bulkWrite.execute(deliveries.stream()
+                .map(e -> new UpdateOneModel<Document>(filter(e, expected), replace((Delivery) e.entity())))
+                .toList(), ordered);
+        LOG.debug("DB: updated {} of {} deliveries", updated, deliveries.size());
+        return updated;
+    }
+
+    @Override
+    public int updateStatusAll(final List<WarehouseEntity<Delivery>> deliveries, final DeliveryStatus expected,
+                               final boolean ordered) {
+        int updated = bulkWrite.execute(deliveries.stream()
+                .map(e -> new UpdateOneModel<Document>(filter(e, expected), Updates.combine(
+                        Updates.set(STATUS, ((Delivery) e.entity()).status()), Updates.inc(VERSION, 1L))))
+                .toList(), ordered);
+        LOG.debug("DB: updated status of {} of {} deliveries", updated, deliveries.size());
+        return updated;
+    }
+
     @Override
     public boolean delete(final long branchId, final long orderNumber) {
         Bson filter = Filters.and(Filters.eq(BRANCH_ID, branchId), Filters.eq(ORDER_NUMBER, orderNumber));
-        Document removed = this.db.collection().findOneAndDelete(filter);
-        LOG.info("DB: {}removed delivery from branch {} with id {}",
+        Document removed = this.collection.findOneAndDelete(filter);
+        LOG.debug("DB: {}removed delivery from branch {} with id {}",
                 removed != null ? "" : "not ", branchId, orderNumber);
         return removed != null;
     }
+
+    @Override
+    public int deleteAll(final List<WarehouseEntity<Delivery>> deliveries, final DeliveryStatus expected,
+                         final boolean ordered) {
+        int removed = bulkWrite.execute(deliveries.stream()
+                .map(e -> new DeleteOneModel<Document>(filter(e, expected)))
+                .toList(), ordered);
+        LOG.debug("DB: removed {} of {} deliveries", removed, deliveries.size());
+        return removed;
+    }
+
+    /**
+     * Returns the filter matching the delivery of the branch while it is in the expected status.
+     *
+     * @param entity   Delivery with its branch.
+     * @param expected Expected status of the delivery.
+     * @return Filter.
+     */
+    private static Bson filter(final WarehouseEntity<Delivery> entity, final DeliveryStatus expected) {
+        long orderNumber = ((Delivery) entity.entity()).orderNumber();
+        return Filters.and(Filters.eq(BRANCH_ID, entity.branchId()), Filters.eq(ORDER_NUMBER, orderNumber),
+                Filters.eq(STATUS, expected.name()));
+    }
+
+    /**
+     * Returns the update replacing the status and articles of the delivery and incrementing its version.
+     *
+     * @param delivery Updated delivery.
+     * @return Update.
+     */
+    private static Bson replace(final Delivery delivery) {
+        Document document = delivery.toDocument();
+        return Updates.combine(
+                Updates.set(STATUS, document.get(STATUS)),
+                Updates.set(ARTICLES, document.get(ARTICLES)),
+                Updates.inc(VERSION, 1L)
+        );
+    }
 }
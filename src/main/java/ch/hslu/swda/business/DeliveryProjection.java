@@ -0,0 +1,36 @@
+package ch.hslu.swda.business;
+
+import ch.hslu.swda.entities.DeliveryArticle;
+import ch.hslu.swda.entities.DeliveryStatus;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.mongodb.lang.Nullable;
+import org.bson.Document;
+
+import java.util.List;
+
+/**
+ * Requested fields of a delivery in a page of the deliveries, the fields that were not requested are null.
+ *
+ * @param orderNumber Order number.
+ * @param status      Status of the delivery.
+ * @param articles    Articles of the delivery.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record DeliveryProjection(long orderNumber, @Nullable DeliveryStatus status,
+                                 @Nullable List<DeliveryArticle> articles) {
+
+    /**
+     * Creates the projection from a MongoDB document with the requested fields.
+     *
+     * @param document MongoDB document.
+     */
+    public DeliveryProjection(final Document document) {
+        this(
+                document.getLong("orderNumber"),
+                document.containsKey("status") ? DeliveryStatus.valueOf(document.getString("status")) : null,
+                document.containsKey("articles")
+                        ? document.getList("articles", Document.class).stream().map(DeliveryArticle::new).toList()
+                        : null
+        );
+    }
+}
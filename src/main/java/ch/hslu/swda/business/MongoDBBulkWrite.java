@@ -0,0 +1,98 @@
+package ch.hslu.swda.business;
+
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.bulk.BulkWriteResult;
+import com.mongodb.bulk.BulkWriteUpsert;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.WriteModel;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Executes multiple writes on a MongoDB collection with a single bulk write.
+ * <p>
+ * Ordered writes stop at the first failed write, unordered writes continue with the remaining writes and may be
+ * applied in any order. The writes should therefore only be unordered if their order does not change the result.
+ */
+public final class MongoDBBulkWrite {
+
+    private static final Logger LOG = LoggerFactory.getLogger(MongoDBBulkWrite.class);
+
+    private final MongoCollection<Document> collection;
+
+    /**
+     * Constructor.
+     *
+     * @param collection MongoDB collection.
+     */
+    public MongoDBBulkWrite(final MongoCollection<Document> collection) {
+        this.collection = collection;
+    }
+
+    /**
+     * Executes the writes, failed writes are logged and not counted.
+     *
+     * @param writes  Writes to execute.
+     * @param ordered True if the writes are executed in order and stop at the first failure.
+     * @return Number of matched and deleted documents.
+     */
+    public int execute(final List<? extends WriteModel<Document>> writes, final boolean ordered) {
+        BulkWriteResult result = report(writes, ordered).result();
+        return result.getMatchedCount() + result.getDeletedCount();
+    }
+
+    /**
+     * Executes the writes and reports the outcome of every write.
+     *
+     * @param writes  Writes to execute.
+     * @param ordered True if the writes are executed in order and stop at the first failure.
+     * @return Outcome of the writes.
+     */
+    public Report report(final List<? extends WriteModel<Document>> writes, final boolean ordered) {
+        if (writes.isEmpty()) {
+            return new Report(BulkWriteResult.acknowledged(0, 0, 0, 0, List.of(), List.of()), Map.of());
+        }
+        try {
+            BulkWriteResult result = collection.bulkWrite(writes, new BulkWriteOptions().ordered(ordered));
+            return new Report(result, Map.of());
+        } catch (MongoBulkWriteException e) {
+            LOG.error("DB: {} of {} writes on {} failed: {}", e.getWriteErrors().size(), writes.size(),
+                    collection.getNamespace(), e.getMessage());
+            Map<Integer, String> failed = new HashMap<>();
+            e.getWriteErrors().forEach(error -> failed.put(error.getIndex(), error.getMessage()));
+            if (ordered) {
+                int first = e.getWriteErrors().get(0).getIndex();
+                for (int i = first + 1; i < writes.size(); i++) {
+                    failed.put(i, "not executed after a failed write");
+                }
+            }
+            return new Report(e.getWriteResult(), failed);
+        }
+    }
+
+    /**
+     * Outcome of a bulk write.
+     *
+     * @param result Result of the successful writes.
+     * @param failed Reasons of the failed writes by their index.
+     */
+    public record Report(BulkWriteResult result, Map<Integer, String> failed) {
+
+        /**
+         * Returns the indexes of the writes that inserted a document with an upsert.
+         *
+         * @return Indexes of the upserts.
+         */
+        public Set<Integer> upserted() {
+            return result.getUpserts().stream().map(BulkWriteUpsert::getIndex).collect(Collectors.toSet());
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package ch.hslu.swda.business;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Configuration of the MongoDB client shared by all repositories.
+ *
+ * @param host        MongoDB host.
+ * @param user        MongoDB user.
+ * @param password    MongoDB password.
+ * @param maxPoolSize Maximum number of connections in the pool.
+ * @param minPoolSize Minimum number of connections kept in the pool.
+ * @param maxWaitTime Maximum time in milliseconds to wait for a free connection.
+ * @param maxIdleTime Maximum time in milliseconds a connection may stay idle in the pool.
+ * @param compressors Wire protocol compressors (zlib, snappy or zstd).
+ * @param batchSize   Number of documents fetched per batch when streaming query results.
+ */
+public record MongoDBConfig(String host, String user, String password, int maxPoolSize, int minPoolSize,
+                            long maxWaitTime, long maxIdleTime, List<String> compressors, int batchSize) {
+
+    public static final int DEFAULT_MAX_POOL_SIZE = 20;
+    public static final int DEFAULT_MIN_POOL_SIZE = 0;
+    public static final long DEFAULT_MAX_WAIT_TIME = 5000L;
+    public static final long DEFAULT_MAX_IDLE_TIME = 60000L;
+    public static final int DEFAULT_BATCH_SIZE = 500;
+
+    private static final Set<String> SUPPORTED_COMPRESSORS = Set.of("zlib", "snappy", "zstd");
+
+    public MongoDBConfig {
+        if (host == null || host.isBlank()) {
+            throw new IllegalArgumentException("host should not be blank");
+        }
+        if (user == null) {
+            user = "";
+        }
+        if (password == null) {
+            password = "";
+        }
+        if (maxPoolSize < 1) {
+            throw new IllegalArgumentException("maxPoolSize should not be lower than 1");
+        }
+        if (minPoolSize < 0 || minPoolSize > maxPoolSize) {
+            throw new IllegalArgumentException("minPoolSize should be between 0 and maxPoolSize");
+        }
+        if (maxWaitTime < 0) {
+            throw new IllegalArgumentException("maxWaitTime should not be lower than 0");
+        }
+        if (maxIdleTime < 0) {
+            throw new IllegalArgumentException("maxIdleTime should not be lower than 0");
+        }
+        compressors = compressors == null ? List.of() : List.copyOf(compressors);
+        for (String compressor : compressors) {
+            if (!SUPPORTED_COMPRESSORS.contains(compressor)) {
+                throw new IllegalArgumentException("compressor " + compressor + " is not supported");
+            }
+        }
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("batchSize should not be lower than 1");
+        }
+    }
+
+    /**
+     * Creates a configuration with the default pool settings.
+     *
+     * @param host     MongoDB host.
+     * @param user     MongoDB user.
+     * @param password MongoDB password.
+     */
+    public MongoDBConfig(final String host, final String user, final String password) {
+        this(host, user, password, DEFAULT_MAX_POOL_SIZE, DEFAULT_MIN_POOL_SIZE,
+                DEFAULT_MAX_WAIT_TIME, DEFAULT_MAX_IDLE_TIME, List.of(), DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * Creates the configuration from the environment variables.
+     *
+     * @return MongoDB configuration.
+     */
+    public static MongoDBConfig fromEnvironment() {
+        return fromMap(System.getenv());
+    }
+
+    /**
+     * Creates the configuration from the specified variables.
+     *
+     * @param env Configuration variables.
+     * @return MongoDB configuration.
+     */
+    static MongoDBConfig fromMap(final Map<String, String> env) {
+        String compressors = env.getOrDefault("MONGO_COMPRESSORS", "");
+        return new MongoDBConfig(
+                env.getOrDefault("MONGO_HOST", "localhost"),
+                env.getOrDefault("MONGO_USER", ""),
+                env.getOrDefault("MONGO_PASSWORD", ""),
+                Integer.parseInt(env.getOrDefault("MONGO_POOL_MAX_SIZE", String.valueOf(DEFAULT_MAX_POOL_SIZE))),
+                Integer.parseInt(env.getOrDefault("MONGO_POOL_MIN_SIZE", String.valueOf(DEFAULT_MIN_POOL_SIZE))),
+                Long.parseLong(env.getOrDefault("MONGO_POOL_MAX_WAIT_MS", String.valueOf(DEFAULT_MAX_WAIT_TIME))),
+                Long.parseLong(env.getOrDefault("MONGO_POOL_MAX_IDLE_MS", String.valueOf(DEFAULT_MAX_IDLE_TIME))),
+                Arrays.stream(compressors.split(",")).map(String::trim).filter(c -> !c.isEmpty()).toList(),
+                Integer.parseInt(env.getOrDefault("MONGO_BATCH_SIZE", String.valueOf(DEFAULT_BATCH_SIZE)))
+        );
+    }
+
+    /**
+     * Returns the connection string for the configured host and credentials.
+     *
+     * @return MongoDB connection string.
+     */
+    public String connectionString() {
+        String connectionURI = "mongodb://";
+        if (!user.isBlank() && !password.isBlank()) {
+            connectionURI += String.format("%s:%s@%s", user, password, host);
+        } else {
+            connectionURI += host;
+        }
+        return connectionURI;
+    }
+
+    /**
+     * Hides the password in the string representation.
+     *
+     * @return String representation of the configuration.
+     */
+    @Override
+    public String toString() {
+        return "MongoDBConfig[host=" + host + ", user=" + user + ", maxPoolSize=" + maxPoolSize
+                + ", minPoolSize=" + minPoolSize + ", maxWaitTime=" + maxWaitTime
+                + ", maxIdleTime=" + maxIdleTime + ", compressors=" + compressors + ", batchSize=" + batchSize + "]";
+    }
+}
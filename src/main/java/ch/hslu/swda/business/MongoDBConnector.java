@@ -1,63 +1,117 @@
 package ch.hslu.swda.business;
 
+import com.mongodb.ConnectionString;
+import com.mongodb.MongoClientSettings;
+import com.mongodb.MongoCompressor;
 import com.mongodb.client.MongoClient;
 import com.mongodb.client.MongoClients;
 import com.mongodb.client.MongoCollection;
 import com.mongodb.client.MongoDatabase;
+import jakarta.annotation.PreDestroy;
+import jakarta.inject.Inject;
+import jakarta.inject.Singleton;
 import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 /**
  * MongoDB connector for the warehouse.
+ * <p>
+ * Holds the single pooled client of the application, the repositories only receive the collections.
  */
-public final class MongoDBConnector {
+@Singleton
+public final class MongoDBConnector implements AutoCloseable {
 
+    private static final Logger LOG = LoggerFactory.getLogger(MongoDBConnector.class);
     private static final String DATABASE_NAME = "warehouse";
 
     private final MongoClient client;
     private final MongoDatabase database;
-    private final MongoCollection<Document> collection;
+    private final int batchSize;
 
     /**
      * Constructor using environment variables for db configuration.
+     */
+    @Inject
+    public MongoDBConnector() {
+        this(MongoDBConfig.fromEnvironment());
+    }
+
+    /**
+     * Constructor with arguments for db configuration and default pool settings.
      *
-     * @param collection MongoDB collection.
+     * @param host     MongoDB host.
+     * @param user     MongoDB user.
+     * @param password MongoDB password.
      */
-    public MongoDBConnector(final String collection) {
-        this(
-                collection,
-                System.getenv().getOrDefault("MONGO_HOST", "localhost"),
-                System.getenv().getOrDefault("MONGO_USER", ""),
-                System.getenv().getOrDefault("MONGO_PASSWORD", "")
-        );
+    public MongoDBConnector(final String host, final String user, final String password) {
+        this(new MongoDBConfig(host, user, password));
     }
 
     /**
-     * Constructor with arguments for db configuration.
+     * Constructor with the complete db configuration.
      *
-     * @param collection MongoDB collection.
-     * @param host       MongoDB host.
-     * @param user       MongoDB user.
-     * @param password   MongoDB password.
+     * @param config MongoDB configuration.
      */
-    public MongoDBConnector(final String collection, final String host, final String user, final String password) {
-        String connectionURI = "mongodb://";
-        if (!user.isBlank() && !password.isBlank()) {
-            connectionURI += String.format("%s:%s@%s", user, password, host);
-        } else {
-            connectionURI += host;
-        }
-
-        this.client = MongoClients.create(connectionURI);
+    public MongoDBConnector(final MongoDBConfig config) {
+        MongoClientSettings settings = MongoClientSettings.builder()
+                .applyConnectionString(new ConnectionString(config.connectionString()))
+                .applyToConnectionPoolSettings(pool -> pool
+                        .maxSize(config.maxPoolSize())
+                        .minSize(config.minPoolSize())
+                        .maxWaitTime(config.maxWaitTime(), TimeUnit.MILLISECONDS)
+                        .maxConnectionIdleTime(config.maxIdleTime(), TimeUnit.MILLISECONDS))
+                .compressorList(createCompressors(config.compressors()))
+                .build();
+        this.client = MongoClients.create(settings);
         this.database = this.client.getDatabase(DATABASE_NAME);
-        this.collection = this.database.getCollection(collection);
+        this.batchSize = config.batchSize();
+        LOG.info("DB: created client with {}", config);
     }
 
     /**
-     * Returns the MongoDB collection.
+     * Returns the MongoDB collection with the specified name.
      *
+     * @param name Name of the collection.
      * @return MongoDB collection.
      */
-    public MongoCollection<Document> collection() {
-        return collection;
+    public MongoCollection<Document> collection(final String name) {
+        return database.getCollection(name);
+    }
+
+    /**
+     * Returns the number of documents fetched per batch when streaming query results.
+     *
+     * @return Batch size.
+     */
+    public int batchSize() {
+        return batchSize;
+    }
+
+    /**
+     * Closes the client and all pooled connections.
+     */
+    @PreDestroy
+    @Override
+    public void close() {
+        LOG.info("DB: closing client");
+        client.close();
+    }
+
+    /**
+     * Creates the wire protocol compressors.
+     *
+     * @param names Names of the compressors.
+     * @return List of compressors.
+     */
+    private static List<MongoCompressor> createCompressors(final List<String> names) {
+        return names.stream().map(name -> switch (name) {
+            case "snappy" -> MongoCompressor.createSnappyCompressor();
+            case "zstd" -> MongoCompressor.createZstdCompressor();
+            default -> MongoCompressor.createZlibCompressor();
+        }).toList();
     }
 }
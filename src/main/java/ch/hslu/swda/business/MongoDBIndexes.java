@@ -0,0 +1,107 @@
+package ch.hslu.swda.business;
+
+import com.mongodb.MongoException;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.IndexModel;
+import com.mongodb.lang.Nullable;
+import org.bson.BsonDocument;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Provisions and verifies the indexes of a MongoDB collection.
+ */
+public final class MongoDBIndexes {
+
+    private static final Logger LOG = LoggerFactory.getLogger(MongoDBIndexes.class);
+    private static final String DEFAULT_INDEX = "_id_";
+
+    private final MongoCollection<Document> collection;
+    private final List<IndexModel> indexes;
+
+    /**
+     * Constructor.
+     *
+     * @param collection MongoDB collection.
+     * @param indexes    Expected indexes of the collection, each with an explicit name.
+     */
+    public MongoDBIndexes(final MongoCollection<Document> collection, final List<IndexModel> indexes) {
+        this.collection = collection;
+        this.indexes = List.copyOf(indexes);
+    }
+
+    /**
+     * Creates the missing indexes and reports the drift between the expected and the existing indexes.
+     *
+     * @return Descriptions of the detected drift, empty if the indexes match.
+     */
+    public List<String> ensure() {
+        for (IndexModel index : indexes) {
+            try {
+                collection.createIndex(index.getKeys(), index.getOptions());
+            } catch (MongoException e) {
+                LOG.error("DB: failed to create index {} on {}: {}", index.getOptions().getName(),
+                        collection.getNamespace(), e.getMessage());
+            }
+        }
+        List<String> drift = verify();
+        drift.forEach(d -> LOG.warn("DB: index drift on {}: {}", collection.getNamespace(), d));
+        return drift;
+    }
+
+    /**
+     * Compares the existing indexes of the collection against the expected indexes.
+     *
+     * @return Descriptions of the detected drift, empty if the indexes match.
+     */
+    public List<String> verify() {
+        Map<String, Document> existing = new HashMap<>();
+        for (Document index : collection.listIndexes()) {
+            existing.put(index.getString("name"), index);
+        }
+
+        List<String> drift = new ArrayList<>();
+        for (IndexModel expected : indexes) {
+            String name = expected.getOptions().getName();
+            Document actual = existing.remove(name);
+            if (actual == null) {
+                drift.add("index " + name + " is missing");
+                continue;
+            }
+            BsonDocument actualKeys = toBsonDocument(actual.get("key", Document.class));
+            if (!expected.getKeys().toBsonDocument().equals(actualKeys)) {
+                drift.add("index " + name + " has keys " + actualKeys);
+            }
+            if (expected.getOptions().isUnique() != actual.getBoolean("unique", false)) {
+                drift.add("index " + name + " has unique " + actual.getBoolean("unique", false));
+            }
+            BsonDocument expectedFilter = toBsonDocument(expected.getOptions().getPartialFilterExpression());
+            BsonDocument actualFilter = toBsonDocument(actual.get("partialFilterExpression", Document.class));
+            if (!Objects.equals(expectedFilter, actualFilter)) {
+                drift.add("index " + name + " has partial filter " + actualFilter);
+            }
+        }
+        existing.keySet().stream()
+                .filter(name -> !DEFAULT_INDEX.equals(name))
+                .forEach(name -> drift.add("index " + name + " is not expected"));
+        return drift;
+    }
+
+    /**
+     * Converts the optional BSON value to a BSON document for comparison.
+     *
+     * @param bson BSON value.
+     * @return BSON document or null.
+     */
+    private static BsonDocument toBsonDocument(@Nullable final Bson bson) {
+        return bson != null ? bson.toBsonDocument() : null;
+    }
+}
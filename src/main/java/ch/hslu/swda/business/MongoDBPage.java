@@ -0,0 +1,104 @@
+package ch.hslu.swda.business;
+
+import com.mongodb.client.FindIterable;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.Sorts;
+import com.mongodb.lang.Nullable;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Reads the documents of a MongoDB collection page by page.
+ * <p>
+ * The pages are ordered by a unique key and the next page starts after the key of the last document of the previous
+ * page, the database therefore never skips over the documents of the previous pages. Only the requested fields are
+ * read from the database.
+ */
+public final class MongoDBPage {
+
+    /**
+     * Highest number of documents per page.
+     */
+    public static final int MAX_LIMIT = 1000;
+
+    private final String key;
+    private final List<String> fields;
+
+    /**
+     * Constructor.
+     *
+     * @param key    Field the pages are ordered by, unique within the filtered documents.
+     * @param fields Fields that can be read, including the key.
+     */
+    public MongoDBPage(final String key, final List<String> fields) {
+        this.key = key;
+        this.fields = List.copyOf(fields);
+    }
+
+    /**
+     * Returns the effective number of documents per page.
+     *
+     * @param limit Requested number of documents, 0 or lower for all documents.
+     * @return Number of documents per page, 0 for all documents.
+     */
+    public static int limit(final int limit) {
+        return limit > 0 ? Math.min(limit, MAX_LIMIT) : 0;
+    }
+
+    /**
+     * Returns the fields read for the requested fields, unknown fields are ignored and the key is always read.
+     *
+     * @param requested Requested fields, all fields if empty.
+     * @return Fields to read.
+     */
+    public List<String> fields(final List<String> requested) {
+        if (requested.isEmpty()) {
+            return fields;
+        }
+        List<String> selected = new ArrayList<>();
+        selected.add(key);
+        fields.stream().filter(f -> !f.equals(key) && requested.contains(f)).forEach(selected::add);
+        return selected;
+    }
+
+    /**
+     * Returns the documents of the page with the requested fields.
+     *
+     * @param collection MongoDB collection.
+     * @param filter     Filter of the documents.
+     * @param after      Key of the last document of the previous page, null for the first page.
+     * @param limit      Requested number of documents, 0 or lower for all documents.
+     * @param requested  Requested fields, all fields if empty.
+     * @param mapper     Creates the projection of a document with the requested fields.
+     * @param <T>        Projection of the documents.
+     * @return Documents of the page.
+     */
+    public <T> List<T> find(final MongoCollection<Document> collection, final Bson filter, @Nullable final Long after,
+                            final int limit, final List<String> requested, final Function<Document, T> mapper) {
+        Bson query = after != null ? Filters.and(filter, Filters.gt(key, after)) : filter;
+        FindIterable<Document> find = collection.find(query)
+                .projection(Projections.fields(Projections.include(fields(requested)), Projections.excludeId()))
+                .sort(Sorts.ascending(key))
+                .limit(limit(limit));
+        return find.map(mapper).into(new ArrayList<>());
+    }
+
+    /**
+     * Returns the requested fields of the document, used for documents that are not read from the database.
+     *
+     * @param document  Document with all fields.
+     * @param requested Requested fields, all fields if empty.
+     * @return Document with the requested fields.
+     */
+    public Document select(final Document document, final List<String> requested) {
+        Document selected = new Document();
+        fields(requested).stream().filter(document::containsKey).forEach(f -> selected.append(f, document.get(f)));
+        return selected;
+    }
+}
@@ -0,0 +1,43 @@
+package ch.hslu.swda.business;
+
+import com.mongodb.client.FindIterable;
+import com.mongodb.client.MongoCursor;
+import org.bson.Document;
+
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Streams the results of MongoDB queries batch by batch.
+ */
+public final class MongoDBStreams {
+
+    /**
+     * No instances.
+     */
+    private MongoDBStreams() {
+    }
+
+    /**
+     * Returns the results of the query as a stream backed by the cursor.
+     * <p>
+     * Only the current batch is kept in memory and the documents are mapped when they are consumed. The stream has to
+     * be closed to close the cursor, unless it was consumed completely.
+     *
+     * @param find      Query.
+     * @param batchSize Number of documents fetched per batch.
+     * @param mapper    Maps a document to the result.
+     * @param <T>       Type of the results.
+     * @return Stream of the results.
+     */
+    public static <T> Stream<T> stream(final FindIterable<Document> find, final int batchSize,
+                                       final Function<Document, T> mapper) {
+        MongoCursor<Document> cursor = find.batchSize(batchSize).cursor();
+        Spliterator<Document> spliterator = Spliterators.spliteratorUnknownSize(cursor,
+                Spliterator.ORDERED | Spliterator.NONNULL);
+        return StreamSupport.stream(spliterator, false).onClose(cursor::close).map(mapper);
+    }
+}
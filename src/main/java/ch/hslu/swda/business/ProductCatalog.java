@@ -1,11 +1,14 @@
 package ch.hslu.swda.business;
 
 import ch.hslu.swda.entities.Article;
+import ch.hslu.swda.entities.DeliveryArticle;
 import ch.hslu.swda.entities.WarehouseEntity;
+import com.mongodb.lang.Nullable;
 
 import java.math.BigDecimal;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Stream;
 
 /**
  * Management of the product catalog.
@@ -30,6 +33,34 @@ public interface ProductCatalog {
      */
     Map<Long, Article> getById(long branchId, List<Long> articleIds);
 
+    /**
+     * Returns the version of the branch's catalog, which changes with every change of an article in the catalog.
+     *
+     * @param branchId ID of the branch.
+     * @return Version of the catalog.
+     */
+    long getVersion(long branchId);
+
+    /**
+     * Returns the version of the article in the branch's catalog, which changes with every change of the article.
+     *
+     * @param branchId  ID of the branch.
+     * @param articleId ID of the article.
+     * @return Version of the article, null if the article does not exist.
+     */
+    @Nullable
+    Long getVersion(long branchId, long articleId);
+
+    /**
+     * Returns the article of the branch together with its version, both from the same read.
+     *
+     * @param branchId  ID of the branch.
+     * @param articleId ID of the article.
+     * @return Article with its version, null if the article does not exist.
+     */
+    @Nullable
+    VersionedArticle getVersioned(long branchId, long articleId);
+
     /**
      * Returns all articles in the product catalog of the branch.
      *
@@ -38,6 +69,25 @@ public interface ProductCatalog {
      */
     List<Article> getAll(long branchId);
 
+    /**
+     * Streams all articles in the product catalog of the branch, the stream has to be closed after use.
+     *
+     * @param branchId ID of the branch.
+     * @return Stream of all articles.
+     */
+    Stream<Article> streamAll(long branchId);
+
+    /**
+     * Returns a page of the articles in the product catalog of the branch, ordered by article ID.
+     *
+     * @param branchId ID of the branch.
+     * @param after    Article ID of the last article on the previous page, null for the first page.
+     * @param limit    Number of articles per page, 0 for all articles.
+     * @param fields   Fields of the articles, all fields if empty.
+     * @return Articles on the page with the requested fields.
+     */
+    List<ArticleProjection> getPage(long branchId, @Nullable Long after, int limit, List<String> fields);
+
     /**
      * Adds an article to the catalog of the branch.
      *
@@ -88,6 +138,42 @@ public interface ProductCatalog {
      */
     boolean changeReserved(long branchId, long articleId, int amount);
 
+    /**
+     * Creates or updates multiple articles in the catalog of the branch with a single write.
+     * <p>
+     * Existing articles get the name, price and minimum stock of the given article, the stocked and reserved items
+     * are only set for new articles. A failed article does not stop the other articles.
+     *
+     * @param branchId ID of the branch.
+     * @param articles Articles.
+     * @param create   True if missing articles are created, false if they are reported as not found.
+     * @return Result of every article in the order of the articles.
+     */
+    List<UpsertResult> upsertAll(long branchId, List<Article> articles, boolean create);
+
+    /**
+     * Changes the stocked and reserved items of multiple articles with a single write.
+     * <p>
+     * A change is not applied if it would lower the stocked or reserved items below zero.
+     *
+     * @param changes Changes of the articles.
+     * @param ordered True if the changes are applied in order and stop at the first failure.
+     * @return Number of changed articles.
+     */
+    int changeAll(List<ArticleChange> changes, boolean ordered);
+
+    /**
+     * Removes the reserved articles of a delivery from the stock of the branch.
+     * <p>
+     * The stocked and reserved items of an article are lowered together by a single atomic write, an article is only
+     * delivered if enough items are stocked and reserved.
+     *
+     * @param branchId ID of the branch.
+     * @param articles Delivery articles.
+     * @return Delivery articles, the ones removed from the stock with status delivered.
+     */
+    List<DeliveryArticle> commitDelivery(long branchId, List<DeliveryArticle> articles);
+
     /**
      * Returns all articles with low stock from all branches.
      *
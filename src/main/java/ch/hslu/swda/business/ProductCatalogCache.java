@@ -0,0 +1,637 @@
+package ch.hslu.swda.business;
+
+import ch.hslu.swda.entities.Article;
+import ch.hslu.swda.entities.DeliveryArticle;
+import ch.hslu.swda.entities.DeliveryArticleStatus;
+import ch.hslu.swda.entities.WarehouseEntity;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import com.mongodb.lang.Nullable;
+import io.micronaut.context.annotation.Primary;
+import jakarta.inject.Inject;
+import jakarta.inject.Singleton;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiFunction;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Product catalog keeping the articles of every branch in memory.
+ * <p>
+ * Reads are served from the cache and only the missing articles are read from the delegate. Changes are written to
+ * the delegate first and then applied to the cache. Every branch holds at most the configured number of articles,
+ * the least recently used article is evicted first. Articles read from the delegate are only cached if no write to
+ * the branch started or ended during the read, so a concurrent change is never lost or applied twice. Changes of
+ * other instances are received from the change stream of the catalog collection. Batched changes do not report which
+ * article was changed, so the changed articles are removed from the cache and read again on the next access.
+ * <p>
+ * Cached articles expire after the configured time, which bounds how long changes missed by the cache are served,
+ * e.g. on a standalone MongoDB server without change streams.
+ */
+@Primary
+@Singleton
+public final class ProductCatalogCache implements ProductCatalog {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ProductCatalogCache.class);
+    public static final int DEFAULT_SIZE = 10000;
+    public static final Duration DEFAULT_TTL = Duration.ofSeconds(60);
+    private static final String SIZE_ENV = "CATALOG_CACHE_SIZE";
+    private static final String TTL_ENV = "CATALOG_CACHE_TTL";
+    private static final String CACHE_NAME = "catalog";
+    private static final String BRANCH_ID = "branchId";
+    private static final String ID = "_id";
+
+    private final ProductCatalog delegate;
+    private final int maxSize;
+    private final long ttl;
+    private final Map<Long, Partition> partitions = new ConcurrentHashMap<>();
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter evictions;
+
+    /**
+     * Cached article.
+     *
+     * @param article Article.
+     * @param expires Time when the article expires in nanoseconds.
+     */
+    private record Cached(Article article, long expires) {
+    }
+
+    /**
+     * Articles of a branch in least recently used order.
+     */
+    private final class Partition extends LinkedHashMap<Long, Cached> {
+
+        private final Map<ObjectId, Long> ids = new HashMap<>();
+        private long version;
+        private int writing;
+
+        /**
+         * Constructor.
+         */
+        Partition() {
+            super(16, 0.75f, true);
+        }
+
+        /**
+         * Returns the cached article, an expired article is removed.
+         *
+         * @param articleId ID of the article.
+         * @return Article or null if not cached or expired.
+         */
+        Article article(final long articleId) {
+            Cached cached = get(articleId);
+            if (cached == null) {
+                return null;
+            }
+            if (ttl > 0 && System.nanoTime() - cached.expires() >= 0) {
+                remove(articleId);
+                return null;
+            }
+            return cached.article();
+        }
+
+        /**
+         * Caches an article read from the delegate.
+         *
+         * @param article Article.
+         */
+        void cache(final Article article) {
+            put(article.articleId(), new Cached(article, System.nanoTime() + ttl));
+        }
+
+        /**
+         * Caches an article derived from the cached article, it keeps the expiry of the cached article.
+         *
+         * @param article Article.
+         */
+        void change(final Article article) {
+            Cached cached = get(article.articleId());
+            if (cached != null) {
+                put(article.articleId(), new Cached(article, cached.expires()));
+            } else {
+                cache(article);
+            }
+        }
+
+        @Override
+        protected boolean removeEldestEntry(final Map.Entry<Long, Cached> eldest) {
+            boolean evict = size() > maxSize;
+            if (evict) {
+                evictions.increment();
+            }
+            return evict;
+        }
+    }
+
+    /**
+     * Constructor using the environment variables for the cache size and expiry, subscribes to the changes of the
+     * catalog. The duration of the operations of the delegate is recorded.
+     *
+     * @param delegate      Product catalog stored in MongoDB.
+     * @param registry      Meter registry.
+     * @param changeStreams Change streams of the MongoDB collections.
+     */
+    @Inject
+    public ProductCatalogCache(final ProductCatalogDB delegate, final MeterRegistry registry,
+                               final ChangeStreams changeStreams) {
+        this(RepositoryMetrics.instrument(ProductCatalog.class, delegate, "catalog", registry), registry,
+                sizeFromMap(System.getenv()), ttlFromMap(System.getenv()));
+        changeStreams.subscribe(ProductCatalogDB.COLLECTION, changeListener());
+    }
+
+    /**
+     * Constructor, cached articles expire after the default time.
+     *
+     * @param delegate Product catalog to cache.
+     * @param registry Meter registry.
+     * @param maxSize  Maximum number of cached articles per branch.
+     */
+    public ProductCatalogCache(final ProductCatalog delegate, final MeterRegistry registry, final int maxSize) {
+        this(delegate, registry, maxSize, DEFAULT_TTL);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param delegate Product catalog to cache.
+     * @param registry Meter registry.
+     * @param maxSize  Maximum number of cached articles per branch.
+     * @param ttl      Time after which a cached article expires, zero if articles never expire.
+     */
+    public ProductCatalogCache(final ProductCatalog delegate, final MeterRegistry registry, final int maxSize,
+                               final Duration ttl) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("maxSize should not be lower than 1");
+        }
+        if (ttl.isNegative()) {
+            throw new IllegalArgumentException("ttl should not be negative");
+        }
+        this.delegate = delegate;
+        this.maxSize = maxSize;
+        this.ttl = ttl.toNanos();
+        this.hits = registry.counter("cache.gets", Tags.of("cache", CACHE_NAME, "result", "hit"));
+        this.misses = registry.counter("cache.gets", Tags.of("cache", CACHE_NAME, "result", "miss"));
+        this.evictions = registry.counter("cache.evictions", Tags.of("cache", CACHE_NAME));
+        registry.gauge("cache.size", Tags.of("cache", CACHE_NAME), partitions,
+                p -> p.values().stream().mapToInt(this::size).sum());
+        LOG.info("Cache: caching up to {} articles per branch for {} s", maxSize, ttl.toSeconds());
+    }
+
+    @Override
+    public Article getById(final long branchId, final long articleId) {
+        Article cached = get(branchId, articleId);
+        if (cached != null) {
+            hits.increment();
+            return cached;
+        }
+        misses.increment();
+        long version = version(branchId);
+        Article article = delegate.getById(branchId, articleId);
+        if (article != null) {
+            load(branchId, List.of(article), version);
+        }
+        return article;
+    }
+
+    @Override
+    public Map<Long, Article> getById(final long branchId, final List<Long> articleIds) {
+        Map<Long, Article> articles = new HashMap<>();
+        List<Long> missing = new ArrayList<>();
+        for (Long articleId : articleIds) {
+            Article cached = get(branchId, articleId);
+            if (cached != null) {
+                articles.put(articleId, cached);
+            } else if (!missing.contains(articleId)) {
+                missing.add(articleId);
+            }
+        }
+        hits.increment(articles.size());
+        misses.increment(missing.size());
+        if (!missing.isEmpty()) {
+            long version = version(branchId);
+            Map<Long, Article> loaded = delegate.getById(branchId, missing);
+            load(branchId, loaded.values(), version);
+            articles.putAll(loaded);
+        }
+        return articles;
+    }
+
+    @Override
+    public long getVersion(final long branchId) {
+        return delegate.getVersion(branchId);
+    }
+
+    @Override
+    public Long getVersion(final long branchId, final long articleId) {
+        return delegate.getVersion(branchId, articleId);
+    }
+
+    @Override
+    public VersionedArticle getVersioned(final long branchId, final long articleId) {
+        return delegate.getVersioned(branchId, articleId);
+    }
+
+    @Override
+    public List<Article> getAll(final long branchId) {
+        long version = version(branchId);
+        List<Article> articles = delegate.getAll(branchId);
+        load(branchId, articles, version);
+        return articles;
+    }
+
+    @Override
+    public Stream<Article> streamAll(final long branchId) {
+        return delegate.streamAll(branchId);
+    }
+
+    @Override
+    public List<ArticleProjection> getPage(final long branchId, @Nullable final Long after, final int limit,
+                                           final List<String> fields) {
+        return delegate.getPage(branchId, after, limit, fields);
+    }
+
+    @Override
+    public Article create(final long branchId, final Article article) {
+        return write(branchId, article.articleId(), () -> delegate.create(branchId, article),
+                (created, cached) -> created);
+    }
+
+    @Override
+    public Article update(final long branchId, final long articleId, final String name,
+                          final BigDecimal price, final int minStock) {
+        return write(branchId, articleId, () -> delegate.update(branchId, articleId, name, price, minStock),
+                (updated, cached) -> updated);
+    }
+
+    @Override
+    public boolean delete(final long branchId, final long articleId) {
+        return write(branchId, articleId, () -> delegate.delete(branchId, articleId), (deleted, cached) -> null);
+    }
+
+    @Override
+    public boolean changeStock(final long branchId, final long articleId, final int amount) {
+        return write(branchId, articleId, () -> delegate.changeStock(branchId, articleId, amount),
+                (changed, a) -> changed && a != null ? new Article(a.articleId(), a.name(), a.price(),
+                        a.minStock(), a.stock() + amount, a.reserved()) : a);
+    }
+
+    @Override
+    public boolean changeReserved(final long branchId, final long articleId, final int amount) {
+        return write(branchId, articleId, () -> delegate.changeReserved(branchId, articleId, amount),
+                (changed, a) -> changed && a != null ? new Article(a.articleId(), a.name(), a.price(),
+                        a.minStock(), a.stock(), a.reserved() + amount) : a);
+    }
+
+    @Override
+    public List<UpsertResult> upsertAll(final long branchId, final List<Article> articles, final boolean create) {
+        Partition partition = partition(branchId);
+        synchronized (partition) {
+            partition.writing++;
+            partition.version++;
+        }
+        try {
+            return delegate.upsertAll(branchId, articles, create);
+        } finally {
+            synchronized (partition) {
+                partition.writing--;
+                partition.version++;
+                articles.forEach(article -> partition.remove(article.articleId()));
+            }
+        }
+    }
+
+    @Override
+    public int changeAll(final List<ArticleChange> changes, final boolean ordered) {
+        Map<Long, List<Long>> changed = changes.stream().collect(Collectors.groupingBy(ArticleChange::branchId,
+                Collectors.mapping(ArticleChange::articleId, Collectors.toList())));
+        changed.keySet().forEach(branchId -> {
+            Partition partition = partition(branchId);
+            synchronized (partition) {
+                partition.writing++;
+                partition.version++;
+            }
+        });
+        try {
+            return delegate.changeAll(changes, ordered);
+        } finally {
+            changed.forEach((branchId, articleIds) -> {
+                Partition partition = partition(branchId);
+                synchronized (partition) {
+                    partition.writing--;
+                    partition.version++;
+                    articleIds.forEach(partition::remove);
+                }
+            });
+        }
+    }
+
+    @Override
+    public List<DeliveryArticle> commitDelivery(final long branchId, final List<DeliveryArticle> articles) {
+        Partition partition = partition(branchId);
+        synchronized (partition) {
+            partition.writing++;
+            partition.version++;
+        }
+        List<DeliveryArticle> committed = null;
+        try {
+            committed = delegate.commitDelivery(branchId, articles);
+            return committed;
+        } finally {
+            synchronized (partition) {
+                partition.writing--;
+                partition.version++;
+                for (int i = 0; i < articles.size(); i++) {
+                    DeliveryArticle article = articles.get(i);
+                    if (article.status() != DeliveryArticleStatus.RESERVED) {
+                        continue;
+                    }
+                    Article cached = partition.article(article.articleId());
+                    if (committed == null) {
+                        partition.remove(article.articleId());
+                    } else if (cached != null && committed.get(i).status() == DeliveryArticleStatus.DELIVERED) {
+                        partition.change(new Article(cached.articleId(), cached.name(), cached.price(),
+                                cached.minStock(), cached.stock() - article.quantity(),
+                                cached.reserved() - article.quantity()));
+                    }
+                }
+            }
+        }
+    }
+
+    @Override
+    public List<WarehouseEntity<Article>> getLowStock() {
+        return delegate.getLowStock();
+    }
+
+    /**
+     * Removes an article from the cache.
+     *
+     * @param branchId  ID of the branch.
+     * @param articleId ID of the article.
+     */
+    public void invalidate(final long branchId, final long articleId) {
+        Partition partition = partitions.get(branchId);
+        if (partition != null) {
+            synchronized (partition) {
+                partition.version++;
+                partition.remove(articleId);
+            }
+        }
+    }
+
+    /**
+     * Removes all articles from the cache.
+     */
+    public void invalidateAll() {
+        partitions.values().forEach(partition -> {
+            synchronized (partition) {
+                partition.version++;
+                partition.clear();
+                partition.ids.clear();
+            }
+        });
+    }
+
+    /**
+     * Returns a listener applying the changes of the catalog collection to the cache.
+     *
+     * @return Change listener.
+     */
+    ChangeListener changeListener() {
+        return new ChangeListener() {
+            @Override
+            public void onChange(final ChangeStreamDocument<Document> change) {
+                if (change.getDocumentKey() != null) {
+                    refresh(change.getDocumentKey().getObjectId(ID).getValue(), change.getFullDocument());
+                } else {
+                    invalidateAll();
+                }
+            }
+
+            @Override
+            public void onReset() {
+                invalidateAll();
+            }
+        };
+    }
+
+    /**
+     * Applies a change of the catalog collection, possibly made by another instance.
+     * <p>
+     * The current article is cached unless a write of this instance is in progress, then the article is removed. The
+     * document ID of every changed article is kept, a deletion only carries the document ID and removes the article
+     * of that ID from the cache. An article that did not change since the cache started watching is not known by its
+     * document ID, its deletion is missed until the article expires.
+     *
+     * @param id       Document ID of the changed article.
+     * @param document Current document of the changed article, null if it was deleted.
+     */
+    void refresh(final ObjectId id, @Nullable final Document document) {
+        if (document == null) {
+            partitions.values().forEach(partition -> {
+                synchronized (partition) {
+                    Long articleId = partition.ids.remove(id);
+                    if (articleId != null) {
+                        partition.version++;
+                        partition.remove(articleId);
+                    }
+                }
+            });
+            return;
+        }
+        long branchId = document.getLong(BRANCH_ID);
+        Article article = new Article(document);
+        Partition partition = partitions.get(branchId);
+        if (partition != null) {
+            synchronized (partition) {
+                partition.version++;
+                partition.ids.put(id, article.articleId());
+                if (partition.writing == 0) {
+                    partition.cache(article);
+                } else {
+                    partition.remove(article.articleId());
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the cached article.
+     *
+     * @param branchId  ID of the branch.
+     * @param articleId ID of the article.
+     * @return Article or null if not cached.
+     */
+    private Article get(final long branchId, final long articleId) {
+        Partition partition = partitions.get(branchId);
+        if (partition == null) {
+            return null;
+        }
+        synchronized (partition) {
+            return partition.article(articleId);
+        }
+    }
+
+    /**
+     * Returns the partition of the branch.
+     *
+     * @param branchId ID of the branch.
+     * @return Partition.
+     */
+    private Partition partition(final long branchId) {
+        return partitions.computeIfAbsent(branchId, id -> new Partition());
+    }
+
+    /**
+     * Returns the current version of the branch's partition, it changes with every write to the partition.
+     *
+     * @param branchId ID of the branch.
+     * @return Version of the partition.
+     */
+    private long version(final long branchId) {
+        Partition partition = partition(branchId);
+        synchronized (partition) {
+            return partition.version;
+        }
+    }
+
+    /**
+     * Caches the articles read from the delegate if no write started or ended since the read started.
+     *
+     * @param branchId ID of the branch.
+     * @param articles Articles.
+     * @param version  Version of the partition before the read.
+     */
+    private void load(final long branchId, final Iterable<Article> articles, final long version) {
+        Partition partition = partition(branchId);
+        synchronized (partition) {
+            if (partition.writing == 0 && partition.version == version) {
+                articles.forEach(partition::cache);
+            }
+        }
+    }
+
+    /**
+     * Writes an article to the delegate and applies the result to the cached article.
+     * <p>
+     * The article is removed from the cache if the write failed or the result cannot be applied.
+     *
+     * @param branchId  ID of the branch.
+     * @param articleId ID of the article.
+     * @param write     Write to the delegate.
+     * @param apply     Returns the article to cache from the result and the cached article, null to remove it.
+     * @param <T>       Result of the write.
+     * @return Result of the write.
+     */
+    private <T> T write(final long branchId, final long articleId, final Supplier<T> write,
+                        final BiFunction<T, Article, Article> apply) {
+        Partition partition = partition(branchId);
+        synchronized (partition) {
+            partition.writing++;
+            partition.version++;
+        }
+        T result = null;
+        boolean written = false;
+        try {
+            result = write.get();
+            written = true;
+            return result;
+        } finally {
+            synchronized (partition) {
+                partition.writing--;
+                partition.version++;
+                Article article = null;
+                if (written) {
+                    try {
+                        article = apply.apply(result, partition.article(articleId));
+                    } catch (IllegalArgumentException e) {
+                        LOG.warn("Cache: failed to apply change of article {}: {}", articleId, e.getMessage());
+                    }
+                }
+                if (article != null) {
+                    partition.change(article);
+                } else {
+                    partition.remove(articleId);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the number of cached articles of a partition.
+     *
+     * @param partition Partition.
+     * @return Number of cached articles.
+     */
+    private int size(final Partition partition) {
+        synchronized (partition) {
+            return partition.size();
+        }
+    }
+
+    /**
+     * Reads the cache size from the environment variables, an invalid size is replaced by the default size.
+     *
+     * @param env Environment variables.
+     * @return Maximum number of cached articles per branch.
+     */
+    static int sizeFromMap(final Map<String, String> env) {
+        return (int) numberFromMap(env, SIZE_ENV, 1, DEFAULT_SIZE);
+    }
+
+    /**
+     * Reads the expiry of cached articles in seconds from the environment variables, an invalid expiry is replaced by
+     * the default expiry.
+     *
+     * @param env Environment variables.
+     * @return Time after which a cached article expires.
+     */
+    static Duration ttlFromMap(final Map<String, String> env) {
+        return Duration.ofSeconds(numberFromMap(env, TTL_ENV, 0, DEFAULT_TTL.toSeconds()));
+    }
+
+    /**
+     * Reads a number from the environment variables.
+     *
+     * @param env          Environment variables.
+     * @param key          Name of the variable.
+     * @param minimum      Lowest valid value.
+     * @param defaultValue Value if the variable is missing or invalid.
+     * @return Number.
+     */
+    private static long numberFromMap(final Map<String, String> env, final String key, final long minimum,
+                                      final long defaultValue) {
+        String value = env.get(key);
+        if (value == null || value.isBlank()) {
+            return defaultValue;
+        }
+        try {
+            long number = Long.parseLong(value.trim());
+            if (number >= minimum && number <= Integer.MAX_VALUE) {
+                return number;
+            }
+        } catch (NumberFormatException e) {
+            LOG.debug("Value {} of {} is not a number", value, key);
+        }
+        LOG.warn("Invalid value {} of {}, using {}", value, key, defaultValue);
+        return defaultValue;
+    }
+}
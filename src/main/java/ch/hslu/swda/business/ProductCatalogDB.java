@@ -1,25 +1,52 @@
 package ch.hslu.swda.business;
 
 import ch.hslu.swda.entities.Article;
+import ch.hslu.swda.entities.DeliveryArticle;
+import ch.hslu.swda.entities.DeliveryArticleStatus;
 import ch.hslu.swda.entities.WarehouseEntity;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.Accumulators;
+import com.mongodb.client.model.Aggregates;
 import com.mongodb.client.model.Filters;
 import com.mongodb.client.model.FindOneAndUpdateOptions;
+import com.mongodb.client.model.IndexModel;
+import com.mongodb.client.model.IndexOptions;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.Indexes;
 import com.mongodb.client.model.ReturnDocument;
+import com.mongodb.client.model.Sorts;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.UpdateOptions;
 import com.mongodb.client.model.Updates;
+import com.mongodb.lang.Nullable;
+import jakarta.inject.Inject;
 import jakarta.inject.Singleton;
 import org.bson.Document;
 import org.bson.conversions.Bson;
+import org.bson.types.ObjectId;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.math.BigDecimal;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * Implementation of the product catalog using MongoDB.
+ * <p>
+ * Every article stores its deficit, the number of items missing to reach the minimum stock after the reservations.
+ * The deficit is updated together with the stocked and reserved items, so articles with low stock are found with a
+ * partial index on the articles with a positive deficit instead of scanning the whole catalog.
+ * <p>
+ * Every write increments the version of the changed article in the same update. The version of a branch's catalog is
+ * derived from the IDs and versions of its articles, read from an index, so it changes atomically with the articles
+ * and a write never needs a second round trip.
  */
 @Singleton
 public final class ProductCatalogDB implements ProductCatalog {
@@ -27,59 +54,157 @@ public final class ProductCatalogDB implements ProductCatalog {
     private static final Logger LOG = LoggerFactory.getLogger(ProductCatalogDB.class);
     public static final String COLLECTION = "catalog";
 
+    private static final String ID = "_id";
     private static final String ARTICLE_ID = "articleId";
     private static final String BRANCH_ID = "branchId";
+    private static final String STOCK = "stock";
+    private static final String RESERVED = "reserved";
+    private static final String MIN_STOCK = "minStock";
+    private static final String PRICE = "price";
+    private static final String NAME = "name";
+    private static final String DEFICIT = "deficit";
+    private static final String VERSION = "version";
+    private static final String COUNT = "count";
+    private static final String LAST_ID = "lastId";
+    private static final Document DEFICIT_EXPRESSION = Document.parse(
+            "{ $subtract: ['$minStock', { $subtract: ['$stock', '$reserved'] }] }");
+    private static final Document VERSION_EXPRESSION = Document.parse(
+            "{ $add: [{ $ifNull: ['$version', 0] }, 1] }");
 
-    private final MongoDBConnector db;
+    static final List<IndexModel> INDEXES = List.of(
+            new IndexModel(Indexes.ascending(BRANCH_ID, ARTICLE_ID),
+                    new IndexOptions().name("branchId_articleId").unique(true)),
+            new IndexModel(Indexes.ascending(DEFICIT),
+                    new IndexOptions().name("deficit").partialFilterExpression(Filters.gt(DEFICIT, 0))),
+            new IndexModel(Indexes.ascending(BRANCH_ID, ID, VERSION), new IndexOptions().name("branchId_id_version"))
+    );
+    static final MongoDBPage PAGE = new MongoDBPage(ARTICLE_ID,
+            List.of(ARTICLE_ID, NAME, PRICE, MIN_STOCK, STOCK, RESERVED));
+
+    private final MongoCollection<Document> collection;
+    private final MongoDBBulkWrite bulkWrite;
+    private final int batchSize;
 
     /**
-     * Constructor with configuration from the environment variables.
+     * Constructor using the shared MongoDB client.
+     *
+     * @param connector MongoDB connector.
      */
-    public ProductCatalogDB() {
-        this(new MongoDBConnector(COLLECTION));
+    @Inject
+    public ProductCatalogDB(final MongoDBConnector connector) {
+        this(connector.collection(COLLECTION), connector.batchSize());
     }
 
     /**
-     * Constructor with custom configuration.
+     * Constructor with a custom collection, creates the missing indexes and deficits.
      *
-     * @param connector MongoDB connector.
+     * @param collection MongoDB collection.
      */
-    public ProductCatalogDB(final MongoDBConnector connector) {
-        db = connector;
+    public ProductCatalogDB(final MongoCollection<Document> collection) {
+        this(collection, MongoDBConfig.DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * Constructor with a custom collection and batch size, creates the missing indexes and deficits.
+     *
+     * @param collection MongoDB collection.
+     * @param batchSize  Number of documents fetched per batch when streaming.
+     */
+    public ProductCatalogDB(final MongoCollection<Document> collection, final int batchSize) {
+        this.collection = collection;
+        this.bulkWrite = new MongoDBBulkWrite(collection);
+        this.batchSize = batchSize;
+        new MongoDBIndexes(collection, INDEXES).ensure();
+        long updated = this.collection.updateMany(Filters.exists(DEFICIT, false),
+                List.of(new Document("$set", new Document(DEFICIT, DEFICIT_EXPRESSION)))).getModifiedCount();
+        if (updated > 0) {
+            LOG.info("DB: added deficit to {} articles", updated);
+        }
     }
 
     @Override
     public Article getById(final long branchId, final long articleId) {
-        LOG.info("DB: read article from branch {} with id {}", branchId, articleId);
+        LOG.debug("DB: read article from branch {} with id {}", branchId, articleId);
         Bson filter = Filters.and(Filters.eq(BRANCH_ID, branchId), Filters.eq(ARTICLE_ID, articleId));
-        Document exists = this.db.collection().find(filter).first();
+        Document exists = this.collection.find(filter).first();
         return exists != null ? new Article(exists) : null;
     }
 
     @Override
     public Map<Long, Article> getById(final long branchId, final List<Long> articleIds) {
-        LOG.info("DB: read articles from branch {} with ids {}", branchId, articleIds);
+        LOG.debug("DB: read articles from branch {} with ids {}", branchId, articleIds);
         Bson filter = Filters.and(Filters.eq(BRANCH_ID, branchId), Filters.in(ARTICLE_ID, articleIds));
-        List<Document> documents = this.db.collection().find(filter).into(new ArrayList<>());
+        List<Document> documents = this.collection.find(filter).into(new ArrayList<>());
         return documents.stream().map(Article::new).collect(Collectors.toMap(Article::articleId, a -> a));
     }
 
+    @Override
+    public long getVersion(final long branchId) {
+        Bson match = Aggregates.match(Filters.eq(BRANCH_ID, branchId));
+        Bson group = Aggregates.group(null,
+                Accumulators.sum(COUNT, 1),
+                Accumulators.sum(VERSION, new Document("$ifNull", List.of("$" + VERSION, 0L))),
+                Accumulators.max(LAST_ID, "$" + ID));
+        Document totals = this.collection.aggregate(List.of(match, group)).first();
+        if (totals == null) {
+            return 0L;
+        }
+        long count = totals.get(COUNT, Number.class).longValue();
+        long versions = totals.get(VERSION, Number.class).longValue();
+        return mix(totals.getObjectId(LAST_ID), finalizeHash(count) + versions);
+    }
+
+    @Override
+    public Long getVersion(final long branchId, final long articleId) {
+        Bson filter = Filters.and(Filters.eq(BRANCH_ID, branchId), Filters.eq(ARTICLE_ID, articleId));
+        Document exists = this.collection.find(filter).projection(Projections.include(VERSION)).first();
+        return exists != null ? version(exists) : null;
+    }
+
+    @Override
+    public VersionedArticle getVersioned(final long branchId, final long articleId) {
+        Bson filter = Filters.and(Filters.eq(BRANCH_ID, branchId), Filters.eq(ARTICLE_ID, articleId));
+        Document exists = this.collection.find(filter).first();
+        LOG.debug("DB: read article from branch {} with id {} and its version", branchId, articleId);
+        return exists != null ? new VersionedArticle(new Article(exists), version(exists)) : null;
+    }
+
     @Override
     public List<Article> getAll(final long branchId) {
+        try (Stream<Article> stream = streamAll(branchId)) {
+            List<Article> articles = stream.toList();
+            LOG.debug("DB: read all {} articles from branch {}", articles.size(), branchId);
+            return articles;
+        }
+    }
+
+    @Override
+    public Stream<Article> streamAll(final long branchId) {
+        Bson filter = Filters.eq(BRANCH_ID, branchId);
+        return MongoDBStreams.stream(this.collection.find(filter), batchSize, Article::new);
+    }
+
+    @Override
+    public List<ArticleProjection> getPage(final long branchId, @Nullable final Long after, final int limit,
+                                           final List<String> fields) {
         Bson filter = Filters.eq(BRANCH_ID, branchId);
-        List<Document> documents = this.db.collection().find(filter).into(new ArrayList<>());
-        LOG.info("DB: read all {} articles from branch {}", documents.size(), branchId);
-        return documents.stream().map(Article::new).toList();
+        List<ArticleProjection> articles = PAGE.find(this.collection, filter, after, limit, fields,
+                ArticleProjection::new);
+        LOG.debug("DB: read {} articles from branch {} after {}", articles.size(), branchId, after);
+        return articles;
     }
 
     @Override
     public Article create(final long branchId, final Article article) {
         Bson filter = Filters.and(Filters.eq(BRANCH_ID, branchId), Filters.eq(ARTICLE_ID, article.articleId()));
-        Document exists = this.db.collection().find(filter).first();
+        Document exists = this.collection.find(filter).first();
         if (exists == null) {
             WarehouseEntity<Article> warehouseEntity = new WarehouseEntity<>(branchId, article);
-            this.db.collection().insertOne(warehouseEntity.toDocument());
-            LOG.info("DB: created article for branch {} with id {}", branchId, article.articleId());
+            Document document = warehouseEntity.toDocument()
+                    .append(DEFICIT, article.minStock() - article.stock() + article.reserved())
+                    .append(VERSION, 1L);
+            this.collection.insertOne(document);
+            LOG.debug("DB: created article for branch {} with id {}", branchId, article.articleId());
         } else {
             LOG.warn("DB: article {} already exists for branch {}", article.articleId(), branchId);
         }
@@ -89,48 +214,142 @@ public final class ProductCatalogDB implements ProductCatalog {
     @Override
     public Article update(final long branchId, final long articleId, final String name,
                           final BigDecimal price, final int minStock) {
-        Document article = new Article(articleId, name, price, minStock, 0, 0).toDocument();
+        Article article = new Article(articleId, name, price, minStock, 0, 0);
         Bson filter = Filters.and(Filters.eq(BRANCH_ID, branchId), Filters.eq(ARTICLE_ID, articleId));
-        Bson updates = Updates.combine(
-                Updates.set("name", article.get("name")),
-                Updates.set("price", article.get("price")),
-                Updates.set("minStock", article.get("minStock"))
-        );
         FindOneAndUpdateOptions options = new FindOneAndUpdateOptions().returnDocument(ReturnDocument.AFTER);
-        Document updated = this.db.collection().findOneAndUpdate(filter, updates, options);
-        LOG.info("DB: {}updated article from branch {} with id {}", updated != null ? "" : "not ", branchId, articleId);
+        Document updated = this.collection.findOneAndUpdate(filter, updatePipeline(article), options);
+        LOG.debug("DB: {}updated article from branch {} with id {}", updated != null ? "" : "not ", branchId,
+                articleId);
         return updated != null ? new Article(updated) : null;
     }
 
     @Override
     public boolean delete(final long branchId, final long articleId) {
         Bson filter = Filters.and(Filters.eq(BRANCH_ID, branchId), Filters.eq(ARTICLE_ID, articleId));
-        Document removed = this.db.collection().findOneAndDelete(filter);
-        LOG.info("DB: {}removed article from branch {} with id {}", removed != null ? "" : "not ", branchId, articleId);
+        Document removed = this.collection.findOneAndDelete(filter);
+        LOG.debug("DB: {}removed article from branch {} with id {}", removed != null ? "" : "not ", branchId,
+                articleId);
         return removed != null;
     }
 
     @Override
     public boolean changeStock(final long branchId, final long articleId, final int amount) {
-        return incrementField("stock", branchId, articleId, amount);
+        return incrementField(STOCK, branchId, articleId, amount);
     }
 
     @Override
     public boolean changeReserved(final long branchId, final long articleId, final int amount) {
-        return incrementField("reserved", branchId, articleId, amount);
+        return incrementField(RESERVED, branchId, articleId, amount);
+    }
+
+    @Override
+    public List<UpsertResult> upsertAll(final long branchId, final List<Article> articles, final boolean create) {
+        Bson branch = Filters.eq(BRANCH_ID, branchId);
+        Set<Long> existing = new HashSet<>();
+        List<Long> articleIds = articles.stream().map(Article::articleId).toList();
+        this.collection.find(Filters.and(branch, Filters.in(ARTICLE_ID, articleIds)))
+                .projection(Projections.include(ARTICLE_ID))
+                .forEach(d -> existing.add(d.getLong(ARTICLE_ID)));
+
+        List<Article> written = articles.stream().filter(a -> create || existing.contains(a.articleId())).toList();
+        MongoDBBulkWrite.Report report = bulkWrite.report(written.stream()
+                .map(a -> new UpdateOneModel<Document>(Filters.and(branch, Filters.eq(ARTICLE_ID, a.articleId())),
+                        updatePipeline(a), new UpdateOptions().upsert(create)))
+                .toList(), false);
+        Set<Integer> upserted = report.upserted();
+
+        List<UpsertResult> results = new ArrayList<>();
+        int write = 0;
+        for (Article article : articles) {
+            if (!create && !existing.contains(article.articleId())) {
+                results.add(new UpsertResult(article.articleId(), UpsertStatus.NOT_FOUND, ""));
+                continue;
+            }
+            String failure = report.failed().get(write);
+            if (failure != null) {
+                results.add(new UpsertResult(article.articleId(), UpsertStatus.FAILED, failure));
+            } else {
+                UpsertStatus status = upserted.contains(write) ? UpsertStatus.CREATED : UpsertStatus.UPDATED;
+                results.add(new UpsertResult(article.articleId(), status, ""));
+            }
+            write++;
+        }
+        LOG.debug("DB: upserted {} of {} articles for branch {}", written.size() - report.failed().size(),
+                articles.size(), branchId);
+        return results;
+    }
+
+    @Override
+    public int changeAll(final List<ArticleChange> changes, final boolean ordered) {
+        List<UpdateOneModel<Document>> writes = new ArrayList<>();
+        for (ArticleChange change : changes) {
+            Bson filter = Filters.and(Filters.eq(BRANCH_ID, change.branchId()),
+                    Filters.eq(ARTICLE_ID, change.articleId()));
+            if (change.stock() < 0) {
+                filter = Filters.and(filter, Filters.gte(STOCK, -change.stock()));
+            }
+            if (change.reserved() < 0) {
+                filter = Filters.and(filter, Filters.gte(RESERVED, -change.reserved()));
+            }
+            List<Bson> updates = new ArrayList<>();
+            if (change.stock() != 0) {
+                updates.add(Updates.inc(STOCK, change.stock()));
+            }
+            if (change.reserved() != 0) {
+                updates.add(Updates.inc(RESERVED, change.reserved()));
+            }
+            if (change.stock() != change.reserved()) {
+                updates.add(Updates.inc(DEFICIT, change.reserved() - change.stock()));
+            }
+            if (!updates.isEmpty()) {
+                updates.add(Updates.inc(VERSION, 1L));
+                writes.add(new UpdateOneModel<>(filter, Updates.combine(updates)));
+            }
+        }
+        int changed = bulkWrite.execute(writes, ordered);
+        LOG.debug("DB: changed {} of {} articles", changed, writes.size());
+        return changed;
+    }
+
+    @Override
+    public List<DeliveryArticle> commitDelivery(final long branchId, final List<DeliveryArticle> articles) {
+        List<DeliveryArticle> committed = new ArrayList<>();
+        for (DeliveryArticle article : articles) {
+            if (article.status() != DeliveryArticleStatus.RESERVED) {
+                committed.add(article);
+                continue;
+            }
+            Bson filter = Filters.and(
+                    Filters.eq(BRANCH_ID, branchId),
+                    Filters.eq(ARTICLE_ID, article.articleId()),
+                    Filters.gte(STOCK, article.quantity()),
+                    Filters.gte(RESERVED, article.quantity())
+            );
+            Bson updates = Updates.combine(
+                    Updates.inc(STOCK, -article.quantity()),
+                    Updates.inc(RESERVED, -article.quantity()),
+                    Updates.inc(VERSION, 1L)
+            );
+            boolean delivered = this.collection.updateOne(filter, updates).getModifiedCount() == 1;
+            LOG.debug("DB: {}delivered {} items of article from branch {} with id {}", delivered ? "" : "not ",
+                    article.quantity(), branchId, article.articleId());
+            committed.add(delivered ? new DeliveryArticle(article.articleId(), article.quantity(),
+                    DeliveryArticleStatus.DELIVERED) : article);
+        }
+        return committed;
     }
 
     @Override
     public List<WarehouseEntity<Article>> getLowStock() {
-        String expression = "{ $lt: [ { $subtract: ['$stock', '$reserved'] }, '$minStock' ] }";
-        Bson filter = Filters.expr(Document.parse(expression));
-        List<Document> documents = this.db.collection().find(filter).into(new ArrayList<>());
-        LOG.info("DB: read all {} articles with low stock", documents.size());
+        List<Document> documents = this.collection.find(Filters.gt(DEFICIT, 0))
+                .sort(Sorts.ascending("_id"))
+                .into(new ArrayList<>());
+        LOG.debug("DB: read all {} articles with low stock", documents.size());
         return documents.stream().map(d -> new WarehouseEntity<>(d.getLong(BRANCH_ID), new Article(d))).toList();
     }
 
     /**
-     * Increments the specified field by the given amount.
+     * Increments the specified field by the given amount and updates the deficit accordingly.
      *
      * @param field     Name of the field to increment.
      * @param branchId  ID of the branch.
@@ -143,9 +362,72 @@ public final class ProductCatalogDB implements ProductCatalog {
         if (amount < 0) {
             filter = Filters.and(filter, Filters.gte(field, Math.abs(amount)));
         }
-        long result = this.db.collection().updateOne(filter, Updates.inc(field, amount)).getModifiedCount();
-        LOG.info("DB: {}updated {} items of article from branch {} with id {}",
+        int deficit = STOCK.equals(field) ? -amount : amount;
+        Bson updates = Updates.combine(Updates.inc(field, amount), Updates.inc(DEFICIT, deficit),
+                Updates.inc(VERSION, 1L));
+        long result = this.collection.updateOne(filter, updates).getModifiedCount();
+        LOG.debug("DB: {}updated {} items of article from branch {} with id {}",
                 result == 1 ? "" : "not ", field, branchId, articleId);
         return result == 1;
     }
+
+    /**
+     * Returns the pipeline setting the name, price and minimum stock of the article and recomputing the deficit and
+     * version. The stocked and reserved items are only set for new articles.
+     *
+     * @param article Article.
+     * @return Update pipeline.
+     */
+    private static List<Bson> updatePipeline(final Article article) {
+        Document document = article.toDocument();
+        Document fields = new Document(NAME, new Document("$literal", document.get(NAME)))
+                .append(PRICE, new Document("$literal", document.get(PRICE)))
+                .append(MIN_STOCK, article.minStock())
+                .append(STOCK, new Document("$ifNull", List.of("$" + STOCK, article.stock())))
+                .append(RESERVED, new Document("$ifNull", List.of("$" + RESERVED, article.reserved())));
+        return List.of(
+                new Document("$set", fields),
+                new Document("$set", new Document(DEFICIT, DEFICIT_EXPRESSION).append(VERSION, VERSION_EXPRESSION))
+        );
+    }
+
+    /**
+     * Returns the version of the article, articles written before the versions were introduced have version 0.
+     *
+     * @param document Article.
+     * @return Version.
+     */
+    private static long version(final Document document) {
+        Object version = document.get(VERSION);
+        return version instanceof Number number ? number.longValue() : 0L;
+    }
+
+    /**
+     * Mixes the highest article ID of a catalog with its article count and version sum into the catalog version.
+     * <p>
+     * An update raises the sum of the versions and a delete lowers the count. A new article gets a new, higher ID even
+     * if an article with the same article ID was deleted before, so the catalog version changes with every write.
+     *
+     * @param id      Highest ID of the article documents.
+     * @param version Count and version sum of the articles.
+     * @return Mixed value.
+     */
+    private static long mix(final ObjectId id, final long version) {
+        ByteBuffer bytes = ByteBuffer.wrap(id.toByteArray());
+        long hash = finalizeHash(bytes.getLong());
+        hash = finalizeHash(hash ^ bytes.getInt());
+        return finalizeHash(hash ^ version);
+    }
+
+    /**
+     * Spreads the bits of the value with the SplitMix64 finalizer.
+     *
+     * @param value Value.
+     * @return Spread value.
+     */
+    private static long finalizeHash(final long value) {
+        long hash = (value ^ (value >>> 30)) * 0xBF58476D1CE4E5B9L;
+        hash = (hash ^ (hash >>> 27)) * 0x94D049BB133111EBL;
+        return hash ^ (hash >>> 31);
+    }
 }
@@ -0,0 +1,38 @@
+package ch.hslu.swda.business;
+
+import ch.hslu.swda.entities.ReorderStatus;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.mongodb.lang.Nullable;
+import org.bson.Document;
+
+import java.text.SimpleDateFormat;
+
+/**
+ * Requested fields of a reorder in a page of the reorders, the fields that were not requested are null.
+ *
+ * @param reorderId ID of the reorder.
+ * @param status    Status of the reorder.
+ * @param date      Date of the reorder.
+ * @param articleId ID of the article.
+ * @param quantity  Quantity of the article.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record ReorderProjection(long reorderId, @Nullable ReorderStatus status, @Nullable String date,
+                                @Nullable Long articleId, @Nullable Integer quantity) {
+
+    /**
+     * Creates the projection from a MongoDB document with the requested fields.
+     *
+     * @param document MongoDB document.
+     */
+    public ReorderProjection(final Document document) {
+        this(
+                document.getLong("reorderId"),
+                document.containsKey("status") ? ReorderStatus.valueOf(document.getString("status")) : null,
+                document.containsKey("date") ? new SimpleDateFormat("yyyy-MM-dd").format(document.getDate("date"))
+                        : null,
+                document.getLong("articleId"),
+                document.getInteger("quantity")
+        );
+    }
+}
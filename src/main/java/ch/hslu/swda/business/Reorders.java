@@ -6,6 +6,8 @@ import ch.hslu.swda.entities.WarehouseEntity;
 import com.mongodb.lang.Nullable;
 
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
 
 /**
  * Management of the reorders.
@@ -30,6 +32,19 @@ public interface Reorders {
      */
     List<Reorder> getAllByBranch(long branchId, @Nullable ReorderStatus status);
 
+    /**
+     * Returns a page of the reorders of a branch, ordered by reorder ID.
+     *
+     * @param branchId ID of the branch.
+     * @param status   Optional status filter.
+     * @param after    Reorder ID of the last reorder on the previous page, null for the first page.
+     * @param limit    Number of reorders per page, 0 for all reorders.
+     * @param fields   Fields of the reorders, all fields if empty.
+     * @return Reorders on the page with the requested fields.
+     */
+    List<ReorderProjection> getPage(long branchId, @Nullable ReorderStatus status, @Nullable Long after, int limit,
+                                    List<String> fields);
+
     /**
      * Returns all reorders.
      *
@@ -38,6 +53,14 @@ public interface Reorders {
      */
     List<WarehouseEntity<Reorder>> getAllByStatus(ReorderStatus status);
 
+    /**
+     * Streams all reorders, the stream has to be closed after use.
+     *
+     * @param status Status of the reorders.
+     * @return Stream of all reorders.
+     */
+    Stream<WarehouseEntity<Reorder>> streamByStatus(ReorderStatus status);
+
     /**
      * Adds a reorder for the branch.
      *
@@ -68,6 +91,17 @@ public interface Reorders {
      */
     Reorder updateQuantity(long branchId, long reorderId, int quantity);
 
+    /**
+     * Updates the status and quantity of multiple reorders with a single write, a reorder no longer in the expected
+     * status is left unchanged.
+     *
+     * @param reorders Reorders with their branch, new status and new quantity.
+     * @param expected Status of the reorders when they were read.
+     * @param ordered  True if the reorders are updated in order and stop at the first failure.
+     * @return Number of updated reorders.
+     */
+    int updateAll(List<WarehouseEntity<Reorder>> reorders, ReorderStatus expected, boolean ordered);
+
     /**
      * Deletes a reorder from the branch.
      *
@@ -85,4 +119,12 @@ public interface Reorders {
      * @return Number of reordered articles.
      */
     int countReorderedArticles(long branchId, long articleId);
+
+    /**
+     * Counts the number of reordered articles of the specified articles in all branches with a single query.
+     *
+     * @param articleIds IDs of the articles.
+     * @return Number of reordered articles by branch ID and article ID, articles without open reorders are missing.
+     */
+    Map<Long, Map<Long, Integer>> countReorderedArticles(List<Long> articleIds);
 }
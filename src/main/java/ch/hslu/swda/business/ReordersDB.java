@@ -1,26 +1,34 @@
 package ch.hslu.swda.business;
 
-import ch.hslu.swda.entities.DeliveryStatus;
 import ch.hslu.swda.entities.Reorder;
 import ch.hslu.swda.entities.ReorderStatus;
 import ch.hslu.swda.entities.WarehouseEntity;
+import com.mongodb.client.MongoCollection;
 import com.mongodb.client.model.Accumulators;
 import com.mongodb.client.model.Aggregates;
 import com.mongodb.client.model.Filters;
 import com.mongodb.client.model.FindOneAndUpdateOptions;
+import com.mongodb.client.model.IndexModel;
+import com.mongodb.client.model.IndexOptions;
+import com.mongodb.client.model.Indexes;
+import com.mongodb.client.model.Projections;
 import com.mongodb.client.model.ReturnDocument;
 import com.mongodb.client.model.Sorts;
+import com.mongodb.client.model.UpdateOneModel;
 import com.mongodb.client.model.Updates;
 import com.mongodb.lang.Nullable;
+import jakarta.inject.Inject;
 import jakarta.inject.Singleton;
 import org.bson.Document;
 import org.bson.conversions.Bson;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
 
 /**
  * Implementation of the reorders using MongoDB.
@@ -34,30 +42,68 @@ public final class ReordersDB implements Reorders {
     private static final String BRANCH_ID = "branchId";
     private static final String REORDER_ID = "reorderId";
     private static final String STATUS = "status";
+    private static final String QUANTITY = "quantity";
+    private static final String ARTICLE_ID = "articleId";
+    private static final String COUNT = "count";
+    private static final String DATE = "date";
+    private static final int ID_BLOCK_SIZE = 100;
 
-    private final MongoDBConnector db;
+    static final List<IndexModel> INDEXES = List.of(
+            new IndexModel(Indexes.ascending(BRANCH_ID, REORDER_ID),
+                    new IndexOptions().name("branchId_reorderId").unique(true)),
+            new IndexModel(Indexes.ascending(STATUS), new IndexOptions().name("status"))
+    );
+    static final MongoDBPage PAGE = new MongoDBPage(REORDER_ID,
+            List.of(REORDER_ID, STATUS, DATE, ARTICLE_ID, QUANTITY));
+
+    private final MongoCollection<Document> collection;
+    private final MongoDBBulkWrite bulkWrite;
+    private final SequenceGenerator reorderIds;
+    private final int batchSize;
 
     /**
-     * Constructor with configuration from the environment variables.
+     * Constructor using the shared MongoDB client.
+     *
+     * @param connector MongoDB connector.
      */
-    public ReordersDB() {
-        this(new MongoDBConnector(COLLECTION));
+    @Inject
+    public ReordersDB(final MongoDBConnector connector) {
+        this(connector.collection(COLLECTION), connector.collection(SequenceGenerator.COLLECTION),
+                connector.batchSize());
     }
 
     /**
-     * Constructor with custom configuration.
+     * Constructor with custom collections, creates the missing indexes.
      *
-     * @param connector MongoDB connector.
+     * @param collection MongoDB collection.
+     * @param counters   MongoDB collection holding the id counters.
      */
-    public ReordersDB(final MongoDBConnector connector) {
-        db = connector;
+    public ReordersDB(final MongoCollection<Document> collection, final MongoCollection<Document> counters) {
+        this(collection, counters, MongoDBConfig.DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * Constructor with custom collections and batch size, creates the missing indexes.
+     *
+     * @param collection MongoDB collection.
+     * @param counters   MongoDB collection holding the id counters.
+     * @param batchSize  Number of documents fetched per batch when streaming.
+     */
+    public ReordersDB(final MongoCollection<Document> collection, final MongoCollection<Document> counters,
+                      final int batchSize) {
+        this.collection = collection;
+        this.bulkWrite = new MongoDBBulkWrite(collection);
+        this.batchSize = batchSize;
+        new MongoDBIndexes(collection, INDEXES).ensure();
+        this.reorderIds = new SequenceGenerator(counters, REORDER_ID, ID_BLOCK_SIZE);
+        this.reorderIds.seed(findHighestReorderId());
     }
 
     @Override
     public Reorder getById(final long branchId, final long reorderId) {
-        LOG.info("DB: read reorder from branch {} with id {}", branchId, reorderId);
+        LOG.debug("DB: read reorder from branch {} with id {}", branchId, reorderId);
         Bson filter = Filters.and(Filters.eq(BRANCH_ID, branchId), Filters.eq(REORDER_ID, reorderId));
-        Document exists = this.db.collection().find(filter).first();
+        Document exists = this.collection.find(filter).first();
         return exists != null ? new Reorder(exists) : null;
     }
 
@@ -67,32 +113,51 @@ public final class ReordersDB implements Reorders {
         if (status != null) {
             filter = Filters.and(filter, Filters.eq(STATUS, status.name()));
         }
-        List<Document> documents = this.db.collection().find(filter).into(new ArrayList<>());
-        LOG.info("DB: read all {} reorders from branch {}{}", documents.size(), branchId,
-                status != null ? " with status " + status : "");
-        return documents.stream().map(Reorder::new).toList();
+        try (Stream<Reorder> stream = MongoDBStreams.stream(this.collection.find(filter), batchSize, Reorder::new)) {
+            List<Reorder> reorders = stream.toList();
+            LOG.debug("DB: read all {} reorders from branch {}{}", reorders.size(), branchId,
+                    status != null ? " with status " + status : "");
+            return reorders;
+        }
+    }
+
+    @Override
+    public List<ReorderProjection> getPage(final long branchId, @Nullable final ReorderStatus status,
+                                           @Nullable final Long after, final int limit, final List<String> fields) {
+        Bson filter = Filters.eq(BRANCH_ID, branchId);
+        if (status != null) {
+            filter = Filters.and(filter, Filters.eq(STATUS, status.name()));
+        }
+        List<ReorderProjection> reorders = PAGE.find(this.collection, filter, after, limit, fields,
+                ReorderProjection::new);
+        LOG.debug("DB: read {} reorders from branch {}{} after {}", reorders.size(), branchId,
+                status != null ? " with status " + status : "", after);
+        return reorders;
     }
 
     @Override
     public List<WarehouseEntity<Reorder>> getAllByStatus(final ReorderStatus status) {
+        try (Stream<WarehouseEntity<Reorder>> stream = streamByStatus(status)) {
+            List<WarehouseEntity<Reorder>> reorders = stream.toList();
+            LOG.debug("DB: read all {} reorders with status {}", reorders.size(), status);
+            return reorders;
+        }
+    }
+
+    @Override
+    public Stream<WarehouseEntity<Reorder>> streamByStatus(final ReorderStatus status) {
         Bson filter = Filters.eq(STATUS, status);
-        List<Document> documents = this.db.collection().find(filter).into(new ArrayList<>());
-        LOG.info("DB: read all {} reorders with status {}", documents.size(), status);
-        return documents.stream().map(d -> new WarehouseEntity<>(d.getLong(BRANCH_ID), new Reorder(d))).toList();
+        return MongoDBStreams.stream(this.collection.find(filter), batchSize,
+                d -> new WarehouseEntity<>(d.getLong(BRANCH_ID), new Reorder(d)));
     }
 
     @Override
     public Reorder create(final long branchId, final long articleId, final int quantity) {
-        Document lastDocument = this.db.collection().find().sort(Sorts.descending(REORDER_ID)).limit(1).first();
-        long newReorderId = 1L;
-        if (lastDocument != null) {
-            newReorderId = new Reorder(lastDocument).reorderId() + 1;
-        }
-
+        long newReorderId = reorderIds.next();
         Reorder reorder = new Reorder(newReorderId, ReorderStatus.NEW, "", articleId, quantity);
         WarehouseEntity<Reorder> warehouseEntity = new WarehouseEntity<>(branchId, reorder);
-        this.db.collection().insertOne(warehouseEntity.toDocument());
-        LOG.info("DB: created reorder for branch {} with id {}", branchId, reorder.reorderId());
+        this.collection.insertOne(warehouseEntity.toDocument());
+        LOG.debug("DB: created reorder for branch {} with id {}", branchId, reorder.reorderId());
         return reorder;
     }
 
@@ -100,8 +165,8 @@ public final class ReordersDB implements Reorders {
     public Reorder updateStatus(final long branchId, final long reorderId, final ReorderStatus status) {
         Bson filter = Filters.and(Filters.eq(BRANCH_ID, branchId), Filters.eq(REORDER_ID, reorderId));
         FindOneAndUpdateOptions options = new FindOneAndUpdateOptions().returnDocument(ReturnDocument.AFTER);
-        Document updated = this.db.collection().findOneAndUpdate(filter, Updates.set(STATUS, status), options);
-        LOG.info("DB: {}updated reorder status for branch {} with id {} to {}",
+        Document updated = this.collection.findOneAndUpdate(filter, Updates.set(STATUS, status), options);
+        LOG.debug("DB: {}updated reorder status for branch {} with id {} to {}",
                 updated != null ? "" : "not ", branchId, reorderId, status);
         return updated != null ? new Reorder(updated) : null;
     }
@@ -110,17 +175,34 @@ public final class ReordersDB implements Reorders {
     public Reorder updateQuantity(final long branchId, final long reorderId, final int quantity) {
         Bson filter = Filters.and(Filters.eq(BRANCH_ID, branchId), Filters.eq(REORDER_ID, reorderId));
         FindOneAndUpdateOptions options = new FindOneAndUpdateOptions().returnDocument(ReturnDocument.AFTER);
-        Document updated = this.db.collection().findOneAndUpdate(filter, Updates.set("quantity", quantity), options);
-        LOG.info("DB: {}updated reorder quantity for branch {} with id {} to {}",
+        Document updated = this.collection.findOneAndUpdate(filter, Updates.set(QUANTITY, quantity), options);
+        LOG.debug("DB: {}updated reorder quantity for branch {} with id {} to {}",
                 updated != null ? "" : "not ", branchId, reorderId, quantity);
         return updated != null ? new Reorder(updated) : null;
     }
 
+    @Override
+    public int updateAll(final List<WarehouseEntity<Reorder>> reorders, final ReorderStatus expected,
+                         final boolean ordered) {
+        int updated = bulkWrite.execute(reorders.stream().map(e -> {
+            Reorder reorder = (Reorder) e.entity();
+            Bson filter = Filters.and(Filters.eq(BRANCH_ID, e.branchId()), Filters.eq(REORDER_ID, reorder.reorderId()),
+                    Filters.eq(STATUS, expected.name()));
+            Bson updates = Updates.combine(
+                    Updates.set(STATUS, reorder.status()),
+                    Updates.set(QUANTITY, reorder.quantity())
+            );
+            return new UpdateOneModel<Document>(filter, updates);
+        }).toList(), ordered);
+        LOG.debug("DB: updated {} of {} reorders", updated, reorders.size());
+        return updated;
+    }
+
     @Override
     public boolean delete(final long branchId, final long reorderID) {
         Bson filter = Filters.and(Filters.eq(BRANCH_ID, branchId), Filters.eq(REORDER_ID, reorderID));
-        Document removed = this.db.collection().findOneAndDelete(filter);
-        LOG.info("DB: {}removed delivery from branch {} with id {}",
+        Document removed = this.collection.findOneAndDelete(filter);
+        LOG.debug("DB: {}removed delivery from branch {} with id {}",
                 removed != null ? "" : "not ", branchId, reorderID);
         return removed != null;
     }
@@ -129,17 +211,52 @@ public final class ReordersDB implements Reorders {
     public int countReorderedArticles(final long branchId, final long articleId) {
         Bson match = Aggregates.match(Filters.and(
                 Filters.eq(BRANCH_ID, branchId),
-                Filters.eq("articleId", articleId),
-                Filters.ne(STATUS, DeliveryStatus.COMPLETED.name()))
+                Filters.eq(ARTICLE_ID, articleId),
+                Filters.ne(STATUS, ReorderStatus.COMPLETED.name()))
         );
-        Bson group = Aggregates.group(null, Accumulators.sum("count", "$quantity"));
-        Document document = this.db.collection().aggregate(Arrays.asList(match, group)).first();
+        Bson group = Aggregates.group(null, Accumulators.sum(COUNT, "$" + QUANTITY));
+        Document document = this.collection.aggregate(Arrays.asList(match, group)).first();
 
         int count = 0;
         if (document != null) {
-            count = document.getInteger("count");
+            count = document.getInteger(COUNT);
         }
-        LOG.info("DB: number of reordered articles from branch {} with id {}: {}", branchId, articleId, count);
+        LOG.debug("DB: number of reordered articles from branch {} with id {}: {}", branchId, articleId, count);
         return count;
     }
+
+    @Override
+    public Map<Long, Map<Long, Integer>> countReorderedArticles(final List<Long> articleIds) {
+        Map<Long, Map<Long, Integer>> counts = new HashMap<>();
+        if (articleIds.isEmpty()) {
+            return counts;
+        }
+        Bson match = Aggregates.match(Filters.and(
+                Filters.in(ARTICLE_ID, articleIds),
+                Filters.ne(STATUS, ReorderStatus.COMPLETED.name()))
+        );
+        Document id = new Document(BRANCH_ID, "$" + BRANCH_ID).append(ARTICLE_ID, "$" + ARTICLE_ID);
+        Bson group = Aggregates.group(id, Accumulators.sum(COUNT, "$" + QUANTITY));
+        for (Document document : this.collection.aggregate(Arrays.asList(match, group))) {
+            Document key = document.get("_id", Document.class);
+            counts.computeIfAbsent(key.getLong(BRANCH_ID), b -> new HashMap<>())
+                    .put(key.getLong(ARTICLE_ID), document.getInteger(COUNT));
+        }
+        LOG.debug("DB: number of reordered articles for {} articles in {} branches", articleIds.size(), counts.size());
+        return counts;
+    }
+
+    /**
+     * Returns the highest reorder ID in use.
+     *
+     * @return Highest reorder ID or 0 if there are no reorders.
+     */
+    private long findHighestReorderId() {
+        Document last = this.collection.find()
+                .projection(Projections.include(REORDER_ID))
+                .sort(Sorts.descending(REORDER_ID))
+                .limit(1)
+                .first();
+        return last != null ? last.getLong(REORDER_ID) : 0L;
+    }
 }
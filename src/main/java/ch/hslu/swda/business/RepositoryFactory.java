@@ -0,0 +1,41 @@
+package ch.hslu.swda.business;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micronaut.context.annotation.Factory;
+import io.micronaut.context.annotation.Primary;
+import jakarta.inject.Singleton;
+
+/**
+ * Provides the repositories stored in MongoDB recording the duration of their operations.
+ * <p>
+ * The product catalog is instrumented by the cache, only the reads that miss the cache are recorded.
+ */
+@Factory
+public final class RepositoryFactory {
+
+    /**
+     * Returns the deliveries recording the duration of their operations.
+     *
+     * @param deliveries Deliveries stored in MongoDB.
+     * @param registry   Meter registry.
+     * @return Deliveries.
+     */
+    @Primary
+    @Singleton
+    public Deliveries deliveries(final DeliveriesDB deliveries, final MeterRegistry registry) {
+        return RepositoryMetrics.instrument(Deliveries.class, deliveries, "deliveries", registry);
+    }
+
+    /**
+     * Returns the reorders recording the duration of their operations.
+     *
+     * @param reorders Reorders stored in MongoDB.
+     * @param registry Meter registry.
+     * @return Reorders.
+     */
+    @Primary
+    @Singleton
+    public Reorders reorders(final ReordersDB reorders, final MeterRegistry registry) {
+        return RepositoryMetrics.instrument(Reorders.class, reorders, "reorders", registry);
+    }
+}
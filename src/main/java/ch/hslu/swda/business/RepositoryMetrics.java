@@ -0,0 +1,118 @@
+package ch.hslu.swda.business;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Records the duration of every operation of a repository.
+ * <p>
+ * The repository is wrapped in a proxy timing every method of its interface, tagged by repository, operation and
+ * outcome. The outcome is {@code success}, {@code empty} if nothing was found or changed (null or false) or
+ * {@code error} if the operation failed. The timers are created once per method, a call only looks up its timer.
+ * Operations returning a stream are timed until the stream is closed, so the time to consume the stream is included.
+ */
+public final class RepositoryMetrics implements InvocationHandler {
+
+    private static final String TIMER = "repository.operations";
+    private static final int SUCCESS = 0;
+    private static final int EMPTY = 1;
+    private static final int ERROR = 2;
+    private static final String[] OUTCOMES = {"success", "empty", "error"};
+
+    private final Object repository;
+    private final Map<Method, Timer[]> timers = new HashMap<>();
+
+    /**
+     * Constructor.
+     *
+     * @param type       Interface of the repository.
+     * @param repository Repository.
+     * @param name       Name of the repository.
+     * @param registry   Meter registry.
+     */
+    private RepositoryMetrics(final Class<?> type, final Object repository, final String name,
+                              final MeterRegistry registry) {
+        this.repository = repository;
+        for (Method method : type.getMethods()) {
+            Timer[] outcomes = new Timer[OUTCOMES.length];
+            for (int i = 0; i < OUTCOMES.length; i++) {
+                outcomes[i] = registry.timer(TIMER,
+                        Tags.of("repository", name, "operation", method.getName(), "outcome", OUTCOMES[i]));
+            }
+            timers.put(method, outcomes);
+        }
+    }
+
+    /**
+     * Returns the repository recording the duration of its operations.
+     *
+     * @param type       Interface of the repository.
+     * @param repository Repository.
+     * @param name       Name of the repository.
+     * @param registry   Meter registry.
+     * @param <T>        Interface of the repository.
+     * @return Repository recording the duration of its operations.
+     */
+    public static <T> T instrument(final Class<T> type, final T repository, final String name,
+                                   final MeterRegistry registry) {
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type},
+                new RepositoryMetrics(type, repository, name, registry)));
+    }
+
+    @Override
+    public Object invoke(final Object proxy, final Method method, final Object[] args) throws Throwable {
+        Timer[] outcomes = timers.get(method);
+        if (outcomes == null) {
+            return call(method, args);
+        }
+        long start = System.nanoTime();
+        Object result;
+        try {
+            result = call(method, args);
+        } catch (Throwable e) {
+            record(outcomes[ERROR], start);
+            throw e;
+        }
+        if (result instanceof Stream<?> stream) {
+            return stream.onClose(() -> record(outcomes[SUCCESS], start));
+        }
+        record(outcomes[result == null || Boolean.FALSE.equals(result) ? EMPTY : SUCCESS], start);
+        return result;
+    }
+
+    /**
+     * Records the duration of an operation.
+     *
+     * @param timer Timer of the operation and outcome.
+     * @param start Start of the operation in nanoseconds.
+     */
+    private static void record(final Timer timer, final long start) {
+        timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Calls the method on the repository and rethrows the exception of the repository.
+     *
+     * @param method Method.
+     * @param args   Arguments.
+     * @return Result of the method.
+     * @throws Throwable Exception thrown by the repository.
+     */
+    private Object call(final Method method, final Object[] args) throws Throwable {
+        try {
+            return method.invoke(repository, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package ch.hslu.swda.business;
+
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.FindOneAndUpdateOptions;
+import com.mongodb.client.model.ReturnDocument;
+import com.mongodb.client.model.UpdateOptions;
+import com.mongodb.client.model.Updates;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Allocates increasing ids from a counter document in MongoDB.
+ * <p>
+ * Every instance reserves a block of ids with a single atomic increment and hands them out locally, so ids are
+ * unique across instances and only every n-th allocation needs a round trip. Ids of a block that is not used up
+ * before a restart are skipped.
+ */
+public final class SequenceGenerator {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SequenceGenerator.class);
+    public static final String COLLECTION = "counters";
+
+    private static final String ID = "_id";
+    private static final String VALUE = "value";
+
+    private final MongoCollection<Document> counters;
+    private final String name;
+    private final int blockSize;
+
+    private long next = 1L;
+    private long last;
+
+    /**
+     * Constructor.
+     *
+     * @param counters  MongoDB collection holding the counter documents.
+     * @param name      Name of the sequence.
+     * @param blockSize Number of ids reserved per round trip.
+     */
+    public SequenceGenerator(final MongoCollection<Document> counters, final String name, final int blockSize) {
+        if (blockSize < 1) {
+            throw new IllegalArgumentException("blockSize should not be lower than 1");
+        }
+        this.counters = counters;
+        this.name = name;
+        this.blockSize = blockSize;
+    }
+
+    /**
+     * Raises the counter to the specified value if it is lower, e.g. to continue after ids already in use.
+     *
+     * @param value Lowest value of the counter.
+     */
+    public void seed(final long value) {
+        counters.updateOne(Filters.eq(ID, name), Updates.max(VALUE, value), new UpdateOptions().upsert(true));
+        LOG.info("DB: seeded sequence {} with {}", name, value);
+    }
+
+    /**
+     * Returns the next id of the sequence.
+     *
+     * @return Next id.
+     */
+    public synchronized long next() {
+        if (next > last) {
+            allocateBlock();
+        }
+        return next++;
+    }
+
+    /**
+     * Reserves the next block of ids with an atomic increment of the counter.
+     */
+    private void allocateBlock() {
+        FindOneAndUpdateOptions options = new FindOneAndUpdateOptions()
+                .upsert(true)
+                .returnDocument(ReturnDocument.AFTER);
+        Document counter = counters.findOneAndUpdate(Filters.eq(ID, name), Updates.inc(VALUE, (long) blockSize),
+                options);
+        last = counter.getLong(VALUE);
+        next = last - blockSize + 1;
+        LOG.info("DB: reserved ids {} to {} of sequence {}", next, last, name);
+    }
+}
@@ -0,0 +1,11 @@
+package ch.hslu.swda.business;
+
+/**
+ * Result of an upsert of a single article in a batch.
+ *
+ * @param articleId ID of the article.
+ * @param status    Outcome of the upsert.
+ * @param message   Reason of the failure, empty if the upsert did not fail.
+ */
+public record UpsertResult(long articleId, UpsertStatus status, String message) {
+}
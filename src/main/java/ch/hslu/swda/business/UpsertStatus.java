@@ -0,0 +1,27 @@
+package ch.hslu.swda.business;
+
+/**
+ * Defines the outcome of an upsert of a single item in a batch.
+ */
+public enum UpsertStatus {
+
+    /**
+     * The item did not exist and was created.
+     */
+    CREATED,
+
+    /**
+     * The item existed and was updated.
+     */
+    UPDATED,
+
+    /**
+     * The item did not exist and was not created.
+     */
+    NOT_FOUND,
+
+    /**
+     * The item could not be written.
+     */
+    FAILED
+}
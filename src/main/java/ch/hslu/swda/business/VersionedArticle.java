@@ -0,0 +1,12 @@
+package ch.hslu.swda.business;
+
+import ch.hslu.swda.entities.Article;
+
+/**
+ * An article together with the version it was read in.
+ *
+ * @param article Article.
+ * @param version Version of the article.
+ */
+public record VersionedArticle(Article article, long version) {
+}
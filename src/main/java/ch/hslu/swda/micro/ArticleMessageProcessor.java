@@ -5,28 +5,38 @@ import ch.hslu.swda.dto.ArticleOrderDTO;
 import ch.hslu.swda.dto.ArticleGetDTO;
 import ch.hslu.swda.dto.OrderDTO;
 import ch.hslu.swda.entities.Article;
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.DeserializationFeature;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 
 /**
  * Implements the article message processing.
+ * <p>
+ * The round trip from receiving an article request until the broker confirmed the response is recorded as
+ * {@code bus.roundtrip}.
  */
 public final class ArticleMessageProcessor implements Runnable {
 
     private static final Logger LOG = LoggerFactory.getLogger(ArticleMessageProcessor.class);
+    private static final String ROUND_TRIP = "bus.roundtrip";
 
     private final MessageListener messageListener;
     private final MessagePublisher<OrderDTO> messagePublisher;
 
     private final ProductCatalog productCatalog;
 
+    private final MeterRegistry registry;
+    private final Timer roundTrip;
+    private final Timer roundTripFailed;
+
     /**
      * Constructor.
      *
@@ -36,9 +46,26 @@ public final class ArticleMessageProcessor implements Runnable {
      */
     public ArticleMessageProcessor(final MessageListener listener, final MessagePublisher<OrderDTO> publisher,
                                    final ProductCatalog productCatalog) {
+        this(listener, publisher, productCatalog, Metrics.globalRegistry);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param listener       Message listener.
+     * @param publisher      Message publisher.
+     * @param productCatalog Product catalog warehouse.
+     * @param registry       Meter registry recording the round trips.
+     */
+    public ArticleMessageProcessor(final MessageListener listener, final MessagePublisher<OrderDTO> publisher,
+                                   final ProductCatalog productCatalog, final MeterRegistry registry) {
         this.messageListener = listener;
         this.messagePublisher = publisher;
         this.productCatalog = productCatalog;
+        this.registry = registry;
+        Tags tags = Tags.of("route", Routes.ARTICLE_GET, "reply", Routes.ARTICLE_RETURN);
+        this.roundTrip = registry.timer(ROUND_TRIP, tags.and("outcome", "success"));
+        this.roundTripFailed = registry.timer(ROUND_TRIP, tags.and("outcome", "error"));
     }
 
     /**
@@ -52,9 +79,10 @@ public final class ArticleMessageProcessor implements Runnable {
     /**
      * Queries the articles from the DB and returns the response message.
      *
-     * @param message Received article request message.
+     * @param message Received article request message body.
      */
-    private void process(final String message) throws IllegalArgumentException {
+    private void process(final byte[] message) throws IllegalArgumentException {
+        Timer.Sample sample = Timer.start(registry);
         ArticleGetDTO request = parseMessage(message);
         if (request != null) {
             List<ArticleOrderDTO> articles = new ArrayList<>();
@@ -69,7 +97,8 @@ public final class ArticleMessageProcessor implements Runnable {
                 }
             }
             OrderDTO orderDTO = new OrderDTO(request.branchId(), request.orderNumber(), articles, error);
-            messagePublisher.sendMessage(Routes.ARTICLE_RETURN, orderDTO);
+            messagePublisher.sendMessage(Routes.ARTICLE_RETURN, orderDTO)
+                    .whenComplete((result, e) -> sample.stop(e == null ? roundTrip : roundTripFailed));
         } else {
             LOG.error("Parsing message failed, not sending a response");
         }
@@ -78,16 +107,15 @@ public final class ArticleMessageProcessor implements Runnable {
     /**
      * Parses the article request message.
      *
-     * @param message Article request message.
+     * @param message Article request message body.
      * @return Article request.
      */
-    private ArticleGetDTO parseMessage(final String message) {
+    private ArticleGetDTO parseMessage(final byte[] message) {
         ArticleGetDTO dto = null;
-        ObjectMapper mapper = new ObjectMapper().configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
         try {
-            dto = mapper.readValue(message, ArticleGetDTO.class);
-            LOG.info("Parsed article request message: {}", dto);
-        } catch (JsonProcessingException e) {
+            dto = MessageCodec.read(message, ArticleGetDTO.class);
+            LOG.debug("Parsed article request message: {}", dto);
+        } catch (IOException e) {
             LOG.error("Failed to parse article request message: {}", e.getMessage());
         }
         return dto;
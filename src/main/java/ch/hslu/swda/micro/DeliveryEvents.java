@@ -0,0 +1,49 @@
+package ch.hslu.swda.micro;
+
+import jakarta.inject.Singleton;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Passes the delivery events from the message processors and controllers to the subscribed listeners.
+ */
+@Singleton
+public final class DeliveryEvents {
+
+    private static final Logger LOG = LoggerFactory.getLogger(DeliveryEvents.class);
+
+    private final List<DeliveryListener> listeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * Subscribes a listener to the delivery events.
+     *
+     * @param listener Delivery listener.
+     */
+    public void subscribe(final DeliveryListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Publishes that a delivery was created or changed.
+     *
+     * @param branchId    ID of the branch.
+     * @param orderNumber Order number.
+     */
+    public void deliveryChanged(final long branchId, final long orderNumber) {
+        LOG.debug("Delivery {} from branch {} changed", orderNumber, branchId);
+        listeners.forEach(listener -> listener.onDeliveryChanged(branchId, orderNumber));
+    }
+
+    /**
+     * Publishes that the stock of a branch changed.
+     *
+     * @param branchId ID of the branch.
+     */
+    public void stockChanged(final long branchId) {
+        LOG.debug("Stock of branch {} changed", branchId);
+        listeners.forEach(listener -> listener.onStockChanged(branchId));
+    }
+}
@@ -0,0 +1,22 @@
+package ch.hslu.swda.micro;
+
+/**
+ * Listener for the events that may advance the state of deliveries.
+ */
+public interface DeliveryListener {
+
+    /**
+     * Handles a delivery that was created or changed.
+     *
+     * @param branchId    ID of the branch.
+     * @param orderNumber Order number.
+     */
+    void onDeliveryChanged(long branchId, long orderNumber);
+
+    /**
+     * Handles a change of the stock of a branch.
+     *
+     * @param branchId ID of the branch.
+     */
+    void onStockChanged(long branchId);
+}
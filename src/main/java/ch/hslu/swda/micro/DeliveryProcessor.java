@@ -1,5 +1,6 @@
 package ch.hslu.swda.micro;
 
+import ch.hslu.swda.business.ArticleChange;
 import ch.hslu.swda.business.Deliveries;
 import ch.hslu.swda.business.ProductCatalog;
 import ch.hslu.swda.dto.LogEventDTO;
@@ -9,29 +10,48 @@ import ch.hslu.swda.entities.DeliveryArticle;
 import ch.hslu.swda.entities.DeliveryArticleStatus;
 import ch.hslu.swda.entities.DeliveryStatus;
 import ch.hslu.swda.entities.WarehouseEntity;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 /**
  * Implements order delivery processing.
+ * <p>
+ * Deliveries are advanced as soon as a delivery or the stock of a branch changed. A delivery is always processed on
+ * the lane of its order, also by the scheduled run, so it is never written by two threads at the same time. The
+ * scheduled run processes all deliveries and only catches up on the changes that were missed.
+ * <p>
+ * A delivery is only written while it still has the status it was read with. The reservations of a new or modified
+ * delivery are changed after the delivery was written, so neither a failure nor a concurrent change of the delivery
+ * reserves its articles twice.
  */
-public final class DeliveryProcessor implements Runnable {
+public final class DeliveryProcessor implements Runnable, DeliveryListener {
 
     private static final Logger LOG = LoggerFactory.getLogger(DeliveryProcessor.class);
+    private static final int MAX_PENDING = 500;
 
     private final MessagePublisher<LogEventDTO> eventLogger;
 
     private final ProductCatalog catalog;
     private final Deliveries deliveries;
 
+    private final Executor executor;
+    private final Function<OrderKey, Executor> lanes;
+    private final ProcessorMetrics metrics;
+
     /**
-     * Constructor.
+     * Constructor processing the events on the calling thread.
      *
      * @param messagePublisher Log message publisher.
      * @param deliveries       Product catalog warehouse.
@@ -39,9 +59,45 @@ public final class DeliveryProcessor implements Runnable {
      */
     public DeliveryProcessor(final MessagePublisher<LogEventDTO> messagePublisher,
                              final ProductCatalog catalog, final Deliveries deliveries) {
+        this(messagePublisher, catalog, deliveries, Runnable::run, key -> Runnable::run, Metrics.globalRegistry);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param messagePublisher Log message publisher.
+     * @param catalog          Product catalog warehouse.
+     * @param deliveries       Deliveries warehouse.
+     * @param executor         Executor processing the stock events, should be the one running the scheduled
+     *                         processing and must not be one of the lanes.
+     * @param lanes            Lanes processing the orders, every delivery is processed on the lane of its order.
+     * @param registry         Meter registry recording the scheduled processing.
+     */
+    public DeliveryProcessor(final MessagePublisher<LogEventDTO> messagePublisher, final ProductCatalog catalog,
+                             final Deliveries deliveries, final Executor executor, final PartitionedExecutor lanes,
+                             final MeterRegistry registry) {
+        this(messagePublisher, catalog, deliveries, executor, lanes::executor, registry);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param messagePublisher Log message publisher.
+     * @param catalog          Product catalog warehouse.
+     * @param deliveries       Deliveries warehouse.
+     * @param executor         Executor processing the stock events.
+     * @param lanes            Returns the executor processing the deliveries of an order.
+     * @param registry         Meter registry recording the scheduled processing.
+     */
+    private DeliveryProcessor(final MessagePublisher<LogEventDTO> messagePublisher, final ProductCatalog catalog,
+                              final Deliveries deliveries, final Executor executor,
+                              final Function<OrderKey, Executor> lanes, final MeterRegistry registry) {
         this.eventLogger = messagePublisher;
         this.catalog = catalog;
         this.deliveries = deliveries;
+        this.executor = executor;
+        this.lanes = lanes;
+        this.metrics = new ProcessorMetrics(registry, "delivery");
     }
 
     /**
@@ -50,131 +106,267 @@ public final class DeliveryProcessor implements Runnable {
     @Override
     public void run() {
         LOG.info("Starting scheduled delivery processing");
-        processDelivered();
-        processNewAndModified();
-        processWaitingAndReady();
+        metrics.tick(() -> {
+            processDelivered();
+            processNewAndModified();
+            processWaitingAndReady();
+        });
         LOG.info("Finished scheduled delivery processing");
     }
 
+    @Override
+    public void onDeliveryChanged(final long branchId, final long orderNumber) {
+        submit(branchId, orderNumber, () -> {
+            if (process(branchId, orderNumber) == DeliveryStatus.DELIVERED) {
+                onStockChanged(branchId);
+            }
+        });
+    }
+
+    @Override
+    public void onStockChanged(final long branchId) {
+        executor.execute(() -> {
+            try {
+                processWaitingAndReady(branchId);
+            } catch (RuntimeException e) {
+                LOG.error("Failed to process deliveries from branch {}: {}", branchId, e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Submits the processing of a delivery to the lane of its order.
+     *
+     * @param branchId    ID of the branch.
+     * @param orderNumber Order number.
+     * @param task        Processing of the delivery.
+     * @return Future completed when the delivery was processed, also if the processing failed.
+     */
+    private CompletableFuture<Void> submit(final long branchId, final long orderNumber, final Runnable task) {
+        return CompletableFuture.runAsync(() -> {
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                LOG.error("Failed to process delivery {} from branch {}: {}", orderNumber, branchId, e.getMessage());
+            }
+        }, lanes.apply(new OrderKey(branchId, orderNumber)));
+    }
+
+    /**
+     * Processes the streamed deliveries, each on the lane of its order.
+     * <p>
+     * Every delivery is read again on its lane before it is processed. At most {@link #MAX_PENDING} deliveries are
+     * submitted at once, so the scheduled run does not queue all deliveries ahead of the order messages.
+     *
+     * @param pending   Deliveries to process.
+     * @param processed Counter of the processed deliveries.
+     */
+    private void processOnLanes(final Stream<WarehouseEntity<Delivery>> pending, final Counter processed) {
+        List<CompletableFuture<Void>> submitted = new ArrayList<>();
+        pending.forEach(entity -> {
+            long branchId = entity.branchId();
+            long orderNumber = ((Delivery) entity.entity()).orderNumber();
+            submitted.add(submit(branchId, orderNumber, () -> process(branchId, orderNumber)));
+            processed.increment();
+            if (submitted.size() >= MAX_PENDING) {
+                CompletableFuture.allOf(submitted.toArray(CompletableFuture[]::new)).join();
+                submitted.clear();
+            }
+        });
+        CompletableFuture.allOf(submitted.toArray(CompletableFuture[]::new)).join();
+    }
+
+    /**
+     * Advances a single delivery as far as possible, must run on the lane of its order.
+     *
+     * @param branchId    ID of the branch.
+     * @param orderNumber Order number.
+     * @return Status of the delivery before it was processed, null if it does not exist.
+     */
+    DeliveryStatus process(final long branchId, final long orderNumber) {
+        Delivery delivery = deliveries.getById(branchId, orderNumber);
+        if (delivery == null) {
+            return null;
+        }
+        WarehouseEntity<Delivery> entity = new WarehouseEntity<>(branchId, delivery);
+        switch (delivery.status()) {
+            case DELIVERED -> processDelivered(entity);
+            case NEW, MODIFIED -> {
+                Delivery updated = processNewOrModified(entity);
+                if (updated != null && updated.status() == DeliveryStatus.WAITING) {
+                    processWaitingOrReady(new WarehouseEntity<>(branchId, updated));
+                }
+            }
+            case WAITING, READY -> processWaitingOrReady(entity);
+            default -> LOG.debug("Delivery {} from branch {} is {}", orderNumber, branchId, delivery.status());
+        }
+        return delivery.status();
+    }
+
     /**
      * Processes delivered deliveries.
      */
     private void processDelivered() {
         LOG.info("Start processing delivered deliveries");
-        for (WarehouseEntity<Delivery> entity : deliveries.getAllByStatus(DeliveryStatus.DELIVERED)) {
-            Delivery delivery = (Delivery) entity.entity();
-            LOG.info("Processing delivered delivery {} from branch {}", delivery.orderNumber(), entity.branchId());
-
-            List<DeliveryArticle> articles = processArticlesDelivered(entity.branchId(), delivery.articles());
-            boolean completed = articles.stream().allMatch(a -> a.status() == DeliveryArticleStatus.DELIVERED);
-            DeliveryStatus updatedStatus = completed ? DeliveryStatus.COMPLETED : DeliveryStatus.DELIVERED;
-            Delivery updated = new Delivery(delivery.orderNumber(), updatedStatus, articles);
-            deliveries.update(entity.branchId(), delivery.orderNumber(), updated);
-
-            if (completed) {
-                String message = "All articles for order " + delivery.orderNumber() + " are delivered";
-                LogEventDTO event = new LogEventDTO(entity.branchId(), "delivery.delivered", message);
-                eventLogger.sendMessage(Routes.LOG_EVENT, event);
-                LOG.info("Completed delivery {} from branch {}", delivery.orderNumber(), entity.branchId());
-            } else {
-                LOG.warn("Delivery {} from branch {} cannot be delivered", delivery.orderNumber(), entity.branchId());
-            }
+        Counter processed = metrics.entities("delivered");
+        try (Stream<WarehouseEntity<Delivery>> delivered = deliveries.streamByStatus(DeliveryStatus.DELIVERED)) {
+            processOnLanes(delivered, processed);
         }
         LOG.info("Finished processing delivered deliveries");
     }
 
+    /**
+     * Processes a delivered delivery.
+     * <p>
+     * The stock is lowered first, since its result decides the new status, and the delivery is updated right after.
+     * An interrupted processing can therefore only repeat the stock changes of a single delivery.
+     *
+     * @param entity Delivered delivery.
+     */
+    private void processDelivered(final WarehouseEntity<Delivery> entity) {
+        Delivery delivery = (Delivery) entity.entity();
+        LOG.debug("Processing delivered delivery {} from branch {}", delivery.orderNumber(), entity.branchId());
+
+        List<DeliveryArticle> articles = catalog.commitDelivery(entity.branchId(), delivery.articles());
+        articles.stream().filter(a -> a.status() == DeliveryArticleStatus.RESERVED).forEach(a -> LOG.warn(
+                "Not enough items of article {} from branch {} in stock", a.articleId(), entity.branchId()));
+        boolean completed = articles.stream().allMatch(a -> a.status() == DeliveryArticleStatus.DELIVERED);
+        DeliveryStatus updatedStatus = completed ? DeliveryStatus.COMPLETED : DeliveryStatus.DELIVERED;
+        Delivery updated = new Delivery(delivery.orderNumber(), updatedStatus, articles);
+        if (deliveries.updateAll(List.of(new WarehouseEntity<>(entity.branchId(), updated)),
+                DeliveryStatus.DELIVERED, false) == 0) {
+            LOG.warn("Delivery {} from branch {} changed while it was delivered",
+                    delivery.orderNumber(), entity.branchId());
+            return;
+        }
+
+        if (completed) {
+            String message = "All articles for order " + delivery.orderNumber() + " are delivered";
+            LogEventDTO event = new LogEventDTO(entity.branchId(), "delivery.delivered", message);
+            eventLogger.sendMessage(Routes.LOG_EVENT, event);
+            LOG.debug("Completed delivery {} from branch {}", delivery.orderNumber(), entity.branchId());
+        } else {
+            LOG.warn("Delivery {} from branch {} cannot be delivered", delivery.orderNumber(), entity.branchId());
+        }
+    }
+
     /**
      * Processes new and modified deliveries.
      */
     private void processNewAndModified() {
         LOG.info("Start processing new or modified deliveries");
-        Stream.concat(
-                deliveries.getAllByStatus(DeliveryStatus.NEW).stream(),
-                deliveries.getAllByStatus(DeliveryStatus.MODIFIED).stream()
-        ).forEach(entity -> {
-            Delivery delivery = (Delivery) entity.entity();
-            LOG.info("Processing delivery {} from branch {}", delivery.orderNumber(), entity.branchId());
-
-            List<DeliveryArticle> articles = processArticles(entity.branchId(), delivery.articles());
-            if (!articles.isEmpty()) {
-                boolean processed = articles.stream().allMatch(a -> a.status() == DeliveryArticleStatus.RESERVED);
-                DeliveryStatus updatedStatus = processed ? DeliveryStatus.WAITING : DeliveryStatus.MODIFIED;
-                Delivery updated = new Delivery(delivery.orderNumber(), updatedStatus, articles);
-                deliveries.update(entity.branchId(), delivery.orderNumber(), updated);
-            } else {
-                deliveries.delete(entity.branchId(), delivery.orderNumber());
-                LOG.info("Deleted delivery {} from branch {}", delivery.orderNumber(), entity.branchId());
-            }
-        });
+        Counter processed = metrics.entities("new_and_modified");
+        try (Stream<WarehouseEntity<Delivery>> changed = Stream.concat(
+                deliveries.streamByStatus(DeliveryStatus.NEW),
+                deliveries.streamByStatus(DeliveryStatus.MODIFIED))) {
+            processOnLanes(changed, processed);
+        }
         LOG.info("Finished processing new or modified deliveries");
     }
 
+    /**
+     * Processes a new or modified delivery.
+     * <p>
+     * The reservations are changed after the delivery was written, and only if it was not changed in the meantime.
+     *
+     * @param entity New or modified delivery.
+     * @return Updated delivery, null if the delivery is deleted or was changed in the meantime.
+     */
+    private Delivery processNewOrModified(final WarehouseEntity<Delivery> entity) {
+        Delivery delivery = (Delivery) entity.entity();
+        LOG.debug("Processing delivery {} from branch {}", delivery.orderNumber(), entity.branchId());
+
+        List<ArticleChange> reservations = new ArrayList<>();
+        List<DeliveryArticle> articles = processArticles(entity.branchId(), delivery.articles(), reservations);
+        Delivery updated = null;
+        int written;
+        if (!articles.isEmpty()) {
+            boolean processed = articles.stream().allMatch(a -> a.status() == DeliveryArticleStatus.RESERVED);
+            DeliveryStatus updatedStatus = processed ? DeliveryStatus.WAITING : DeliveryStatus.MODIFIED;
+            updated = new Delivery(delivery.orderNumber(), updatedStatus, articles);
+            written = deliveries.updateAll(List.of(new WarehouseEntity<>(entity.branchId(), updated)),
+                    delivery.status(), false);
+        } else {
+            LOG.debug("Deleting delivery {} from branch {}", delivery.orderNumber(), entity.branchId());
+            written = deliveries.deleteAll(List.of(entity), delivery.status(), false);
+        }
+        if (written == 0) {
+            LOG.warn("Delivery {} from branch {} changed while it was processed",
+                    delivery.orderNumber(), entity.branchId());
+            return null;
+        }
+        if (!reservations.isEmpty()) {
+            catalog.changeAll(reservations, false);
+        }
+        return updated;
+    }
+
     /**
      * Processes waiting and ready deliveries.
      */
     private void processWaitingAndReady() {
         LOG.info("Start processing waiting or ready deliveries");
-        Stream.concat(
-                deliveries.getAllByStatus(DeliveryStatus.WAITING).stream(),
-                deliveries.getAllByStatus(DeliveryStatus.READY).stream()
-        ).forEach(entity -> {
-            Delivery delivery = (Delivery) entity.entity();
-            LOG.info("Processing delivery {} from branch {}", delivery.orderNumber(), entity.branchId());
-
-            if (delivery.articles().stream().allMatch(a -> a.status() == DeliveryArticleStatus.RESERVED)) {
-                Map<Long, Article> articles = catalog.getById(entity.branchId(), delivery.articles().stream()
-                        .map(DeliveryArticle::articleId).toList());
-                if (delivery.articles().stream().allMatch(a -> articles.get(a.articleId()).stock() >= a.quantity())) {
-                    if (delivery.status() != DeliveryStatus.READY) {
-                        deliveries.updateStatus(entity.branchId(), delivery.orderNumber(), DeliveryStatus.READY);
-                    }
-                } else {
-                    if (delivery.status() != DeliveryStatus.WAITING) {
-                        deliveries.updateStatus(entity.branchId(), delivery.orderNumber(), DeliveryStatus.WAITING);
-                    }
-                }
-            } else {
-                deliveries.updateStatus(entity.branchId(), delivery.orderNumber(), DeliveryStatus.MODIFIED);
-                LOG.warn("Not all all articles are reserved for delivery {} from branch {}",
-                        delivery.orderNumber(), entity.branchId());
-            }
-        });
+        Counter processed = metrics.entities("waiting_and_ready");
+        try (Stream<WarehouseEntity<Delivery>> pending = Stream.concat(
+                deliveries.streamByStatus(DeliveryStatus.WAITING),
+                deliveries.streamByStatus(DeliveryStatus.READY))) {
+            processOnLanes(pending, processed);
+        }
         LOG.info("Finished processing waiting or ready deliveries");
     }
 
     /**
-     * Processes the delivered articles.
+     * Processes the waiting and ready deliveries of a branch, each on the lane of its order.
      *
      * @param branchId ID of the branch.
-     * @param articles Delivery articles to process.
-     * @return Processed delivery articles.
      */
-    private List<DeliveryArticle> processArticlesDelivered(final long branchId, final List<DeliveryArticle> articles) {
-        List<DeliveryArticle> deliveredArticles = new ArrayList<>();
-        for (DeliveryArticle a : articles) {
-            DeliveryArticle updated = a;
-            if (a.status() == DeliveryArticleStatus.RESERVED) {
-                boolean inStock = catalog.changeStock(branchId, a.articleId(), -a.quantity());
-                if (inStock) {
-                    catalog.changeReserved(branchId, a.articleId(), -a.quantity());
-                    updated = new DeliveryArticle(a.articleId(), a.quantity(), DeliveryArticleStatus.DELIVERED);
-                } else {
-                    LOG.warn("Not enough items of article {} from branch {} in stock", a.articleId(), branchId);
+    private void processWaitingAndReady(final long branchId) {
+        try (Stream<Delivery> pending = Stream.concat(
+                deliveries.streamByBranch(branchId, DeliveryStatus.WAITING),
+                deliveries.streamByBranch(branchId, DeliveryStatus.READY))) {
+            Stream<WarehouseEntity<Delivery>> entities = pending.map(d -> new WarehouseEntity<>(branchId, d));
+            processOnLanes(entities, metrics.entities("stock"));
+        }
+    }
+
+    /**
+     * Processes a waiting or ready delivery.
+     *
+     * @param entity Waiting or ready delivery.
+     */
+    private void processWaitingOrReady(final WarehouseEntity<Delivery> entity) {
+        Delivery delivery = (Delivery) entity.entity();
+        LOG.debug("Processing delivery {} from branch {}", delivery.orderNumber(), entity.branchId());
+
+        if (delivery.articles().stream().allMatch(a -> a.status() == DeliveryArticleStatus.RESERVED)) {
+            Map<Long, Article> articles = catalog.getById(entity.branchId(), delivery.articles().stream()
+                    .map(DeliveryArticle::articleId).toList());
+            if (delivery.articles().stream().allMatch(a -> articles.get(a.articleId()).stock() >= a.quantity())) {
+                if (delivery.status() != DeliveryStatus.READY) {
+                    updateStatus(entity, DeliveryStatus.READY);
+                }
+            } else {
+                if (delivery.status() != DeliveryStatus.WAITING) {
+                    updateStatus(entity, DeliveryStatus.WAITING);
                 }
             }
-            deliveredArticles.add(updated);
+        } else {
+            updateStatus(entity, DeliveryStatus.MODIFIED);
+            LOG.warn("Not all all articles are reserved for delivery {} from branch {}",
+                    delivery.orderNumber(), entity.branchId());
         }
-        return deliveredArticles;
     }
 
     /**
      * Processes the articles.
      *
-     * @param branchId ID of the branch.
-     * @param articles Delivery articles to process.
+     * @param branchId     ID of the branch.
+     * @param articles     Delivery articles to process.
+     * @param reservations Collected changes of the reserved stock.
      * @return Processed delivery articles.
      */
-    private List<DeliveryArticle> processArticles(final long branchId, final List<DeliveryArticle> articles) {
+    private List<DeliveryArticle> processArticles(final long branchId, final List<DeliveryArticle> articles,
+                                                  final List<ArticleChange> reservations) {
         Map<Long, DeliveryArticle> updatedArticles = articles.stream()
                 .filter(a -> a.status() == DeliveryArticleStatus.RESERVED)
                 .collect(Collectors.toMap(DeliveryArticle::articleId, a -> a));
@@ -195,8 +387,38 @@ public final class DeliveryProcessor implements Runnable {
                 updatedArticles.put(a.articleId(),
                         new DeliveryArticle(a.articleId(), a.quantity(), DeliveryArticleStatus.RESERVED));
             }
-            catalog.changeReserved(branchId, a.articleId(), difference);
+            if (difference != 0) {
+                reservations.add(ArticleChange.reserved(branchId, a.articleId(), difference));
+            }
         });
         return updatedArticles.values().stream().toList();
     }
+
+    /**
+     * Updates the status of a delivery if it still has the status it was read with.
+     *
+     * @param entity Delivery as read.
+     * @param status New delivery status.
+     */
+    private void updateStatus(final WarehouseEntity<Delivery> entity, final DeliveryStatus status) {
+        Delivery delivery = (Delivery) entity.entity();
+        if (deliveries.updateStatusAll(List.of(withStatus(entity, status)), delivery.status(), false) == 0) {
+            LOG.warn("Delivery {} from branch {} changed while it was processed",
+                    delivery.orderNumber(), entity.branchId());
+        }
+    }
+
+    /**
+     * Returns the delivery with a new status.
+     *
+     * @param entity Delivery.
+     * @param status New delivery status.
+     * @return Delivery with the new status.
+     */
+    private static WarehouseEntity<Delivery> withStatus(final WarehouseEntity<Delivery> entity,
+                                                        final DeliveryStatus status) {
+        Delivery delivery = (Delivery) entity.entity();
+        Delivery updated = new Delivery(delivery.orderNumber(), status, delivery.articles());
+        return new WarehouseEntity<>(entity.branchId(), updated);
+    }
 }
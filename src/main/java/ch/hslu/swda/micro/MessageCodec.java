@@ -0,0 +1,111 @@
+package ch.hslu.swda.micro;
+
+import ch.hslu.swda.dto.ArticleDeliveredDTO;
+import ch.hslu.swda.dto.ArticleGetDTO;
+import ch.hslu.swda.dto.LogEventDTO;
+import ch.hslu.swda.dto.OrderDTO;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Shared JSON codec for the bus messages.
+ * <p>
+ * Readers and writers are immutable and thread-safe, they are created once per message type and reused.
+ */
+public final class MessageCodec {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    private static final Map<Class<?>, ObjectReader> READERS = new ConcurrentHashMap<>();
+    private static final Map<Class<?>, ObjectWriter> WRITERS = new ConcurrentHashMap<>();
+
+    static {
+        List.of(ArticleDeliveredDTO.class, ArticleGetDTO.class, LogEventDTO.class, OrderDTO.class).forEach(type -> {
+            READERS.put(type, MAPPER.readerFor(type));
+            WRITERS.put(type, MAPPER.writerFor(type));
+        });
+    }
+
+    /**
+     * No instance allowed.
+     */
+    private MessageCodec() {
+    }
+
+    /**
+     * Reads a message from the raw message body.
+     *
+     * @param body Message body with UTF-8 encoded JSON.
+     * @param type Message type.
+     * @param <T>  Message type.
+     * @return Message.
+     * @throws IOException Exception if the message cannot be parsed.
+     */
+    public static <T> T read(final byte[] body, final Class<T> type) throws IOException {
+        return reader(type).readValue(body);
+    }
+
+    /**
+     * Reads a message from a JSON string.
+     *
+     * @param message Message as JSON.
+     * @param type    Message type.
+     * @param <T>     Message type.
+     * @return Message.
+     * @throws JsonProcessingException Exception if the message cannot be parsed.
+     */
+    public static <T> T read(final String message, final Class<T> type) throws JsonProcessingException {
+        return reader(type).readValue(message);
+    }
+
+    /**
+     * Writes a message as UTF-8 encoded JSON.
+     *
+     * @param message Message.
+     * @return Message body.
+     * @throws JsonProcessingException Exception if the message cannot be serialized.
+     */
+    public static byte[] write(final Object message) throws JsonProcessingException {
+        return writer(message.getClass()).writeValueAsBytes(message);
+    }
+
+    /**
+     * Writes a message as JSON string.
+     *
+     * @param message Message.
+     * @return Message as JSON.
+     * @throws JsonProcessingException Exception if the message cannot be serialized.
+     */
+    public static String writeAsString(final Object message) throws JsonProcessingException {
+        return writer(message.getClass()).writeValueAsString(message);
+    }
+
+    /**
+     * Returns the cached reader for the message type.
+     *
+     * @param type Message type.
+     * @return Object reader.
+     */
+    private static ObjectReader reader(final Class<?> type) {
+        return READERS.computeIfAbsent(type, MAPPER::readerFor);
+    }
+
+    /**
+     * Returns the cached writer for the message type.
+     *
+     * @param type Message type.
+     * @return Object writer.
+     */
+    private static ObjectWriter writer(final Class<?> type) {
+        return WRITERS.computeIfAbsent(type, MAPPER::writerFor);
+    }
+}
@@ -1,6 +1,8 @@
 package ch.hslu.swda.micro;
 
+import java.util.concurrent.CompletableFuture;
 import java.util.function.Consumer;
+import java.util.function.Function;
 
 /**
  * Message listener.
@@ -8,11 +10,24 @@ import java.util.function.Consumer;
 public interface MessageListener {
 
     /**
-     * Receives messages from the message queue.
+     * Receives messages from the message queue, a message is processed when the callback returned.
      *
      * @param route    Message queue.
-     * @param callback Message processing callback.
+     * @param callback Message processing callback receiving the raw message body.
      */
-    void receiveMessages(String route, Consumer<String> callback);
+    default void receiveMessages(final String route, final Consumer<byte[]> callback) {
+        receiveMessagesAsync(route, body -> {
+            callback.accept(body);
+            return CompletableFuture.completedFuture(null);
+        });
+    }
+
+    /**
+     * Receives messages from the message queue, a message is processed when the returned future completed.
+     *
+     * @param route    Message queue.
+     * @param callback Message processing callback receiving the raw message body.
+     */
+    void receiveMessagesAsync(String route, Function<byte[], CompletableFuture<Void>> callback);
 
 }
@@ -2,15 +2,23 @@ package ch.hslu.swda.micro;
 
 import ch.hslu.swda.bus.BusConnector;
 import ch.hslu.swda.bus.RabbitMqConfig;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.inject.Inject;
 import jakarta.inject.Singleton;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
-import java.util.function.Consumer;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
 
 /**
  * Receives messages from Rabbit MQ.
+ * <p>
+ * The processing time and the pending messages of every route are recorded, the gauges of the messages waiting in the
+ * queue of a route and in its dead letter queue return the counts last read from the broker by the bus connector.
+ * Single messages are logged at DEBUG, at INFO only a summary per route and interval.
  */
 @Singleton
 public final class MessageListenerRMQ implements MessageListener {
@@ -19,27 +27,61 @@ public final class MessageListenerRMQ implements MessageListener {
 
     private final RabbitMqConfig config;
     private final BusConnector bus;
+    private final MeterRegistry registry;
+    private final RouteMetrics metrics;
+    private final RouteLog routeLog;
 
     /**
      * Constructor.
+     *
+     * @param registry Meter registry.
      */
-    public MessageListenerRMQ() {
+    @Inject
+    public MessageListenerRMQ(final MeterRegistry registry) {
         this.config = new RabbitMqConfig();
         this.bus = new BusConnector(config);
         this.bus.connectWithRetry();
+        this.registry = registry;
+        this.metrics = new RouteMetrics(registry, "received");
+        this.routeLog = new RouteLog(LOG, "Received", System.getenv());
     }
 
     @Override
-    public void receiveMessages(final String route, final Consumer<String> callback) {
+    public void receiveMessagesAsync(final String route, final Function<byte[], CompletableFuture<Void>> callback) {
         try {
             LOG.info("Start listening for messages with routing '{}'", route);
-            bus.listenFor(config.getExchange(), "WarehouseService <- " + route, route,
-                    (String routeReceived, String replyTo, String corrId, String message) -> {
-                        LOG.info("Received message with routing '{}': {}", routeReceived, message);
-                        callback.accept(message);
+            String queueName = "WarehouseService <- " + route;
+            bus.listenFor(config.getExchange(), queueName, route,
+                    (String routeReceived, String replyTo, String corrId, byte[] body) -> {
+                        routeLog.message(route, body.length);
+                        if (LOG.isDebugEnabled()) {
+                            LOG.debug("Received message with routing '{}' ({} bytes): {}", routeReceived, body.length,
+                                    RouteLog.payload(body));
+                        }
+                        return metrics.record(route, () -> callback.apply(body)).whenComplete((result, e) -> {
+                            if (e != null) {
+                                routeLog.failed(route);
+                            }
+                        });
                     });
+            Gauge.builder("bus.queue.messages", bus, b -> queued(b.messageCount(queueName)))
+                    .tag("route", route)
+                    .register(registry);
+            Gauge.builder("bus.queue.dead", bus, b -> queued(b.messageCount(BusConnector.deadLetterQueue(queueName))))
+                    .tag("route", route)
+                    .register(registry);
         } catch (IOException e) {
             LOG.error("Failed to receive message with routing '{}': {}", route, e.getMessage());
         }
     }
+
+    /**
+     * Returns the number of queued messages for the gauge.
+     *
+     * @param count Number of messages, negative if unknown.
+     * @return Number of messages, NaN if unknown.
+     */
+    private static double queued(final long count) {
+        return count >= 0 ? count : Double.NaN;
+    }
 }
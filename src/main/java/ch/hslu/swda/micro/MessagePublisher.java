@@ -1,5 +1,7 @@
 package ch.hslu.swda.micro;
 
+import java.util.concurrent.CompletableFuture;
+
 /**
  * Message publisher.
  *
@@ -12,7 +14,8 @@ public interface MessagePublisher<T> {
      *
      * @param route         Message queue.
      * @param messageObject Message object.
+     * @return Future completed when the message was confirmed by the message queue.
      */
-    void sendMessage(String route, T messageObject);
+    CompletableFuture<Void> sendMessage(String route, T messageObject);
 
 }
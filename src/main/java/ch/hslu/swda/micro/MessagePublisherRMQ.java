@@ -3,15 +3,20 @@ package ch.hslu.swda.micro;
 import ch.hslu.swda.bus.BusConnector;
 import ch.hslu.swda.bus.RabbitMqConfig;
 import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.inject.Inject;
 import jakarta.inject.Singleton;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Publishes messages to Rabbit MQ.
+ * <p>
+ * The time until a message is confirmed by the broker and the unconfirmed messages of every route are recorded.
+ * Single messages are logged at DEBUG, at INFO only a summary per route and interval.
  *
  * @param <T> The message DTO.
  */
@@ -22,26 +27,55 @@ public final class MessagePublisherRMQ<T> implements MessagePublisher<T> {
 
     private final RabbitMqConfig config;
     private final BusConnector bus;
+    private final RouteMetrics metrics;
+    private final RouteLog routeLog;
 
     /**
      * Constructor.
+     *
+     * @param registry Meter registry.
      */
-    public MessagePublisherRMQ() {
+    @Inject
+    public MessagePublisherRMQ(final MeterRegistry registry) {
         this.config = new RabbitMqConfig();
         this.bus = new BusConnector(config);
         this.bus.connectWithRetry();
+        this.metrics = new RouteMetrics(registry, "sent");
+        this.routeLog = new RouteLog(LOG, "Sent", System.getenv());
     }
 
     @Override
-    public void sendMessage(final String route, final T messageObject) {
+    public CompletableFuture<Void> sendMessage(final String route, final T messageObject) {
+        return metrics.record(route, () -> send(route, messageObject));
+    }
+
+    /**
+     * Sends a message object to the message queue.
+     *
+     * @param route         Message queue.
+     * @param messageObject Message object.
+     * @return Future completed when the message was confirmed by the message queue.
+     */
+    private CompletableFuture<Void> send(final String route, final T messageObject) {
         try {
-            String message = new ObjectMapper().writeValueAsString(messageObject);
-            LOG.info("Sending message with routing '{}': {}", route, message);
-            this.bus.talkAsync(config.getExchange(), route, message);
+            byte[] body = MessageCodec.write(messageObject);
+            routeLog.message(route, body.length);
+            if (LOG.isDebugEnabled()) {
+                LOG.debug("Sending message with routing '{}' ({} bytes): {}", route, body.length,
+                        RouteLog.payload(body));
+            }
+            return this.bus.talkAsync(config.getExchange(), route, body).whenComplete((result, e) -> {
+                if (e != null) {
+                    routeLog.failed(route);
+                    LOG.error("Message with routing '{}' not confirmed: {}", route, e.getMessage());
+                }
+            });
         } catch (JsonProcessingException e) {
             LOG.error("Failed to serialize message: {}", e.getMessage());
+            return CompletableFuture.failedFuture(e);
         } catch (IOException e) {
             LOG.error("Failed to send message: {}", e.getMessage());
+            return CompletableFuture.failedFuture(e);
         }
     }
 }
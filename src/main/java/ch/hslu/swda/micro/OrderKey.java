@@ -0,0 +1,10 @@
+package ch.hslu.swda.micro;
+
+/**
+ * Key of an order, the order messages and the delivery events of the same order are processed on the same lane.
+ *
+ * @param branchId    ID of the branch.
+ * @param orderNumber Order number.
+ */
+record OrderKey(long branchId, long orderNumber) {
+}
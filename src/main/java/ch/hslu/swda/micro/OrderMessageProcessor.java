@@ -6,14 +6,13 @@ import ch.hslu.swda.entities.Delivery;
 import ch.hslu.swda.entities.DeliveryArticle;
 import ch.hslu.swda.entities.DeliveryArticleStatus;
 import ch.hslu.swda.entities.DeliveryStatus;
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.DeserializationFeature;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Implements the order message processing.
@@ -25,16 +24,23 @@ public final class OrderMessageProcessor implements Runnable {
     private final MessageListener messageListener;
 
     private final Deliveries deliveries;
+    private final DeliveryEvents events;
+    private final PartitionedExecutor lanes;
 
     /**
      * Constructor.
      *
      * @param listener   Message listener.
      * @param deliveries Deliveries warehouse.
+     * @param events     Delivery events, notified about the registered deliveries.
+     * @param lanes      Executor processing the orders in parallel, closed by its owner.
      */
-    public OrderMessageProcessor(final MessageListener listener, final Deliveries deliveries) {
+    public OrderMessageProcessor(final MessageListener listener, final Deliveries deliveries,
+                                 final DeliveryEvents events, final PartitionedExecutor lanes) {
         this.messageListener = listener;
         this.deliveries = deliveries;
+        this.events = events;
+        this.lanes = lanes;
     }
 
     /**
@@ -42,35 +48,46 @@ public final class OrderMessageProcessor implements Runnable {
      */
     @Override
     public void run() {
-        messageListener.receiveMessages(Routes.ORDER, this::process);
+        messageListener.receiveMessagesAsync(Routes.ORDER, this::process);
     }
 
     /**
-     * Registers the delivery for the order message.
+     * Registers the delivery for the order message on the lane of the order.
      *
-     * @param message Order message.
+     * @param message Order message body.
+     * @return Future completed when the order was processed.
      */
-    public void process(final String message) {
+    public CompletableFuture<Void> process(final byte[] message) {
         OrderDTO order = parseMessage(message);
-        if (order != null) {
-            List<DeliveryArticle> deliveryArticles = order.articles().stream()
-                    .map(a -> new DeliveryArticle(a.articleId(), a.quantity(),
-                            a.action() != null ? a.action() : DeliveryArticleStatus.ADD))
-                    .toList();
+        if (order == null) {
+            LOG.error("Not registering new delivery, parsing order failed");
+            return CompletableFuture.completedFuture(null);
+        }
+        return lanes.submit(new OrderKey(order.branchId(), order.orderNumber()), () -> register(order));
+    }
 
-            Delivery exists = deliveries.getById(order.branchId(), order.orderNumber());
-            if (deliveryArticles.isEmpty() && exists == null) {
-                LOG.info("Not registering empty delivery {} for branch {}", order.orderNumber(), order.branchId());
-            } else if (exists == null) {
-                LOG.info("Registering new delivery {} for branch {}", order.orderNumber(), order.branchId());
-                Delivery delivery = new Delivery(order.orderNumber(), DeliveryStatus.NEW, deliveryArticles);
-                deliveries.create(order.branchId(), delivery);
-            } else {
-                LOG.info("Updating delivery {} for branch {}", order.orderNumber(), order.branchId());
-                updateDelivery(order.branchId(), exists, deliveryArticles);
-            }
+    /**
+     * Registers or updates the delivery of the order.
+     *
+     * @param order Order.
+     */
+    private void register(final OrderDTO order) {
+        List<DeliveryArticle> deliveryArticles = order.articles().stream()
+                .map(a -> new DeliveryArticle(a.articleId(), a.quantity(),
+                        a.action() != null ? a.action() : DeliveryArticleStatus.ADD))
+                .toList();
+
+        Delivery exists = deliveries.getById(order.branchId(), order.orderNumber());
+        if (deliveryArticles.isEmpty() && exists == null) {
+            LOG.debug("Not registering empty delivery {} for branch {}", order.orderNumber(), order.branchId());
+        } else if (exists == null) {
+            LOG.debug("Registering new delivery {} for branch {}", order.orderNumber(), order.branchId());
+            Delivery delivery = new Delivery(order.orderNumber(), DeliveryStatus.NEW, deliveryArticles);
+            deliveries.create(order.branchId(), delivery);
+            events.deliveryChanged(order.branchId(), order.orderNumber());
         } else {
-            LOG.error("Not registering new delivery, parsing order failed");
+            LOG.debug("Updating delivery {} for branch {}", order.orderNumber(), order.branchId());
+            updateDelivery(order.branchId(), exists, deliveryArticles);
         }
     }
 
@@ -93,6 +110,7 @@ public final class OrderMessageProcessor implements Runnable {
             }
             Delivery delivery = new Delivery(existing.orderNumber(), DeliveryStatus.MODIFIED, deliveryArticles);
             deliveries.update(branchId, existing.orderNumber(), delivery);
+            events.deliveryChanged(branchId, existing.orderNumber());
         } else {
             LOG.error("Delivery {} for branch {} already delivered", existing.orderNumber(), branchId);
         }
@@ -101,17 +119,15 @@ public final class OrderMessageProcessor implements Runnable {
     /**
      * Parses the order message.
      *
-     * @param message Order message.
+     * @param message Order message body.
      * @return Order.
      */
-    private OrderDTO parseMessage(final String message) {
+    private OrderDTO parseMessage(final byte[] message) {
         OrderDTO dto = null;
-        ObjectMapper mapper = new ObjectMapper()
-                .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
         try {
-            dto = mapper.readValue(message, OrderDTO.class);
-            LOG.info("Parsed order message: {}", dto);
-        } catch (JsonProcessingException e) {
+            dto = MessageCodec.read(message, OrderDTO.class);
+            LOG.debug("Parsed order message: {}", dto);
+        } catch (IOException e) {
             LOG.error("Failed to parse order message: {}", e.getMessage());
         }
         return dto;
@@ -0,0 +1,118 @@
+package ch.hslu.swda.micro;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Executes tasks in parallel while keeping the order of the tasks with the same key.
+ * <p>
+ * Every key is hashed onto one of several single-threaded lanes, so tasks with the same key run one after the other
+ * in submission order and tasks with different keys can run in parallel.
+ */
+public final class PartitionedExecutor implements AutoCloseable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(PartitionedExecutor.class);
+    private static final long CLOSE_TIMEOUT_MS = 5000L;
+
+    private final ExecutorService[] lanes;
+
+    /**
+     * Constructor.
+     *
+     * @param name  Name of the lane threads.
+     * @param lanes Number of lanes.
+     */
+    public PartitionedExecutor(final String name, final int lanes) {
+        if (lanes < 1) {
+            throw new IllegalArgumentException("lanes should not be lower than 1");
+        }
+        this.lanes = new ExecutorService[lanes];
+        for (int i = 0; i < lanes; i++) {
+            String threadName = name + "-" + (i + 1);
+            this.lanes[i] = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, threadName);
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    /**
+     * Submits a task to the lane of the key.
+     *
+     * @param key  Key of the task.
+     * @param task Task.
+     * @return Future completed when the task was executed.
+     */
+    public CompletableFuture<Void> submit(final Object key, final Runnable task) {
+        return CompletableFuture.runAsync(task, lanes[lane(key)]);
+    }
+
+    /**
+     * Returns the lane of the key as executor.
+     *
+     * @param key Key of the tasks.
+     * @return Executor running the tasks on the lane of the key.
+     */
+    public Executor executor(final Object key) {
+        return lanes[lane(key)];
+    }
+
+    /**
+     * Returns a future completed when all tasks submitted so far were executed.
+     *
+     * @return Future completed when all lanes are drained.
+     */
+    public CompletableFuture<Void> drain() {
+        return CompletableFuture.allOf(Arrays.stream(lanes)
+                .map(lane -> CompletableFuture.runAsync(() -> { }, lane))
+                .toArray(CompletableFuture[]::new));
+    }
+
+    /**
+     * Returns the number of lanes.
+     *
+     * @return Number of lanes.
+     */
+    public int size() {
+        return lanes.length;
+    }
+
+    /**
+     * Returns the lane of the key.
+     *
+     * @param key Key of the task.
+     * @return Index of the lane.
+     */
+    int lane(final Object key) {
+        int hash = key.hashCode();
+        return Math.floorMod(hash ^ (hash >>> 16), lanes.length);
+    }
+
+    /**
+     * Stops accepting tasks and waits for the submitted tasks to complete.
+     */
+    @Override
+    public void close() {
+        for (ExecutorService lane : lanes) {
+            lane.shutdown();
+        }
+        try {
+            for (ExecutorService lane : lanes) {
+                if (!lane.awaitTermination(CLOSE_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+                    LOG.warn("Lane still executing tasks while closing");
+                }
+            }
+        } catch (InterruptedException e) {
+            LOG.warn("Waiting for lanes interrupted: {}", e.getMessage());
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package ch.hslu.swda.micro;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Records the duration of the scheduled ticks of a processor and the entities processed by each stage.
+ * <p>
+ * Together with the repository timers a slow tick shows which stage processed how many entities and which database
+ * operation took the time.
+ */
+final class ProcessorMetrics {
+
+    private static final String PROCESSOR = "processor";
+
+    private final MeterRegistry registry;
+    private final String processor;
+    private final Timer success;
+    private final Timer error;
+
+    /**
+     * Constructor.
+     *
+     * @param registry  Meter registry.
+     * @param processor Name of the processor.
+     */
+    ProcessorMetrics(final MeterRegistry registry, final String processor) {
+        this.registry = registry;
+        this.processor = processor;
+        this.success = registry.timer("processor.ticks", Tags.of(PROCESSOR, processor, "outcome", "success"));
+        this.error = registry.timer("processor.ticks", Tags.of(PROCESSOR, processor, "outcome", "error"));
+    }
+
+    /**
+     * Runs a tick and records its duration.
+     *
+     * @param tick Tick of the processor.
+     */
+    void tick(final Runnable tick) {
+        Timer.Sample sample = Timer.start(registry);
+        Timer outcome = error;
+        try {
+            tick.run();
+            outcome = success;
+        } finally {
+            sample.stop(outcome);
+        }
+    }
+
+    /**
+     * Returns the counter of the entities processed by a stage.
+     *
+     * @param stage Stage of the processor.
+     * @return Counter of the processed entities.
+     */
+    Counter entities(final String stage) {
+        return registry.counter("processor.entities", Tags.of(PROCESSOR, processor, "stage", stage));
+    }
+}
@@ -9,11 +9,25 @@ import ch.hslu.swda.entities.ReorderStatus;
 import ch.hslu.swda.entities.WarehouseEntity;
 import ch.hslu.swda.stock.api.Stock;
 import ch.hslu.swda.stock.local.StockLocal;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
 /**
  * Implements reorder processing.
+ * <p>
+ * The reorders are streamed from the database and written one by one, only while they still have the status they were
+ * read with. A new reorder is marked as waiting right after it was ordered from the central warehouse, so a failure
+ * never orders more than one reorder twice. A delivered reorder is completed before its items are added to the stock,
+ * so neither a failure nor a concurrent change adds the items of a reorder twice.
  */
 public final class ReorderProcessor implements Runnable {
 
@@ -26,6 +40,9 @@ public final class ReorderProcessor implements Runnable {
 
     private final Stock stock;
 
+    private final DeliveryEvents deliveryEvents;
+    private final ProcessorMetrics metrics;
+
     /**
      * Constructor.
      *
@@ -35,10 +52,41 @@ public final class ReorderProcessor implements Runnable {
      */
     public ReorderProcessor(final MessagePublisher<LogEventDTO> messagePublisher,
                             final ProductCatalog catalog, final Reorders reorders) {
+        this(messagePublisher, catalog, reorders, new DeliveryEvents());
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param messagePublisher Log message publisher.
+     * @param catalog          Product catalog warehouse.
+     * @param reorders         Reorders warehouse.
+     * @param deliveryEvents   Delivery events, notified about the stock received with reorders.
+     */
+    public ReorderProcessor(final MessagePublisher<LogEventDTO> messagePublisher,
+                            final ProductCatalog catalog, final Reorders reorders,
+                            final DeliveryEvents deliveryEvents) {
+        this(messagePublisher, catalog, reorders, deliveryEvents, Metrics.globalRegistry);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param messagePublisher Log message publisher.
+     * @param catalog          Product catalog warehouse.
+     * @param reorders         Reorders warehouse.
+     * @param deliveryEvents   Delivery events, notified about the stock received with reorders.
+     * @param registry         Meter registry recording the scheduled processing.
+     */
+    public ReorderProcessor(final MessagePublisher<LogEventDTO> messagePublisher,
+                            final ProductCatalog catalog, final Reorders reorders,
+                            final DeliveryEvents deliveryEvents, final MeterRegistry registry) {
         this.eventLogger = messagePublisher;
         this.catalog = catalog;
         this.reorders = reorders;
         this.stock = new StockLocal();
+        this.deliveryEvents = deliveryEvents;
+        this.metrics = new ProcessorMetrics(registry, "reorder");
     }
 
     /**
@@ -47,9 +95,11 @@ public final class ReorderProcessor implements Runnable {
     @Override
     public void run() {
         LOG.info("Starting scheduled reorder processing");
-        processDeliveredReorders();
-        reorderArticlesWithLowStock();
-        processNewReorders();
+        metrics.tick(() -> {
+            processDeliveredReorders();
+            reorderArticlesWithLowStock();
+            processNewReorders();
+        });
         LOG.info("Finished scheduled reorder processing");
     }
 
@@ -58,13 +108,18 @@ public final class ReorderProcessor implements Runnable {
      */
     private void reorderArticlesWithLowStock() {
         LOG.info("Start reordering articles with low stock");
-        for (WarehouseEntity<Article> entity : catalog.getLowStock()) {
+        List<WarehouseEntity<Article>> lowStock = catalog.getLowStock();
+        metrics.entities("low_stock").increment(lowStock.size());
+        Map<Long, Map<Long, Integer>> reorderedArticles = reorders.countReorderedArticles(lowStock.stream()
+                .map(entity -> ((Article) entity.entity()).articleId()).distinct().toList());
+        for (WarehouseEntity<Article> entity : lowStock) {
             Article article = (Article) entity.entity();
-            int reordered = reorders.countReorderedArticles(entity.branchId(), article.articleId());
+            int reordered = reorderedArticles.getOrDefault(entity.branchId(), Map.of())
+                    .getOrDefault(article.articleId(), 0);
             int predictedStock = article.stock() - article.reserved() + reordered;
             if (predictedStock < article.minStock()) {
                 int quantity = article.minStock() * 2 - predictedStock;
-                LOG.info("Registering reorder of {} articles with id {} for branch {}",
+                LOG.debug("Registering reorder of {} articles with id {} for branch {}",
                         quantity, article.articleId(), entity.branchId());
                 reorders.create(entity.branchId(), article.articleId(), quantity);
             }
@@ -77,18 +132,30 @@ public final class ReorderProcessor implements Runnable {
      */
     private void processDeliveredReorders() {
         LOG.info("Start processing delivered reorders");
-        for (WarehouseEntity<Reorder> entity : reorders.getAllByStatus(ReorderStatus.DELIVERED)) {
-            Reorder reorder = (Reorder) entity.entity();
-            LOG.info("Processing delivered reorder {} from branch {}", reorder.reorderId(), entity.branchId());
-
-            catalog.changeStock(entity.branchId(), reorder.articleId(), reorder.quantity());
-            reorders.updateStatus(entity.branchId(), reorder.reorderId(), ReorderStatus.COMPLETED);
-            LOG.info("Completed reorder {} from branch {}", reorder.reorderId(), entity.branchId());
-
-            String message = "Received delivery for reorder " + reorder.reorderId() + " from central warehouse";
-            LogEventDTO event = new LogEventDTO(entity.branchId(), "reorder.delivered", message);
-            eventLogger.sendMessage(Routes.LOG_EVENT, event);
+        Set<Long> branches = new HashSet<>();
+        Counter processed = metrics.entities("delivered");
+        try (Stream<WarehouseEntity<Reorder>> delivered = reorders.streamByStatus(ReorderStatus.DELIVERED)) {
+            delivered.forEach(entity -> {
+                Reorder reorder = (Reorder) entity.entity();
+                processed.increment();
+                LOG.debug("Processing delivered reorder {} from branch {}", reorder.reorderId(), entity.branchId());
+
+                if (reorders.updateAll(List.of(withStatus(entity, ReorderStatus.COMPLETED, reorder.quantity())),
+                        ReorderStatus.DELIVERED, false) == 0) {
+                    LOG.warn("Reorder {} from branch {} changed while it was received",
+                            reorder.reorderId(), entity.branchId());
+                    return;
+                }
+                catalog.changeStock(entity.branchId(), reorder.articleId(), reorder.quantity());
+                branches.add(entity.branchId());
+                LOG.debug("Completed reorder {} from branch {}", reorder.reorderId(), entity.branchId());
+
+                String message = "Received delivery for reorder " + reorder.reorderId() + " from central warehouse";
+                LogEventDTO event = new LogEventDTO(entity.branchId(), "reorder.delivered", message);
+                eventLogger.sendMessage(Routes.LOG_EVENT, event);
+            });
         }
+        branches.forEach(deliveryEvents::stockChanged);
         LOG.info("Finished processing delivered reorders");
     }
 
@@ -97,23 +164,31 @@ public final class ReorderProcessor implements Runnable {
      */
     private void processNewReorders() {
         LOG.info("Start processing new reorders");
-        for (WarehouseEntity<Reorder> entity : reorders.getAllByStatus(ReorderStatus.NEW)) {
-            Reorder reorder = (Reorder) entity.entity();
-            LOG.info("Processing new reorder {} from branch {}", reorder.reorderId(), entity.branchId());
-
-            int ordered = orderArticles((int) reorder.articleId(), reorder.quantity());
-            if (ordered > 0) {
-                reorders.updateQuantity(entity.branchId(), reorder.reorderId(), ordered);
-                reorders.updateStatus(entity.branchId(), reorder.reorderId(), ReorderStatus.WAITING);
-                LOG.info("Reordered {} items of article {} for branch {}",
-                        ordered, reorder.articleId(), entity.branchId());
-
-                String message = "Ordered " + ordered + " items of " + reorder.articleId() + " from central warehouse";
-                LogEventDTO event = new LogEventDTO(entity.branchId(), "reorder.new", message);
-                eventLogger.sendMessage(Routes.LOG_EVENT, event);
-            } else {
-                LOG.error("Failed to reorder article {} for branch {}", reorder.articleId(), entity.branchId());
-            }
+        Counter processed = metrics.entities("new");
+        try (Stream<WarehouseEntity<Reorder>> created = reorders.streamByStatus(ReorderStatus.NEW)) {
+            created.forEach(entity -> {
+                Reorder reorder = (Reorder) entity.entity();
+                processed.increment();
+                LOG.debug("Processing new reorder {} from branch {}", reorder.reorderId(), entity.branchId());
+
+                int ordered = orderArticles((int) reorder.articleId(), reorder.quantity());
+                if (ordered > 0) {
+                    if (reorders.updateAll(List.of(withStatus(entity, ReorderStatus.WAITING, ordered)),
+                            ReorderStatus.NEW, false) == 0) {
+                        LOG.warn("Reorder {} from branch {} changed while it was ordered",
+                                reorder.reorderId(), entity.branchId());
+                    }
+                    LOG.debug("Reordered {} items of article {} for branch {}",
+                            ordered, reorder.articleId(), entity.branchId());
+
+                    String message = "Ordered " + ordered + " items of " + reorder.articleId()
+                            + " from central warehouse";
+                    LogEventDTO event = new LogEventDTO(entity.branchId(), "reorder.new", message);
+                    eventLogger.sendMessage(Routes.LOG_EVENT, event);
+                } else {
+                    LOG.error("Failed to reorder article {} for branch {}", reorder.articleId(), entity.branchId());
+                }
+            });
         }
         LOG.info("Finished processing new reorders");
     }
@@ -136,4 +211,19 @@ public final class ReorderProcessor implements Runnable {
         }
         return ordered;
     }
+
+    /**
+     * Returns the reorder with a new status and quantity.
+     *
+     * @param entity   Reorder.
+     * @param status   New reorder status.
+     * @param quantity New reorder quantity.
+     * @return Reorder with the new status and quantity.
+     */
+    private static WarehouseEntity<Reorder> withStatus(final WarehouseEntity<Reorder> entity,
+                                                       final ReorderStatus status, final int quantity) {
+        Reorder reorder = (Reorder) entity.entity();
+        Reorder updated = new Reorder(reorder.reorderId(), status, reorder.date(), reorder.articleId(), quantity);
+        return new WarehouseEntity<>(entity.branchId(), updated);
+    }
 }
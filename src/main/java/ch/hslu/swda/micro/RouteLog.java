@@ -0,0 +1,136 @@
+package ch.hslu.swda.micro;
+
+import org.slf4j.Logger;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Logs a summary of the messages of every route at most once per interval.
+ * <p>
+ * Single messages are only logged at DEBUG, the summaries keep the INFO output at a constant rate regardless of the
+ * traffic on the bus. The summary of an interval is logged with the first message after the interval elapsed, the
+ * interval is set in seconds with the environment variable {@code LOG_SUMMARY_INTERVAL}.
+ */
+final class RouteLog {
+
+    static final int MAX_PAYLOAD = 512;
+    static final long DEFAULT_INTERVAL = 60;
+    private static final String INTERVAL_ENV = "LOG_SUMMARY_INTERVAL";
+
+    private final Logger log;
+    private final String direction;
+    private final long interval;
+    private final Map<String, Summary> routes = new ConcurrentHashMap<>();
+
+    /**
+     * Messages of a route since the last summary.
+     */
+    private static final class Summary {
+
+        private final LongAdder messages = new LongAdder();
+        private final LongAdder bytes = new LongAdder();
+        private final LongAdder failed = new LongAdder();
+        private final AtomicLong next;
+
+        /**
+         * Constructor.
+         *
+         * @param next Time of the next summary in nanoseconds.
+         */
+        private Summary(final long next) {
+            this.next = new AtomicLong(next);
+        }
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param log       Logger of the summaries.
+     * @param direction Direction of the messages, received or sent.
+     * @param env       Configuration variables.
+     */
+    RouteLog(final Logger log, final String direction, final Map<String, String> env) {
+        this.log = log;
+        this.direction = direction;
+        this.interval = Duration.ofSeconds(intervalFromMap(log, env)).toNanos();
+    }
+
+    /**
+     * Reads the summary interval from the environment variables, an invalid or negative value is logged and replaced
+     * by the default interval.
+     *
+     * @param log Logger of the summaries.
+     * @param env Configuration variables.
+     * @return Summary interval in seconds.
+     */
+    static long intervalFromMap(final Logger log, final Map<String, String> env) {
+        String value = env.get(INTERVAL_ENV);
+        if (value == null || value.isBlank()) {
+            return DEFAULT_INTERVAL;
+        }
+        long interval;
+        try {
+            interval = Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            interval = -1;
+        }
+        if (interval < 0) {
+            log.warn("Invalid value {} of {}, using {}", value, INTERVAL_ENV, DEFAULT_INTERVAL);
+            return DEFAULT_INTERVAL;
+        }
+        return interval;
+    }
+
+    /**
+     * Counts a message of the route and logs the summary if the interval elapsed.
+     *
+     * @param route Route of the message.
+     * @param bytes Size of the message.
+     */
+    void message(final String route, final int bytes) {
+        Summary summary = routes.computeIfAbsent(route, r -> new Summary(System.nanoTime() + interval));
+        summary.messages.increment();
+        summary.bytes.add(bytes);
+        long now = System.nanoTime();
+        long next = summary.next.get();
+        if (now - next >= 0 && summary.next.compareAndSet(next, now + interval)) {
+            long messages = summary.messages.sumThenReset();
+            long size = summary.bytes.sumThenReset();
+            long failed = summary.failed.sumThenReset();
+            if (log.isInfoEnabled()) {
+                log.info("{} {} messages ({} bytes, {} failed) with routing '{}' in the last {} s", direction,
+                        messages, size, failed, route, Duration.ofNanos(now - next + interval).toSeconds());
+            }
+        }
+    }
+
+    /**
+     * Counts a failed message of the route for the next summary.
+     *
+     * @param route Route of the message.
+     */
+    void failed(final String route) {
+        Summary summary = routes.get(route);
+        if (summary != null) {
+            summary.failed.increment();
+        }
+    }
+
+    /**
+     * Returns the payload of a message for the log, truncated to {@value MAX_PAYLOAD} bytes.
+     *
+     * @param body Payload of the message.
+     * @return Payload as text.
+     */
+    static String payload(final byte[] body) {
+        if (body.length <= MAX_PAYLOAD) {
+            return new String(body, StandardCharsets.UTF_8);
+        }
+        return new String(body, 0, MAX_PAYLOAD, StandardCharsets.UTF_8) + "... (" + body.length + " bytes)";
+    }
+}
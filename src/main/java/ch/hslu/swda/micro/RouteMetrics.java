@@ -0,0 +1,86 @@
+package ch.hslu.swda.micro;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Records the latency and the number of pending messages of every route of the bus.
+ * <p>
+ * The latency of a received message is measured until it was processed, the latency of a sent message until the
+ * broker confirmed it. The count of the timer is the throughput of the route.
+ */
+final class RouteMetrics {
+
+    private static final String TIMER = "bus.messages";
+    private static final String PENDING = "bus.messages.pending";
+
+    private final MeterRegistry registry;
+    private final String direction;
+    private final Map<String, Meters> routes = new ConcurrentHashMap<>();
+
+    /**
+     * Meters of a route.
+     *
+     * @param success Timer of the successful messages.
+     * @param error   Timer of the failed messages.
+     * @param pending Number of pending messages.
+     */
+    private record Meters(Timer success, Timer error, AtomicInteger pending) {
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param registry  Meter registry.
+     * @param direction Direction of the messages, received or sent.
+     */
+    RouteMetrics(final MeterRegistry registry, final String direction) {
+        this.registry = registry;
+        this.direction = direction;
+    }
+
+    /**
+     * Records a message of the route.
+     *
+     * @param route   Route of the message.
+     * @param message Receives or sends the message, the returned future completes when the message was handled.
+     * @return Future completed when the message was handled.
+     */
+    CompletableFuture<Void> record(final String route, final Supplier<CompletableFuture<Void>> message) {
+        Meters meters = routes.computeIfAbsent(route, this::meters);
+        meters.pending().incrementAndGet();
+        long start = System.nanoTime();
+        CompletableFuture<Void> handled;
+        try {
+            handled = message.get();
+        } catch (RuntimeException e) {
+            handled = CompletableFuture.failedFuture(e);
+        }
+        return handled.whenComplete((result, e) -> {
+            meters.pending().decrementAndGet();
+            (e == null ? meters.success() : meters.error()).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        });
+    }
+
+    /**
+     * Registers the meters of a route.
+     *
+     * @param route Route.
+     * @return Meters of the route.
+     */
+    private Meters meters(final String route) {
+        Tags tags = Tags.of("direction", direction, "route", route);
+        return new Meters(
+                registry.timer(TIMER, tags.and("outcome", "success")),
+                registry.timer(TIMER, tags.and("outcome", "error")),
+                registry.gauge(PENDING, tags, new AtomicInteger()));
+    }
+}
@@ -1,21 +1,22 @@
 package ch.hslu.swda.micronaut;
 
 import ch.hslu.swda.business.Deliveries;
-import ch.hslu.swda.business.DeliveriesDB;
 import ch.hslu.swda.business.ProductCatalog;
-import ch.hslu.swda.business.ProductCatalogDB;
 import ch.hslu.swda.business.Reorders;
-import ch.hslu.swda.business.ReordersDB;
 import ch.hslu.swda.dto.LogEventDTO;
 import ch.hslu.swda.dto.OrderDTO;
 import ch.hslu.swda.micro.ArticleMessageProcessor;
+import ch.hslu.swda.micro.DeliveryEvents;
 import ch.hslu.swda.micro.DeliveryProcessor;
 import ch.hslu.swda.micro.MessageListener;
 import ch.hslu.swda.micro.MessageListenerRMQ;
 import ch.hslu.swda.micro.MessagePublisher;
 import ch.hslu.swda.micro.MessagePublisherRMQ;
 import ch.hslu.swda.micro.OrderMessageProcessor;
+import ch.hslu.swda.micro.PartitionedExecutor;
 import ch.hslu.swda.micro.ReorderProcessor;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micronaut.context.BeanContext;
 import io.micronaut.runtime.Micronaut;
 import io.swagger.v3.oas.annotations.OpenAPIDefinition;
 import io.swagger.v3.oas.annotations.info.Info;
@@ -56,26 +57,34 @@ public final class Application {
      * @param args not used.
      */
     public static void main(final String[] args) {
-        Micronaut.run(Application.class);
+        BeanContext context = Micronaut.run(Application.class);
 
-        Deliveries deliveries = new DeliveriesDB();
-        ProductCatalog productCatalog = new ProductCatalogDB();
-        Reorders reorders = new ReordersDB();
+        Deliveries deliveries = context.getBean(Deliveries.class);
+        ProductCatalog productCatalog = context.getBean(ProductCatalog.class);
+        Reorders reorders = context.getBean(Reorders.class);
+        DeliveryEvents deliveryEvents = context.getBean(DeliveryEvents.class);
+        MeterRegistry registry = context.getBean(MeterRegistry.class);
 
-        MessageListener messageListener = new MessageListenerRMQ();
-        MessagePublisher<LogEventDTO> logEventMessagePublisher = new MessagePublisherRMQ<>();
-        MessagePublisher<OrderDTO> articleMessagePublisher = new MessagePublisherRMQ<>();
+        MessageListener messageListener = new MessageListenerRMQ(registry);
+        MessagePublisher<LogEventDTO> logEventMessagePublisher = new MessagePublisherRMQ<>(registry);
+        MessagePublisher<OrderDTO> articleMessagePublisher = new MessagePublisherRMQ<>(registry);
+
+        PartitionedExecutor orderLanes = new PartitionedExecutor("order-lane",
+                Runtime.getRuntime().availableProcessors());
+        ScheduledExecutorService deliveryExecutor = Executors.newSingleThreadScheduledExecutor();
+        DeliveryProcessor deliveryProcessor = new DeliveryProcessor(logEventMessagePublisher, productCatalog,
+                deliveries, deliveryExecutor, orderLanes, registry);
+        deliveryEvents.subscribe(deliveryProcessor);
+        deliveryExecutor.scheduleWithFixedDelay(deliveryProcessor, 15, 300, TimeUnit.SECONDS);
 
         ExecutorService executor = Executors.newCachedThreadPool();
-        executor.submit(new ArticleMessageProcessor(messageListener, articleMessagePublisher, productCatalog));
-        executor.submit(new OrderMessageProcessor(messageListener, deliveries));
+        executor.submit(new ArticleMessageProcessor(messageListener, articleMessagePublisher, productCatalog,
+                registry));
+        executor.submit(new OrderMessageProcessor(messageListener, deliveries, deliveryEvents, orderLanes));
 
-        ScheduledExecutorService scheduledExecutor = Executors.newScheduledThreadPool(2);
-        scheduledExecutor.scheduleAtFixedRate(
-                new DeliveryProcessor(logEventMessagePublisher, productCatalog, deliveries),
-                15, 30, TimeUnit.SECONDS);
+        ScheduledExecutorService scheduledExecutor = Executors.newSingleThreadScheduledExecutor();
         scheduledExecutor.scheduleAtFixedRate(
-                new ReorderProcessor(logEventMessagePublisher, productCatalog, reorders),
+                new ReorderProcessor(logEventMessagePublisher, productCatalog, reorders, deliveryEvents, registry),
                 30, 30, TimeUnit.SECONDS);
     }
 }
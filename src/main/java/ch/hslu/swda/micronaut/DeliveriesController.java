@@ -1,13 +1,16 @@
 package ch.hslu.swda.micronaut;
 
 import ch.hslu.swda.business.Deliveries;
+import ch.hslu.swda.business.DeliveryProjection;
 import ch.hslu.swda.dto.ArticleDeliveredDTO;
 import ch.hslu.swda.entities.Delivery;
 import ch.hslu.swda.entities.DeliveryStatus;
+import ch.hslu.swda.micro.DeliveryEvents;
 import ch.hslu.swda.micro.MessagePublisher;
 import ch.hslu.swda.micro.Routes;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import io.micronaut.core.annotation.Nullable;
+import io.micronaut.http.HttpHeaders;
 import io.micronaut.http.HttpRequest;
 import io.micronaut.http.HttpResponse;
 import io.micronaut.http.annotation.Controller;
@@ -33,47 +36,70 @@ public final class DeliveriesController {
 
     private final Deliveries deliveries;
     private final MessagePublisher<ArticleDeliveredDTO> deliveryPublisher;
+    private final DeliveryEvents deliveryEvents;
 
     @Inject
-    public DeliveriesController(final Deliveries deliveries, final MessagePublisher<ArticleDeliveredDTO> publisher) {
+    public DeliveriesController(final Deliveries deliveries, final MessagePublisher<ArticleDeliveredDTO> publisher,
+                                final DeliveryEvents events) {
         this.deliveries = deliveries;
         this.deliveryPublisher = publisher;
+        this.deliveryEvents = events;
     }
 
     /**
-     * Get all deliveries of the branch.
+     * Get all deliveries of the branch, ordered by order number.
+     * <p>
+     * With a limit the deliveries are returned page by page, a full page links to the next page in the Link header.
      * <p>
      * Roles: Branch Manager
      *
+     * @param request  HTTP request.
      * @param branchId ID of the branch.
      * @param status   Delivery status filter.
-     * @return List of all deliveries.
+     * @param after    Order number of the last delivery on the previous page.
+     * @param limit    Number of deliveries per page, at most 1000, all deliveries if not set.
+     * @param fields   Comma separated fields of the deliveries, all fields if not set.
+     * @return Deliveries on the page.
      */
     @Tag(name = "delivery")
     @Get("/{branchId}")
-    public List<Delivery> getAll(final long branchId, @QueryValue("status") @Nullable final DeliveryStatus status) {
-        final List<Delivery> result = deliveries.getAllByBranch(branchId, status);
-        LOG.info("REST: All {} deliveries from branch {}{} returned.",
-                result.size(), branchId, status != null ? " with status " + status : "");
-        return result;
+    public HttpResponse<List<DeliveryProjection>> getAll(final HttpRequest<?> request, final long branchId,
+                                                         @QueryValue("status") @Nullable final DeliveryStatus status,
+                                                         @QueryValue("after") @Nullable final Long after,
+                                                         @QueryValue("limit") @Nullable final Integer limit,
+                                                         @QueryValue("fields") @Nullable final List<String> fields) {
+        final List<DeliveryProjection> result = deliveries.getPage(branchId, status, after, Pages.limit(limit),
+                Pages.fields(fields));
+        LOG.info("REST: {} deliveries from branch {}{} returned.", result.size(), branchId,
+                status != null ? " with status " + status : "");
+        return Pages.response(request, result, DeliveryProjection::orderNumber, limit);
     }
 
     /**
      * Get delivery with the specified order number of the branch.
      * <p>
+     * The ETag is the version of the delivery, an unchanged delivery returns 304 Not Modified.
+     * <p>
      * Roles: Branch Manager
      *
+     * @param request     HTTP request.
      * @param branchId    ID of the branch.
      * @param orderNumber Order number.
      * @return Delivery.
      */
     @Tag(name = "delivery")
     @Get("/{branchId}/{orderNumber}")
-    public Delivery get(final long branchId, final long orderNumber) {
-        final Delivery delivery = deliveries.getById(branchId, orderNumber);
+    public HttpResponse<Delivery> get(final HttpRequest<?> request, final long branchId, final long orderNumber) {
+        final Long version = deliveries.getVersion(branchId, orderNumber);
+        final String etag = version != null ? ETags.of(version) : null;
+        if (etag != null && ETags.matches(request, etag)) {
+            LOG.info("REST: Delivery {} from branch {} not modified.", orderNumber, branchId);
+            return HttpResponse.notModified();
+        }
+        final Delivery delivery = version != null ? deliveries.getById(branchId, orderNumber) : null;
         LOG.info("REST: Delivery {} from branch {} {}.",
                 orderNumber, branchId, delivery != null ? "returned" : "not found");
-        return delivery;
+        return delivery != null ? HttpResponse.ok(delivery).header(HttpHeaders.ETAG, etag) : HttpResponse.notFound();
     }
 
     /**
@@ -100,6 +126,7 @@ public final class DeliveriesController {
         if (delivery != null) {
             LOG.info("REST: Delivery {} from branch {} was delivered", orderNumber, branchId);
             deliveryPublisher.sendMessage(Routes.ARTICLE_DELIVERED, new ArticleDeliveredDTO(branchId, orderNumber));
+            deliveryEvents.deliveryChanged(branchId, orderNumber);
         } else {
             LOG.error("REST: Failed to set status of delivery {} from branch {} to delivered", orderNumber, branchId);
         }
@@ -0,0 +1,49 @@
+package ch.hslu.swda.micronaut;
+
+import io.micronaut.http.HttpHeaders;
+import io.micronaut.http.HttpRequest;
+
+import java.util.Arrays;
+
+/**
+ * Entity tags of the versioned resources.
+ * <p>
+ * The version has to be read before the resource, a response then never carries a newer entity tag than its content
+ * and a client never keeps outdated content after a {@code 304 Not Modified}.
+ */
+final class ETags {
+
+    /**
+     * No instances.
+     */
+    private ETags() {
+    }
+
+    /**
+     * Returns the entity tag of the version.
+     *
+     * @param version Version of the resource.
+     * @return Entity tag.
+     */
+    static String of(final long version) {
+        return "\"" + version + "\"";
+    }
+
+    /**
+     * Checks whether the request already has the current version of the resource.
+     *
+     * @param request Request of the resource.
+     * @param etag    Entity tag of the current version.
+     * @return True if the If-None-Match header of the request matches the entity tag.
+     */
+    static boolean matches(final HttpRequest<?> request, final String etag) {
+        String ifNoneMatch = request.getHeaders().get(HttpHeaders.IF_NONE_MATCH);
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        return Arrays.stream(ifNoneMatch.split(","))
+                .map(String::trim)
+                .map(tag -> tag.startsWith("W/") ? tag.substring(2) : tag)
+                .anyMatch(tag -> tag.equals(etag) || tag.equals("*"));
+    }
+}
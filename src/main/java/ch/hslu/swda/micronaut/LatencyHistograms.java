@@ -0,0 +1,126 @@
+package ch.hslu.swda.micronaut;
+
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.config.MeterFilter;
+import io.micrometer.core.instrument.distribution.DistributionStatisticConfig;
+import jakarta.inject.Inject;
+import jakarta.inject.Singleton;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Publishes percentile histograms of the latency of the REST API and of the article request round trip.
+ * <p>
+ * The histograms only cover the expected latencies to keep the number of buckets small. The SLO buckets are set with
+ * the environment variables {@code METRICS_HTTP_SLO_MS} and {@code METRICS_BUS_SLO_MS} as comma separated
+ * milliseconds, an invalid list is replaced by the default buckets.
+ */
+@Singleton
+public final class LatencyHistograms implements MeterFilter {
+
+    static final String DEFAULT_HTTP_SLO = "50,100,250,500,1000,2500";
+    static final String DEFAULT_BUS_SLO = "10,25,50,100,250,500,1000";
+
+    private static final Logger LOG = LoggerFactory.getLogger(LatencyHistograms.class);
+    private static final String HTTP_SLO_ENV = "METRICS_HTTP_SLO_MS";
+    private static final String BUS_SLO_ENV = "METRICS_BUS_SLO_MS";
+    private static final String HTTP_REQUESTS = "http.server.requests";
+    private static final String ROUND_TRIP = "bus.roundtrip";
+    private static final List<String> API_PATHS = List.of("/api/v1/catalog", "/api/v1/delivery", "/api/v1/reorder");
+    private static final Duration MIN_EXPECTED = Duration.ofMillis(1);
+    private static final Duration MAX_EXPECTED = Duration.ofSeconds(10);
+
+    private final Duration[] httpSlo;
+    private final Duration[] busSlo;
+
+    /**
+     * Constructor using the environment variables for the SLO buckets.
+     */
+    @Inject
+    public LatencyHistograms() {
+        this(System.getenv());
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param env Configuration variables.
+     */
+    LatencyHistograms(final Map<String, String> env) {
+        this.httpSlo = slo(env, HTTP_SLO_ENV, DEFAULT_HTTP_SLO);
+        this.busSlo = slo(env, BUS_SLO_ENV, DEFAULT_BUS_SLO);
+    }
+
+    @Override
+    public DistributionStatisticConfig configure(final Meter.Id id, final DistributionStatisticConfig config) {
+        Duration[] slo;
+        if (HTTP_REQUESTS.equals(id.getName()) && isApi(id.getTag("uri"))) {
+            slo = httpSlo;
+        } else if (ROUND_TRIP.equals(id.getName())) {
+            slo = busSlo;
+        } else {
+            return config;
+        }
+        return DistributionStatisticConfig.builder()
+                .percentilesHistogram(true)
+                .serviceLevelObjectives(slo)
+                .minimumExpectedValue(MIN_EXPECTED)
+                .maximumExpectedValue(MAX_EXPECTED)
+                .build()
+                .merge(config);
+    }
+
+    /**
+     * Checks whether the URI of a request belongs to the REST API.
+     *
+     * @param uri URI template of the request.
+     * @return True if the request is handled by one of the controllers.
+     */
+    private static boolean isApi(final String uri) {
+        return uri != null && API_PATHS.stream().anyMatch(uri::startsWith);
+    }
+
+    /**
+     * Reads the SLO buckets from the configuration variables.
+     *
+     * @param env          Configuration variables.
+     * @param key          Name of the variable.
+     * @param defaultValue Buckets if the variable is missing or invalid.
+     * @return SLO buckets.
+     */
+    private static Duration[] slo(final Map<String, String> env, final String key, final String defaultValue) {
+        String value = env.get(key);
+        if (value == null) {
+            return slo(defaultValue);
+        }
+        try {
+            Duration[] slo = slo(value);
+            if (slo.length > 0 && Arrays.stream(slo).noneMatch(d -> d.isNegative() || d.isZero())) {
+                return slo;
+            }
+        } catch (NumberFormatException e) {
+            LOG.debug("Value {} of {} is not a list of numbers", value, key);
+        }
+        LOG.warn("Invalid value {} of {}, using {}", value, key, defaultValue);
+        return slo(defaultValue);
+    }
+
+    /**
+     * Parses the SLO buckets.
+     *
+     * @param millis Comma separated milliseconds.
+     * @return SLO buckets.
+     */
+    private static Duration[] slo(final String millis) {
+        return Arrays.stream(millis.split(","))
+                .map(String::trim)
+                .filter(m -> !m.isEmpty())
+                .map(m -> Duration.ofMillis(Long.parseLong(m)))
+                .toArray(Duration[]::new);
+    }
+}
@@ -0,0 +1,71 @@
+package ch.hslu.swda.micronaut;
+
+import ch.hslu.swda.business.MongoDBPage;
+import io.micronaut.core.annotation.Nullable;
+import io.micronaut.http.HttpHeaders;
+import io.micronaut.http.HttpRequest;
+import io.micronaut.http.HttpResponse;
+import io.micronaut.http.MutableHttpResponse;
+import io.micronaut.http.uri.UriBuilder;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Responses of the paginated list endpoints.
+ * <p>
+ * A full page links to the next page in the {@code Link} header. The link keeps the query of the request and only
+ * sets {@code after} to the key of the last item, the page token is therefore the same for all list endpoints. A
+ * request without a limit gets all items and no link.
+ */
+final class Pages {
+
+    private static final String AFTER = "after";
+
+    /**
+     * No instances.
+     */
+    private Pages() {
+    }
+
+    /**
+     * Returns the effective number of items per page.
+     *
+     * @param limit Requested number of items, null for all items.
+     * @return Number of items per page, 0 for all items.
+     */
+    static int limit(@Nullable final Integer limit) {
+        return limit != null ? MongoDBPage.limit(limit) : 0;
+    }
+
+    /**
+     * Returns the requested fields.
+     *
+     * @param fields Requested fields, null for all fields.
+     * @return Requested fields, empty for all fields.
+     */
+    static List<String> fields(@Nullable final List<String> fields) {
+        return fields != null ? fields : List.of();
+    }
+
+    /**
+     * Returns the response with the items of the page and the link to the next page if the page is full.
+     *
+     * @param request Request of the page.
+     * @param items   Items of the page.
+     * @param key     Key the items are ordered by.
+     * @param limit   Requested number of items, null for all items.
+     * @param <T>     Type of the items.
+     * @return Response with the items of the page.
+     */
+    static <T> MutableHttpResponse<List<T>> response(final HttpRequest<?> request, final List<T> items,
+                                                     final Function<T, Long> key, @Nullable final Integer limit) {
+        MutableHttpResponse<List<T>> response = HttpResponse.ok(items);
+        if (limit(limit) > 0 && items.size() == limit(limit)) {
+            Long last = key.apply(items.get(items.size() - 1));
+            String next = UriBuilder.of(request.getUri()).replaceQueryParam(AFTER, last).build().toString();
+            response.header(HttpHeaders.LINK, "<" + next + ">; rel=\"next\"");
+        }
+        return response;
+    }
+}
@@ -1,26 +1,45 @@
 package ch.hslu.swda.micronaut;
 
+import ch.hslu.swda.business.ArticleProjection;
+import ch.hslu.swda.business.MongoDBPage;
 import ch.hslu.swda.business.ProductCatalog;
+import ch.hslu.swda.business.UpsertResult;
+import ch.hslu.swda.business.UpsertStatus;
+import ch.hslu.swda.business.VersionedArticle;
 import ch.hslu.swda.dto.LogEventDTO;
 import ch.hslu.swda.entities.Article;
 import ch.hslu.swda.micro.MessagePublisher;
 import ch.hslu.swda.micro.Routes;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import io.micronaut.core.annotation.Nullable;
+import io.micronaut.http.HttpHeaders;
+import io.micronaut.http.HttpRequest;
+import io.micronaut.http.HttpResponse;
 import io.micronaut.http.HttpStatus;
+import io.micronaut.http.MediaType;
 import io.micronaut.http.annotation.Body;
 import io.micronaut.http.annotation.Controller;
 import io.micronaut.http.annotation.Delete;
 import io.micronaut.http.annotation.Get;
 import io.micronaut.http.annotation.Patch;
 import io.micronaut.http.annotation.Post;
+import io.micronaut.http.annotation.QueryValue;
 import io.micronaut.http.annotation.Status;
+import io.micronaut.http.exceptions.HttpStatusException;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.inject.Inject;
+import org.reactivestreams.Publisher;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Schedulers;
 
 import java.math.BigDecimal;
+import java.util.EnumMap;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * Controller for the product catalog.
@@ -29,6 +48,11 @@ import java.util.List;
 public final class ProductCatalogController {
     private static final Logger LOG = LoggerFactory.getLogger(ProductCatalogController.class);
 
+    /**
+     * Highest number of articles per batch, the same as the highest number of articles per page.
+     */
+    static final int MAX_BATCH = MongoDBPage.MAX_LIMIT;
+
     private final ProductCatalog productCatalog;
     private final MessagePublisher<LogEventDTO> eventLogger;
 
@@ -39,37 +63,85 @@ public final class ProductCatalogController {
     }
 
     /**
-     * Get all articles in the product catalog of the branch.
+     * Get all articles in the product catalog of the branch, ordered by article ID.
+     * <p>
+     * With a limit the articles are returned page by page, a full page links to the next page in the Link header.
+     * The ETag is the version of the catalog, an unchanged catalog is not read again and returns 304 Not Modified.
      * <p>
      * Roles: Branch Manager, Seller
      *
+     * @param request  HTTP request.
      * @param branchId ID of the branch.
-     * @return List of all articles.
+     * @param after    Article ID of the last article on the previous page.
+     * @param limit    Number of articles per page, at most 1000, all articles if not set.
+     * @param fields   Comma separated fields of the articles, all fields if not set.
+     * @return Articles on the page.
      */
     @Tag(name = "catalog")
     @Get("/{branchId}")
-    public List<Article> getAll(final long branchId) {
-        final List<Article> articles = productCatalog.getAll(branchId);
-        LOG.info("REST: All {} articles from branch {} returned.", articles.size(), branchId);
-        return articles;
+    public HttpResponse<List<ArticleProjection>> getAll(final HttpRequest<?> request, final long branchId,
+                                                        @QueryValue("after") @Nullable final Long after,
+                                                        @QueryValue("limit") @Nullable final Integer limit,
+                                                        @QueryValue("fields") @Nullable final List<String> fields) {
+        final String etag = ETags.of(productCatalog.getVersion(branchId));
+        if (ETags.matches(request, etag)) {
+            LOG.info("REST: Articles from branch {} not modified.", branchId);
+            return HttpResponse.notModified();
+        }
+        final List<ArticleProjection> articles = productCatalog.getPage(branchId, after, Pages.limit(limit),
+                Pages.fields(fields));
+        LOG.info("REST: {} articles from branch {} returned.", articles.size(), branchId);
+        return Pages.response(request, articles, ArticleProjection::articleId, limit).header(HttpHeaders.ETAG, etag);
+    }
+
+    /**
+     * Exports all articles in the product catalog of the branch as a stream of JSON objects, one per line.
+     * <p>
+     * The articles are written while they are read from the database, the export therefore never holds the whole
+     * catalog in memory.
+     * <p>
+     * Roles: Branch Manager
+     *
+     * @param branchId ID of the branch.
+     * @return Stream of all articles.
+     */
+    @Tag(name = "catalog")
+    @Get(value = "/{branchId}/export", produces = MediaType.APPLICATION_JSON_STREAM)
+    public Publisher<Article> export(final long branchId) {
+        return Flux.using(() -> productCatalog.streamAll(branchId),
+                        articles -> Flux.fromStream(articles), Stream::close)
+                .subscribeOn(Schedulers.boundedElastic())
+                .doOnComplete(() -> LOG.info("REST: All articles from branch {} exported.", branchId));
     }
 
     /**
      * Get article with the specified id from the product catalog of the branch.
      * <p>
+     * The ETag is the version of the article, read together with the article from the database. An unchanged article
+     * returns 304 Not Modified.
+     * <p>
      * Roles: Branch Manager, Seller
      *
+     * @param request   HTTP request.
      * @param branchId  ID of the branch.
      * @param articleId ID of the article.
      * @return Article.
      */
     @Tag(name = "catalog")
     @Get("/{branchId}/{articleId}")
-    public Article get(final long branchId, final long articleId) {
-        final Article article = productCatalog.getById(branchId, articleId);
-        LOG.info("REST: Article {} from branch {} {}.",
-                articleId, branchId, article != null ? "returned" : "not found");
-        return article;
+    public HttpResponse<Article> get(final HttpRequest<?> request, final long branchId, final long articleId) {
+        final VersionedArticle versioned = productCatalog.getVersioned(branchId, articleId);
+        if (versioned == null) {
+            LOG.info("REST: Article {} from branch {} not found.", articleId, branchId);
+            return HttpResponse.notFound();
+        }
+        final String etag = ETags.of(versioned.version());
+        if (ETags.matches(request, etag)) {
+            LOG.info("REST: Article {} from branch {} not modified.", articleId, branchId);
+            return HttpResponse.notModified();
+        }
+        LOG.info("REST: Article {} from branch {} returned.", articleId, branchId);
+        return HttpResponse.ok(versioned.article()).header(HttpHeaders.ETAG, etag);
     }
 
     /**
@@ -115,6 +187,42 @@ public final class ProductCatalogController {
         return updated;
     }
 
+    /**
+     * Adds or updates multiple articles in the product catalog of the branch.
+     * <p>
+     * Existing articles get the new name, price and minimum stock, new articles are added with their stock.
+     * A batch of more than 1000 articles is rejected with 413 Request Entity Too Large.
+     * <p>
+     * Roles: Branch Manager
+     *
+     * @param branchId ID of the branch.
+     * @param articles Articles.
+     * @return Result of every article.
+     */
+    @Tag(name = "catalog")
+    @Post("/{branchId}/batch")
+    public List<UpsertResult> createAll(final long branchId, @Body final List<Article> articles) {
+        return upsertAll(branchId, articles, true);
+    }
+
+    /**
+     * Updates multiple existing articles in the product catalog of the branch.
+     * <p>
+     * The articles get the new name, price and minimum stock, missing articles are reported as not found.
+     * A batch of more than 1000 articles is rejected with 413 Request Entity Too Large.
+     * <p>
+     * Roles: Branch Manager
+     *
+     * @param branchId ID of the branch.
+     * @param articles Articles.
+     * @return Result of every article.
+     */
+    @Tag(name = "catalog")
+    @Patch("/{branchId}/batch")
+    public List<UpsertResult> updateAll(final long branchId, @Body final List<Article> articles) {
+        return upsertAll(branchId, articles, false);
+    }
+
     /**
      * Removes an article from the product catalog.
      * <p>
@@ -133,4 +241,32 @@ public final class ProductCatalogController {
             this.eventLogger.sendMessage(Routes.LOG_EVENT, new LogEventDTO(branchId, "article.removed", message));
         }
     }
+
+    /**
+     * Writes the articles with a single batch and logs a single event for the batch, oversized batches are rejected.
+     *
+     * @param branchId ID of the branch.
+     * @param articles Articles.
+     * @param create   True if missing articles are created.
+     * @return Result of every article.
+     */
+    private List<UpsertResult> upsertAll(final long branchId, final List<Article> articles, final boolean create) {
+        if (articles.size() > MAX_BATCH) {
+            LOG.info("REST: Batch of {} articles for branch {} rejected.", articles.size(), branchId);
+            throw new HttpStatusException(HttpStatus.REQUEST_ENTITY_TOO_LARGE,
+                    "batch should not contain more than " + MAX_BATCH + " articles");
+        }
+        final List<UpsertResult> results = productCatalog.upsertAll(branchId, articles, create);
+        Map<UpsertStatus, Long> counts = results.stream()
+                .collect(Collectors.groupingBy(UpsertResult::status, () -> new EnumMap<>(UpsertStatus.class),
+                        Collectors.counting()));
+        LOG.info("REST: Batch of {} articles for branch {} written: {}.", articles.size(), branchId, counts);
+        String message = "Batch of " + articles.size() + " articles written to catalog: "
+                + counts.getOrDefault(UpsertStatus.CREATED, 0L) + " added, "
+                + counts.getOrDefault(UpsertStatus.UPDATED, 0L) + " changed, "
+                + counts.getOrDefault(UpsertStatus.NOT_FOUND, 0L) + " not found, "
+                + counts.getOrDefault(UpsertStatus.FAILED, 0L) + " failed";
+        this.eventLogger.sendMessage(Routes.LOG_EVENT, new LogEventDTO(branchId, "article.batch", message));
+        return results;
+    }
 }
@@ -1,5 +1,6 @@
 package ch.hslu.swda.micronaut;
 
+import ch.hslu.swda.business.ReorderProjection;
 import ch.hslu.swda.business.Reorders;
 import ch.hslu.swda.entities.Reorder;
 import ch.hslu.swda.entities.ReorderStatus;
@@ -36,21 +37,32 @@ public final class ReordersController {
     }
 
     /**
-     * Get all reorders of the branch.
+     * Get all reorders of the branch, ordered by reorder ID.
+     * <p>
+     * With a limit the reorders are returned page by page, a full page links to the next page in the Link header.
      * <p>
      * Roles: Branch Manager
      *
+     * @param request  HTTP request.
      * @param branchId ID of the branch.
      * @param status   Status filter of the reorders.
-     * @return List of all reorders.
+     * @param after    Reorder ID of the last reorder on the previous page.
+     * @param limit    Number of reorders per page, at most 1000, all reorders if not set.
+     * @param fields   Comma separated fields of the reorders, all fields if not set.
+     * @return Reorders on the page.
      */
     @Tag(name = "reorder")
     @Get("/{branchId}")
-    public List<Reorder> getAll(final long branchId, @QueryValue("status") @Nullable final ReorderStatus status) {
-        final List<Reorder> result = reorders.getAllByBranch(branchId, status);
-        LOG.info("REST: All {} reorders from branch {}{} returned.", result.size(), branchId,
+    public HttpResponse<List<ReorderProjection>> getAll(final HttpRequest<?> request, final long branchId,
+                                                        @QueryValue("status") @Nullable final ReorderStatus status,
+                                                        @QueryValue("after") @Nullable final Long after,
+                                                        @QueryValue("limit") @Nullable final Integer limit,
+                                                        @QueryValue("fields") @Nullable final List<String> fields) {
+        final List<ReorderProjection> result = reorders.getPage(branchId, status, after, Pages.limit(limit),
+                Pages.fields(fields));
+        LOG.info("REST: {} reorders from branch {}{} returned.", result.size(), branchId,
                 status != null ? " with status " + status : "");
-        return result;
+        return Pages.response(request, result, ReorderProjection::reorderId, limit);
     }
 
     /**
@@ -0,0 +1,116 @@
+package ch.hslu.swda.bus;
+
+import ch.hslu.swda.bus.PublisherConfirms.PendingMessage;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Test cases for the publisher confirms tracking.
+ */
+final class PublisherConfirmsTest {
+
+    private static PendingMessage message() {
+        return new PendingMessage("exchange", "route", new byte[0], new CompletableFuture<>(), 1);
+    }
+
+    @Test
+    void testInvalidArguments() {
+        assertThatThrownBy(() -> new PublisherConfirms(0, 0))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("windowSize should not be lower than 1");
+        assertThatThrownBy(() -> new PublisherConfirms(1, -1))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("maxRetries should not be lower than 0");
+    }
+
+    @Test
+    void testAckSingle() throws IOException {
+        PublisherConfirms confirms = new PublisherConfirms(2, 0);
+        PendingMessage first = message();
+        PendingMessage second = message();
+        confirms.acquire();
+        confirms.track(1L, first);
+        confirms.acquire();
+        confirms.track(2L, second);
+        confirms.ack(2L, false);
+        assertThat(first.future()).isNotDone();
+        assertThat(second.future()).isCompleted();
+        assertThat(confirms.outstanding()).isEqualTo(1);
+    }
+
+    @Test
+    void testAckMultiple() throws IOException {
+        PublisherConfirms confirms = new PublisherConfirms(3, 0);
+        List<PendingMessage> messages = List.of(message(), message(), message());
+        for (int i = 0; i < messages.size(); i++) {
+            confirms.acquire();
+            confirms.track(i + 1L, messages.get(i));
+        }
+        confirms.ack(2L, true);
+        assertThat(messages.get(0).future()).isCompleted();
+        assertThat(messages.get(1).future()).isCompleted();
+        assertThat(messages.get(2).future()).isNotDone();
+        assertThat(confirms.outstanding()).isEqualTo(1);
+    }
+
+    @Test
+    void testNackRetry() throws IOException {
+        PublisherConfirms confirms = new PublisherConfirms(1, 1);
+        PendingMessage message = message();
+        confirms.acquire();
+        confirms.track(1L, message);
+        List<PendingMessage> retries = confirms.nack(1L, false);
+        assertThat(retries).hasSize(1);
+        assertThat(retries.get(0).attempt()).isEqualTo(2);
+        assertThat(message.future()).isNotDone();
+
+        confirms.track(2L, retries.get(0));
+        assertThat(confirms.nack(2L, false)).isEmpty();
+        assertThat(message.future()).isCompletedExceptionally();
+        assertThat(confirms.outstanding()).isZero();
+    }
+
+    @Test
+    void testAbandonRetry() throws IOException {
+        PublisherConfirms confirms = new PublisherConfirms(1, 1);
+        PendingMessage message = message();
+        confirms.acquire();
+        confirms.track(1L, message);
+        PendingMessage retry = confirms.nack(1L, false).get(0);
+        confirms.abandon(retry, new IOException("closed"));
+        assertThat(message.future()).isCompletedExceptionally();
+        confirms.acquire();
+        assertThat(confirms.outstanding()).isZero();
+    }
+
+    @Test
+    void testFailAll() throws IOException {
+        PublisherConfirms confirms = new PublisherConfirms(2, 0);
+        PendingMessage message = message();
+        confirms.acquire();
+        confirms.track(1L, message);
+        confirms.failAll(new IOException("closed"));
+        assertThat(message.future()).isCompletedExceptionally();
+        assertThat(confirms.outstanding()).isZero();
+    }
+
+    @Test
+    void testWindowReleased() throws IOException {
+        PublisherConfirms confirms = new PublisherConfirms(1, 0);
+        PendingMessage message = message();
+        confirms.acquire();
+        confirms.track(1L, message);
+        confirms.fail(1L, message, new IOException("failed"));
+        confirms.fail(1L, message, new IOException("failed"));
+        confirms.acquire();
+        confirms.track(2L, message());
+        confirms.ack(2L, false);
+        assertThat(confirms.outstanding()).isZero();
+    }
+}
@@ -56,4 +56,56 @@ final class RabbitMqConfigTest {
         assertThat(new RabbitMqConfig("rabbitmq.test.properties").getExchange()).isEqualTo("4444");
     }
 
+    /**
+     * Test method for {@link ch.hslu.swda.bus.RabbitMqConfig#getDeadLetterExchange()}.
+     */
+    @Test
+    void testGetDeadLetterExchangeDefault() {
+        assertThat(new RabbitMqConfig("rabbitmq.test.properties").getDeadLetterExchange()).isEqualTo("4444.dead");
+    }
+
+    /**
+     * Test method for {@link ch.hslu.swda.bus.RabbitMqConfig#getConfirmWindow()}.
+     */
+    @Test
+    void testGetConfirmWindow() {
+        assertThat(new RabbitMqConfig("rabbitmq.test.properties").getConfirmWindow()).isEqualTo(5555);
+    }
+
+    /**
+     * Test method for {@link ch.hslu.swda.bus.RabbitMqConfig#getConfirmRetries()}.
+     */
+    @Test
+    void testGetConfirmRetriesDefault() {
+        assertThat(new RabbitMqConfig("rabbitmq.test.properties").getConfirmRetries()).isEqualTo(3);
+    }
+
+    /**
+     * Test method for {@link ch.hslu.swda.bus.RabbitMqConfig#getQueueCountInterval()}.
+     */
+    @Test
+    void testGetQueueCountIntervalDefault() {
+        assertThat(new RabbitMqConfig("rabbitmq.test.properties").getQueueCountInterval()).isEqualTo(15);
+    }
+
+    /**
+     * Test method for {@link ch.hslu.swda.bus.RabbitMqConfig#getPrefetch(String)}.
+     */
+    @Test
+    void testGetPrefetch() {
+        RabbitMqConfig config = new RabbitMqConfig("rabbitmq.test.properties");
+        assertThat(config.getPrefetch("article.get")).isEqualTo(20);
+        assertThat(config.getPrefetch("order.warehouse")).isEqualTo(10);
+    }
+
+    /**
+     * Test method for {@link ch.hslu.swda.bus.RabbitMqConfig#getWorkers(String)}.
+     */
+    @Test
+    void testGetWorkers() {
+        RabbitMqConfig config = new RabbitMqConfig("rabbitmq.test.properties");
+        assertThat(config.getWorkers("order.warehouse")).isEqualTo(1);
+        assertThat(config.getWorkers("article.get")).isEqualTo(Runtime.getRuntime().availableProcessors());
+    }
+
 }
@@ -0,0 +1,260 @@
+package ch.hslu.swda.business;
+
+import ch.hslu.swda.entities.Article;
+import ch.hslu.swda.entities.WarehouseEntity;
+import com.mongodb.MongoClientSettings;
+import com.mongodb.MongoCommandException;
+import com.mongodb.ServerAddress;
+import com.mongodb.client.ChangeStreamIterable;
+import com.mongodb.client.FindIterable;
+import com.mongodb.client.MongoChangeStreamCursor;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.BsonDocument;
+import org.bson.BsonDocumentReader;
+import org.bson.BsonInt32;
+import org.bson.BsonObjectId;
+import org.bson.BsonString;
+import org.bson.Document;
+import org.bson.codecs.DecoderContext;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Test cases for the change streams.
+ * <p>
+ * The collections, change streams and cursors of the driver are replaced by proxies, every opened cursor either fails
+ * or returns the next scripted changes.
+ */
+class ChangeStreamsTest {
+
+    private static final String INSTANCE = "test";
+    private static final String TOKEN_ID = INSTANCE + "/" + ProductCatalogDB.COLLECTION;
+    private static final BsonDocument IDLE_TOKEN = token("idle");
+
+    private final Map<String, Document> tokens = new ConcurrentHashMap<>();
+    private final Queue<Cursor> cursors = new ConcurrentLinkedQueue<>();
+    private final List<BsonDocument> resumedAfter = new CopyOnWriteArrayList<>();
+    private final AtomicInteger opened = new AtomicInteger();
+    private final List<ChangeStreamDocument<Document>> changes = new CopyOnWriteArrayList<>();
+    private final AtomicInteger resets = new AtomicInteger();
+    private ChangeStreams changeStreams;
+
+    /**
+     * Cursor to open, fails with the error code if it is not zero.
+     */
+    private record Cursor(int errorCode, List<ChangeStreamDocument<Document>> changes) {
+    }
+
+    @BeforeEach
+    void initializeEnv() {
+        changeStreams = new ChangeStreams(name -> ChangeStreams.COLLECTION.equals(name) ? tokenCollection()
+                : watchedCollection(), INSTANCE);
+    }
+
+    @AfterEach
+    void closeChangeStreams() {
+        changeStreams.close();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(final Class<?> type, final InvocationHandler handler) {
+        return (T) Proxy.newProxyInstance(ChangeStreamsTest.class.getClassLoader(), new Class<?>[]{type}, handler);
+    }
+
+    private MongoCollection<Document> tokenCollection() {
+        return proxy(MongoCollection.class, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "find":
+                    return proxy(FindIterable.class, (found, first, none) -> tokens.get(TOKEN_ID));
+                case "replaceOne":
+                    tokens.put(TOKEN_ID, (Document) args[1]);
+                    return null;
+                case "deleteOne":
+                    tokens.remove(TOKEN_ID);
+                    return null;
+                default:
+                    throw new UnsupportedOperationException(method.getName());
+            }
+        });
+    }
+
+    private MongoCollection<Document> watchedCollection() {
+        return proxy(MongoCollection.class, (collection, watch, none) -> {
+            ChangeStreamIterable<Document> stream = proxy(ChangeStreamIterable.class, (proxy, method, args) -> {
+                switch (method.getName()) {
+                    case "fullDocument", "maxAwaitTime":
+                        return proxy;
+                    case "resumeAfter":
+                        resumedAfter.add((BsonDocument) args[0]);
+                        return proxy;
+                    case "cursor":
+                        return open();
+                    default:
+                        throw new UnsupportedOperationException(method.getName());
+                }
+            });
+            return stream;
+        });
+    }
+
+    private MongoChangeStreamCursor<ChangeStreamDocument<Document>> open() {
+        opened.incrementAndGet();
+        Cursor cursor = cursors.poll();
+        if (cursor != null && cursor.errorCode() != 0) {
+            throw new MongoCommandException(new BsonDocument("ok", new BsonInt32(0))
+                    .append("code", new BsonInt32(cursor.errorCode()))
+                    .append("errmsg", new BsonString("Failed")), new ServerAddress());
+        }
+        Queue<ChangeStreamDocument<Document>> pending = new ConcurrentLinkedQueue<>(
+                cursor != null ? cursor.changes() : List.of());
+        AtomicReference<BsonDocument> resumeToken = new AtomicReference<>(IDLE_TOKEN);
+        return proxy(MongoChangeStreamCursor.class, (proxy, method, args) -> switch (method.getName()) {
+            case "tryNext" -> {
+                ChangeStreamDocument<Document> change = pending.poll();
+                if (change != null) {
+                    resumeToken.set(change.getResumeToken());
+                } else {
+                    TimeUnit.MILLISECONDS.sleep(10);
+                }
+                yield change;
+            }
+            case "getResumeToken" -> resumeToken.get();
+            case "close" -> null;
+            default -> throw new UnsupportedOperationException(method.getName());
+        });
+    }
+
+    private static BsonDocument token(final String data) {
+        return new BsonDocument("_data", new BsonString(data));
+    }
+
+    private static ChangeStreamDocument<Document> change(final String token, final Document document) {
+        BsonDocument event = new BsonDocument("_id", token(token))
+                .append("operationType", new BsonString("update"))
+                .append("ns", new BsonDocument("db", new BsonString("warehouse"))
+                        .append("coll", new BsonString(ProductCatalogDB.COLLECTION)))
+                .append("documentKey", new BsonDocument("_id", new BsonObjectId(new ObjectId())))
+                .append("fullDocument", document.toBsonDocument());
+        return ChangeStreamDocument.createCodec(Document.class, MongoClientSettings.getDefaultCodecRegistry())
+                .decode(new BsonDocumentReader(event), DecoderContext.builder().build());
+    }
+
+    private ChangeListener listener() {
+        return new ChangeListener() {
+            @Override
+            public void onChange(final ChangeStreamDocument<Document> change) {
+                changes.add(change);
+            }
+
+            @Override
+            public void onReset() {
+                resets.incrementAndGet();
+            }
+        };
+    }
+
+    private void storeToken(final String data) {
+        tokens.put(TOKEN_ID, new Document("_id", TOKEN_ID).append("token", new Document("_data", data)));
+    }
+
+    private boolean isTokenSaved(final BsonDocument token) {
+        Document stored = tokens.get(TOKEN_ID);
+        return stored != null && token.equals(stored.get("token"));
+    }
+
+    private static boolean isWatching() {
+        return Thread.getAllStackTraces().keySet().stream()
+                .anyMatch(thread -> thread.getName().equals("change-stream-" + ProductCatalogDB.COLLECTION));
+    }
+
+    private static void await(final BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            assertThat(System.nanoTime()).isLessThan(deadline);
+            TimeUnit.MILLISECONDS.sleep(10);
+        }
+    }
+
+    @Test
+    void testInstanceFromMap() {
+        assertThat(ChangeStreams.instanceFromMap(Map.of())).isEqualTo("warehouse");
+        assertThat(ChangeStreams.instanceFromMap(Map.of("HOSTNAME", "c0ffee"))).isEqualTo("c0ffee");
+        assertThat(ChangeStreams.instanceFromMap(Map.of("HOSTNAME", "c0ffee", "INSTANCE_ID", "warehouse-1")))
+                .isEqualTo("warehouse-1");
+    }
+
+    @Test
+    void testChangeSavesToken() throws InterruptedException {
+        ChangeStreamDocument<Document> change = change("1", new Document("branchId", 1L));
+        cursors.add(new Cursor(0, List.of(change)));
+        changeStreams.subscribe(ProductCatalogDB.COLLECTION, listener());
+        await(() -> isTokenSaved(token("1")));
+        assertThat(changes).containsExactly(change);
+        assertThat(resets.get()).isEqualTo(1);
+        assertThat(resumedAfter).isEmpty();
+    }
+
+    @Test
+    void testResumeAfterStoredToken() throws InterruptedException {
+        storeToken("0");
+        changeStreams.subscribe(ProductCatalogDB.COLLECTION, listener());
+        await(() -> isTokenSaved(IDLE_TOKEN));
+        assertThat(resumedAfter).containsExactly(token("0"));
+        assertThat(resets.get()).isZero();
+    }
+
+    @Test
+    void testNoReplicaSetStopsWatching() throws InterruptedException {
+        storeToken("0");
+        cursors.add(new Cursor(40573, List.of()));
+        changeStreams.subscribe(ProductCatalogDB.COLLECTION, listener());
+        await(() -> !isWatching());
+        assertThat(opened.get()).isEqualTo(1);
+        assertThat(tokens).containsKey(TOKEN_ID);
+        assertThat(resets.get()).isZero();
+    }
+
+    @Test
+    void testHistoryLostRestartsWithoutToken() throws InterruptedException {
+        storeToken("0");
+        cursors.add(new Cursor(286, List.of()));
+        changeStreams.subscribe(ProductCatalogDB.COLLECTION, listener());
+        await(() -> isTokenSaved(IDLE_TOKEN));
+        assertThat(opened.get()).isEqualTo(2);
+        assertThat(resumedAfter).containsExactly(token("0"));
+        assertThat(resets.get()).isEqualTo(1);
+    }
+
+    @Test
+    void testChangeRefreshesCache() throws InterruptedException {
+        ProductCatalog delegate = new ProductCatalogMemory();
+        delegate.create(1L, new Article(100001L, "Article 1", new BigDecimal("1.50"), 5, 10, 2));
+        ProductCatalogCache cache = new ProductCatalogCache(delegate, new SimpleMeterRegistry(), 2);
+        assertThat(cache.getById(1L, 100001L).stock()).isEqualTo(10);
+        Article changed = new Article(100001L, "Article 1", new BigDecimal("1.50"), 5, 42, 2);
+        cursors.add(new Cursor(0, List.of(change("1", new WarehouseEntity<>(1L, changed).toDocument()))));
+        changeStreams.subscribe(ProductCatalogDB.COLLECTION, cache.changeListener());
+        await(() -> cache.getById(1L, 100001L).stock() == 42);
+        assertThat(delegate.getById(1L, 100001L).stock()).isEqualTo(10);
+    }
+}
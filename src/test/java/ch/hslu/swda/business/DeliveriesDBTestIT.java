@@ -5,6 +5,7 @@ import ch.hslu.swda.entities.DeliveryArticle;
 import ch.hslu.swda.entities.DeliveryArticleStatus;
 import ch.hslu.swda.entities.DeliveryStatus;
 import ch.hslu.swda.entities.WarehouseEntity;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.testcontainers.containers.GenericContainer;
@@ -15,6 +16,7 @@ import org.testcontainers.utility.DockerImageName;
 
 import java.time.Duration;
 import java.util.List;
+import java.util.stream.Stream;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -27,6 +29,7 @@ class DeliveriesDBTestIT {
     private static final String IMAGE = "mongo:4.2.24";
 
     private Deliveries deliveriesDB;
+    private MongoDBConnector connector;
     private List<DeliveryArticle> articles;
 
     @Container
@@ -42,13 +45,19 @@ class DeliveriesDBTestIT {
         articles = List.of(article1, article2);
 
         String host = mongoContainer.getHost() + ":" + mongoContainer.getMappedPort(27017);
-        deliveriesDB = new DeliveriesDB(new MongoDBConnector(DeliveriesDB.COLLECTION, host, "", ""));
+        connector = new MongoDBConnector(host, "", "");
+        deliveriesDB = new DeliveriesDB(connector);
         Delivery delivery1 = new Delivery(1L, DeliveryStatus.NEW, articles);
         Delivery delivery2 = new Delivery(2L, DeliveryStatus.COMPLETED, articles);
         deliveriesDB.create(1L, delivery1);
         deliveriesDB.create(1L, delivery2);
     }
 
+    @AfterEach
+    void closeConnector() {
+        connector.close();
+    }
+
     @Test
     void testGetByIdExisting() {
         Delivery existing = new Delivery(1L, DeliveryStatus.NEW, articles);
@@ -66,6 +75,16 @@ class DeliveriesDBTestIT {
         assertThat(delivery).isNull();
     }
 
+    @Test
+    void testGetVersion() {
+        assertThat(deliveriesDB.getVersion(1L, 1L)).isEqualTo(1L);
+        assertThat(deliveriesDB.getVersion(2L, 1L)).isNull();
+        deliveriesDB.updateStatus(1L, 1L, DeliveryStatus.WAITING);
+        deliveriesDB.update(1L, 1L, new Delivery(1L, DeliveryStatus.READY, articles));
+        assertThat(deliveriesDB.getVersion(1L, 1L)).isEqualTo(3L);
+        assertThat(deliveriesDB.getVersion(1L, 2L)).isEqualTo(1L);
+    }
+
     @Test
     void testGetAllByBranch() {
         List<Delivery> deliveries = deliveriesDB.getAllByBranch(1L, null);
@@ -78,6 +97,18 @@ class DeliveriesDBTestIT {
         assertThat(deliveries).isEmpty();
     }
 
+    @Test
+    void testGetPage() {
+        deliveriesDB.create(1L, new Delivery(3L, DeliveryStatus.NEW, articles));
+        List<DeliveryProjection> first = deliveriesDB.getPage(1L, null, null, 2, List.of("status"));
+        assertThat(first).extracting(DeliveryProjection::orderNumber).containsExactly(1L, 2L);
+        assertThat(first.get(0).status()).isNotNull();
+        assertThat(first.get(0).articles()).isNull();
+        List<DeliveryProjection> second = deliveriesDB.getPage(1L, DeliveryStatus.NEW, 2L, 2, List.of());
+        assertThat(second).extracting(DeliveryProjection::orderNumber).containsExactly(3L);
+        assertThat(second.get(0).articles()).isEqualTo(articles);
+    }
+
     @Test
     void testGetAllByBranchWithStatus() {
         List<Delivery> deliveries = deliveriesDB.getAllByBranch(1L, DeliveryStatus.COMPLETED);
@@ -104,6 +135,26 @@ class DeliveriesDBTestIT {
         assertThat(deliveries).isEmpty();
     }
 
+    @Test
+    void testStreamByStatusInBatches() {
+        Deliveries batched = new DeliveriesDB(connector.collection(DeliveriesDB.COLLECTION), 2);
+        for (long orderNumber = 3L; orderNumber <= 7L; orderNumber++) {
+            batched.create(2L, new Delivery(orderNumber, DeliveryStatus.NEW, articles));
+        }
+        try (Stream<WarehouseEntity<Delivery>> deliveries = batched.streamByStatus(DeliveryStatus.NEW)) {
+            assertThat(deliveries.map(entity -> ((Delivery) entity.entity()).orderNumber()))
+                    .containsExactlyInAnyOrder(1L, 3L, 4L, 5L, 6L, 7L);
+        }
+    }
+
+    @Test
+    void testStreamByBranchInBatches() {
+        Deliveries batched = new DeliveriesDB(connector.collection(DeliveriesDB.COLLECTION), 1);
+        try (Stream<Delivery> deliveries = batched.streamByBranch(1L, null)) {
+            assertThat(deliveries.map(Delivery::orderNumber)).containsExactlyInAnyOrder(1L, 2L);
+        }
+    }
+
     @Test
     void testCreateExisting() {
         Delivery delivery = new Delivery(1L, DeliveryStatus.WAITING, List.of(articles.get(0)));
@@ -171,6 +222,52 @@ class DeliveriesDBTestIT {
         assertThat(updated).isNull();
     }
 
+    @Test
+    void testUpdateAll() {
+        Delivery delivery1 = new Delivery(1L, DeliveryStatus.MODIFIED, List.of(articles.get(0)));
+        Delivery delivery5 = new Delivery(5L, DeliveryStatus.MODIFIED, articles);
+        int updated = deliveriesDB.updateAll(List.of(new WarehouseEntity<>(1L, delivery1),
+                new WarehouseEntity<>(1L, delivery5)), DeliveryStatus.NEW, false);
+        assertThat(updated).isEqualTo(1);
+        assertThat(deliveriesDB.getAllByBranch(1L, null)).hasSize(2);
+        assertThat(deliveriesDB.getById(1L, 1L).status()).isEqualTo(DeliveryStatus.MODIFIED);
+        assertThat(deliveriesDB.getById(1L, 1L).articles()).hasSize(1);
+        assertThat(deliveriesDB.getById(1L, 5L)).isNull();
+    }
+
+    @Test
+    void testUpdateAllChanged() {
+        Delivery delivery1 = new Delivery(1L, DeliveryStatus.WAITING, List.of(articles.get(0)));
+        int updated = deliveriesDB.updateAll(List.of(new WarehouseEntity<>(1L, delivery1)),
+                DeliveryStatus.MODIFIED, false);
+        assertThat(updated).isZero();
+        assertThat(deliveriesDB.getById(1L, 1L).status()).isEqualTo(DeliveryStatus.NEW);
+        assertThat(deliveriesDB.getById(1L, 1L).articles()).hasSize(2);
+    }
+
+    @Test
+    void testUpdateStatusAll() {
+        Delivery delivery1 = new Delivery(1L, DeliveryStatus.READY, List.of());
+        Delivery delivery2 = new Delivery(2L, DeliveryStatus.WAITING, List.of());
+        int updated = deliveriesDB.updateStatusAll(List.of(new WarehouseEntity<>(1L, delivery1),
+                new WarehouseEntity<>(1L, delivery2)), DeliveryStatus.NEW, false);
+        assertThat(updated).isEqualTo(1);
+        assertThat(deliveriesDB.getById(1L, 1L).status()).isEqualTo(DeliveryStatus.READY);
+        assertThat(deliveriesDB.getById(1L, 1L).articles()).hasSize(2);
+        assertThat(deliveriesDB.getById(1L, 2L).status()).isEqualTo(DeliveryStatus.COMPLETED);
+    }
+
+    @Test
+    void testDeleteAll() {
+        Delivery delivery1 = new Delivery(1L, DeliveryStatus.NEW, articles);
+        Delivery delivery5 = new Delivery(5L, DeliveryStatus.NEW, articles);
+        int removed = deliveriesDB.deleteAll(List.of(new WarehouseEntity<>(1L, delivery1),
+                new WarehouseEntity<>(1L, delivery5)), DeliveryStatus.NEW, true);
+        assertThat(removed).isEqualTo(1);
+        assertThat(deliveriesDB.getAllByBranch(1L, null)).hasSize(1);
+        assertThat(deliveriesDB.getById(1L, 1L)).isNull();
+    }
+
     @Test
     void testDeleteExisting() {
         boolean result = deliveriesDB.delete(1L, 1L);
@@ -185,4 +282,11 @@ class DeliveriesDBTestIT {
         assertThat(result).isFalse();
         assertThat(deliveriesDB.getAllByBranch(1L, null)).hasSize(2);
     }
+
+    @Test
+    void testIndexesProvisioned() {
+        MongoDBIndexes indexes = new MongoDBIndexes(connector.collection(DeliveriesDB.COLLECTION),
+                DeliveriesDB.INDEXES);
+        assertThat(indexes.verify()).isEmpty();
+    }
 }
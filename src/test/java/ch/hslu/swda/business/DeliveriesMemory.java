@@ -5,24 +5,31 @@ import ch.hslu.swda.entities.DeliveryStatus;
 import ch.hslu.swda.entities.WarehouseEntity;
 
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Stream;
 
 /**
- * In-memory implementation of the deliveries used for testing.
+ * In-memory implementation of the deliveries used for testing, synchronized for the load generator.
  */
 public final class DeliveriesMemory implements Deliveries {
 
     private final Map<Long, Delivery> deliveries = new HashMap<>();
 
     @Override
-    public Delivery getById(final long branchId, final long orderNumber) {
+    public synchronized Delivery getById(final long branchId, final long orderNumber) {
         return branchId == 1 ? deliveries.get(orderNumber) : null;
     }
 
     @Override
-    public List<Delivery> getAllByBranch(final long branchId, final DeliveryStatus status) {
+    public synchronized Long getVersion(final long branchId, final long orderNumber) {
+        return getById(branchId, orderNumber) != null ? 0L : null;
+    }
+
+    @Override
+    public synchronized List<Delivery> getAllByBranch(final long branchId, final DeliveryStatus status) {
         List<Delivery> result = new ArrayList<>(deliveries.values());
         if (status != null) {
             result = result.stream().filter(d -> d.status() == status).toList();
@@ -31,7 +38,7 @@ public final class DeliveriesMemory implements Deliveries {
     }
 
     @Override
-    public List<WarehouseEntity<Delivery>> getAllByStatus(final DeliveryStatus status) {
+    public synchronized List<WarehouseEntity<Delivery>> getAllByStatus(final DeliveryStatus status) {
         List<Delivery> result = new ArrayList<>(deliveries.values());
         if (status != null) {
             result = result.stream().filter(d -> d.status() == status).toList();
@@ -40,7 +47,29 @@ public final class DeliveriesMemory implements Deliveries {
     }
 
     @Override
-    public Delivery create(final long branchId, final Delivery delivery) {
+    public synchronized Stream<Delivery> streamByBranch(final long branchId, final DeliveryStatus status) {
+        return getAllByBranch(branchId, status).stream();
+    }
+
+    @Override
+    public synchronized List<DeliveryProjection> getPage(final long branchId, final DeliveryStatus status,
+                                                         final Long after, final int limit,
+                                                         final List<String> fields) {
+        return getAllByBranch(branchId, status).stream()
+                .filter(d -> after == null || d.orderNumber() > after)
+                .sorted(Comparator.comparingLong(Delivery::orderNumber))
+                .limit(MongoDBPage.limit(limit) > 0 ? MongoDBPage.limit(limit) : Long.MAX_VALUE)
+                .map(d -> new DeliveryProjection(DeliveriesDB.PAGE.select(d.toDocument(), fields)))
+                .toList();
+    }
+
+    @Override
+    public synchronized Stream<WarehouseEntity<Delivery>> streamByStatus(final DeliveryStatus status) {
+        return getAllByStatus(status).stream();
+    }
+
+    @Override
+    public synchronized Delivery create(final long branchId, final Delivery delivery) {
         Delivery created = null;
         if (branchId == 1) {
             if (!deliveries.containsKey(delivery.orderNumber())) {
@@ -54,7 +83,7 @@ public final class DeliveriesMemory implements Deliveries {
     }
 
     @Override
-    public Delivery update(final long branchId, final long orderNumber, final Delivery delivery) {
+    public synchronized Delivery update(final long branchId, final long orderNumber, final Delivery delivery) {
         Delivery updated = null;
         if (branchId == 1 && deliveries.containsKey(orderNumber)) {
             updated = new Delivery(orderNumber, delivery.status(), delivery.articles());
@@ -65,7 +94,8 @@ public final class DeliveriesMemory implements Deliveries {
     }
 
     @Override
-    public Delivery updateStatus(final long branchId, final long orderNumber, final DeliveryStatus status) {
+    public synchronized Delivery updateStatus(final long branchId, final long orderNumber,
+                                              final DeliveryStatus status) {
         Delivery updated = null;
         if (branchId == 1) {
             Delivery exists = deliveries.get(orderNumber);
@@ -78,10 +108,55 @@ public final class DeliveriesMemory implements Deliveries {
     }
 
     @Override
-    public boolean delete(final long branchId, final long orderNumber) {
+    public synchronized int updateAll(final List<WarehouseEntity<Delivery>> deliveries,
+                                      final DeliveryStatus expected, final boolean ordered) {
+        int result = 0;
+        for (WarehouseEntity<Delivery> entity : deliveries) {
+            Delivery delivery = (Delivery) entity.entity();
+            if (hasStatus(entity, expected) && update(entity.branchId(), delivery.orderNumber(), delivery) != null) {
+                result++;
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public synchronized int updateStatusAll(final List<WarehouseEntity<Delivery>> deliveries,
+                                            final DeliveryStatus expected, final boolean ordered) {
+        int result = 0;
+        for (WarehouseEntity<Delivery> entity : deliveries) {
+            Delivery delivery = (Delivery) entity.entity();
+            if (hasStatus(entity, expected)
+                    && updateStatus(entity.branchId(), delivery.orderNumber(), delivery.status()) != null) {
+                result++;
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public synchronized boolean delete(final long branchId, final long orderNumber) {
         if (branchId == 1) {
             deliveries.remove(orderNumber);
         }
         return branchId == 1;
     }
+
+    @Override
+    public synchronized int deleteAll(final List<WarehouseEntity<Delivery>> deliveries,
+                                      final DeliveryStatus expected, final boolean ordered) {
+        int result = 0;
+        for (WarehouseEntity<Delivery> entity : deliveries) {
+            long orderNumber = ((Delivery) entity.entity()).orderNumber();
+            if (hasStatus(entity, expected) && this.deliveries.remove(orderNumber) != null) {
+                result++;
+            }
+        }
+        return result;
+    }
+
+    private boolean hasStatus(final WarehouseEntity<Delivery> entity, final DeliveryStatus expected) {
+        Delivery exists = entity.branchId() == 1 ? deliveries.get(((Delivery) entity.entity()).orderNumber()) : null;
+        return exists != null && exists.status() == expected;
+    }
 }
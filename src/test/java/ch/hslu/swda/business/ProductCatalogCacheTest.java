@@ -0,0 +1,231 @@
+package ch.hslu.swda.business;
+
+import ch.hslu.swda.entities.Article;
+import ch.hslu.swda.entities.DeliveryArticle;
+import ch.hslu.swda.entities.DeliveryArticleStatus;
+import ch.hslu.swda.entities.WarehouseEntity;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Test cases for the product catalog cache.
+ */
+class ProductCatalogCacheTest {
+
+    private ProductCatalog delegate;
+    private MeterRegistry registry;
+    private ProductCatalogCache cache;
+
+    @BeforeEach
+    void initializeEnv() {
+        delegate = new ProductCatalogMemory();
+        delegate.create(1L, new Article(100001L, "Article 1", new BigDecimal("1.50"), 5, 10, 2));
+        delegate.create(1L, new Article(100002L, "Article 2", new BigDecimal("2.50"), 5, 10, 2));
+        delegate.create(1L, new Article(100003L, "Article 3", new BigDecimal("3.50"), 5, 10, 2));
+        registry = new SimpleMeterRegistry();
+        cache = new ProductCatalogCache(delegate, registry, 2);
+    }
+
+    private double gets(final String result) {
+        return registry.get("cache.gets").tag("result", result).counter().count();
+    }
+
+    @Test
+    void testInvalidSize() {
+        assertThatThrownBy(() -> new ProductCatalogCache(delegate, registry, 0))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("maxSize should not be lower than 1");
+    }
+
+    @Test
+    void testSizeFromMap() {
+        assertThat(ProductCatalogCache.sizeFromMap(Map.of())).isEqualTo(ProductCatalogCache.DEFAULT_SIZE);
+        assertThat(ProductCatalogCache.sizeFromMap(Map.of("CATALOG_CACHE_SIZE", "500"))).isEqualTo(500);
+    }
+
+    @Test
+    void testTtlFromMap() {
+        assertThat(ProductCatalogCache.ttlFromMap(Map.of())).isEqualTo(ProductCatalogCache.DEFAULT_TTL);
+        assertThat(ProductCatalogCache.ttlFromMap(Map.of("CATALOG_CACHE_TTL", "5"))).isEqualTo(Duration.ofSeconds(5));
+    }
+
+    @Test
+    void testInvalidValuesFromMapUseDefaults() {
+        assertThat(ProductCatalogCache.sizeFromMap(Map.of("CATALOG_CACHE_SIZE", "many")))
+                .isEqualTo(ProductCatalogCache.DEFAULT_SIZE);
+        assertThat(ProductCatalogCache.sizeFromMap(Map.of("CATALOG_CACHE_SIZE", "0")))
+                .isEqualTo(ProductCatalogCache.DEFAULT_SIZE);
+        assertThat(ProductCatalogCache.ttlFromMap(Map.of("CATALOG_CACHE_TTL", "1m")))
+                .isEqualTo(ProductCatalogCache.DEFAULT_TTL);
+        assertThat(ProductCatalogCache.ttlFromMap(Map.of("CATALOG_CACHE_TTL", "-5")))
+                .isEqualTo(ProductCatalogCache.DEFAULT_TTL);
+    }
+
+    @Test
+    void testExpiry() {
+        cache = new ProductCatalogCache(delegate, registry, 2, Duration.ofNanos(1));
+        cache.getById(1L, 100001L);
+        delegate.changeStock(1L, 100001L, 1);
+        assertThat(cache.getById(1L, 100001L).stock()).isEqualTo(11);
+        assertThat(gets("miss")).isEqualTo(2.0);
+        assertThat(registry.get("cache.size").gauge().value()).isEqualTo(1.0);
+    }
+
+    @Test
+    void testNoExpiry() {
+        cache = new ProductCatalogCache(delegate, registry, 2, Duration.ZERO);
+        cache.getById(1L, 100001L);
+        delegate.changeStock(1L, 100001L, 1);
+        assertThat(cache.getById(1L, 100001L).stock()).isEqualTo(10);
+        assertThat(gets("hit")).isEqualTo(1.0);
+    }
+
+    @Test
+    void testGetByIdCached() {
+        assertThat(cache.getById(1L, 100001L).name()).isEqualTo("Article 1");
+        delegate.delete(1L, 100001L);
+        assertThat(cache.getById(1L, 100001L).name()).isEqualTo("Article 1");
+        assertThat(gets("miss")).isEqualTo(1.0);
+        assertThat(gets("hit")).isEqualTo(1.0);
+    }
+
+    @Test
+    void testGetByIdNotExisting() {
+        assertThat(cache.getById(1L, 100009L)).isNull();
+        assertThat(cache.getById(2L, 100001L)).isNull();
+        assertThat(gets("miss")).isEqualTo(2.0);
+    }
+
+    @Test
+    void testGetByIdsLoadsMissing() {
+        cache.getById(1L, 100001L);
+        Map<Long, Article> articles = cache.getById(1L, List.of(100001L, 100002L, 100009L));
+        assertThat(articles).containsOnlyKeys(100001L, 100002L);
+        assertThat(gets("hit")).isEqualTo(1.0);
+        assertThat(gets("miss")).isEqualTo(3.0);
+    }
+
+    @Test
+    void testEviction() {
+        cache.getById(1L, 100001L);
+        cache.getById(1L, 100002L);
+        cache.getById(1L, 100001L);
+        cache.getById(1L, 100003L);
+        assertThat(registry.get("cache.evictions").counter().count()).isEqualTo(1.0);
+        assertThat(registry.get("cache.size").gauge().value()).isEqualTo(2.0);
+        cache.getById(1L, 100001L);
+        cache.getById(1L, 100002L);
+        assertThat(gets("hit")).isEqualTo(2.0);
+        assertThat(gets("miss")).isEqualTo(4.0);
+    }
+
+    @Test
+    void testWriteThroughUpdate() {
+        cache.getById(1L, 100001L);
+        Article updated = cache.update(1L, 100001L, "Updated", new BigDecimal("9.95"), 1);
+        assertThat(updated.name()).isEqualTo("Updated");
+        assertThat(cache.getById(1L, 100001L).name()).isEqualTo("Updated");
+        assertThat(gets("hit")).isEqualTo(1.0);
+    }
+
+    @Test
+    void testWriteThroughDelete() {
+        cache.getById(1L, 100001L);
+        assertThat(cache.delete(1L, 100001L)).isTrue();
+        assertThat(cache.getById(1L, 100001L)).isNull();
+    }
+
+    @Test
+    void testWriteThroughStock() {
+        cache.getById(1L, 100001L);
+        assertThat(cache.changeStock(1L, 100001L, 5)).isTrue();
+        assertThat(cache.changeReserved(1L, 100001L, -2)).isTrue();
+        assertThat(cache.changeStock(1L, 100001L, -20)).isFalse();
+        Article article = cache.getById(1L, 100001L);
+        assertThat(article.stock()).isEqualTo(15);
+        assertThat(article.reserved()).isZero();
+        assertThat(article).usingRecursiveComparison().isEqualTo(delegate.getById(1L, 100001L));
+    }
+
+    @Test
+    void testChangeAll() {
+        cache.getById(1L, 100001L);
+        cache.getById(1L, 100002L);
+        List<ArticleChange> changes = List.of(new ArticleChange(1L, 100001L, 5, 1),
+                ArticleChange.reserved(1L, 100002L, -5));
+        assertThat(cache.changeAll(changes, false)).isEqualTo(1);
+        assertThat(cache.getById(1L, 100001L)).usingRecursiveComparison().isEqualTo(delegate.getById(1L, 100001L));
+        assertThat(cache.getById(1L, 100001L).stock()).isEqualTo(15);
+        assertThat(cache.getById(1L, 100002L).reserved()).isEqualTo(2);
+        assertThat(gets("miss")).isEqualTo(4.0);
+    }
+
+    @Test
+    void testCommitDelivery() {
+        cache.getById(1L, 100001L);
+        cache.getById(1L, 100002L);
+        List<DeliveryArticle> articles = List.of(new DeliveryArticle(100001L, 2, DeliveryArticleStatus.RESERVED),
+                new DeliveryArticle(100002L, 5, DeliveryArticleStatus.RESERVED));
+        List<DeliveryArticle> committed = cache.commitDelivery(1L, articles);
+        assertThat(committed.get(0).status()).isEqualTo(DeliveryArticleStatus.DELIVERED);
+        assertThat(committed.get(1).status()).isEqualTo(DeliveryArticleStatus.RESERVED);
+        assertThat(cache.getById(1L, 100001L)).usingRecursiveComparison().isEqualTo(delegate.getById(1L, 100001L));
+        assertThat(cache.getById(1L, 100001L).stock()).isEqualTo(8);
+        assertThat(cache.getById(1L, 100002L)).usingRecursiveComparison().isEqualTo(delegate.getById(1L, 100002L));
+        assertThat(gets("miss")).isEqualTo(2.0);
+    }
+
+    @Test
+    void testInvalidate() {
+        cache.getById(1L, 100001L);
+        delegate.changeStock(1L, 100001L, 1);
+        cache.invalidate(1L, 100001L);
+        assertThat(cache.getById(1L, 100001L).stock()).isEqualTo(11);
+        delegate.changeStock(1L, 100001L, 1);
+        cache.invalidateAll();
+        assertThat(cache.getById(1L, 100001L).stock()).isEqualTo(12);
+    }
+
+    @Test
+    void testRefreshFromChange() {
+        cache.getById(1L, 100001L);
+        Article changed = new Article(100001L, "Article 1", new BigDecimal("1.50"), 5, 42, 2);
+        delegate.changeStock(1L, 100001L, 32);
+        cache.refresh(new ObjectId(), new WarehouseEntity<>(1L, changed).toDocument());
+        assertThat(cache.getById(1L, 100001L).stock()).isEqualTo(42);
+        assertThat(gets("miss")).isEqualTo(1.0);
+    }
+
+    @Test
+    void testRefreshFromDeletion() {
+        ObjectId id = new ObjectId();
+        cache.getById(1L, 100001L);
+        cache.getById(1L, 100002L);
+        cache.refresh(id, new WarehouseEntity<>(1L, delegate.getById(1L, 100001L)).toDocument());
+        delegate.delete(1L, 100001L);
+        delegate.changeStock(1L, 100002L, 1);
+        cache.refresh(id, null);
+        assertThat(cache.getById(1L, 100001L)).isNull();
+        assertThat(cache.getById(1L, 100002L).stock()).isEqualTo(10);
+    }
+
+    @Test
+    void testRefreshFromUnknownDeletion() {
+        cache.getById(1L, 100001L);
+        cache.getById(2L, 100001L);
+        cache.refresh(new ObjectId(), null);
+        assertThat(cache.getById(1L, 100001L)).isNotNull();
+        assertThat(gets("hit")).isEqualTo(1.0);
+    }
+}
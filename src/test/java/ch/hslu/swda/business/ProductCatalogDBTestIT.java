@@ -1,6 +1,11 @@
 package ch.hslu.swda.business;
 
 import ch.hslu.swda.entities.Article;
+import ch.hslu.swda.entities.DeliveryArticle;
+import ch.hslu.swda.entities.DeliveryArticleStatus;
+import ch.hslu.swda.entities.WarehouseEntity;
+import com.mongodb.client.model.Indexes;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.testcontainers.containers.GenericContainer;
@@ -28,6 +33,7 @@ class ProductCatalogDBTestIT {
     private static final String IMAGE = "mongo:4.2.24";
 
     private ProductCatalog productCatalog;
+    private MongoDBConnector connector;
 
     @Container
     private final GenericContainer<?> mongoContainer = new GenericContainer<>(DockerImageName.parse(IMAGE))
@@ -38,13 +44,19 @@ class ProductCatalogDBTestIT {
     @BeforeEach
     void initializeEnv() {
         String host = mongoContainer.getHost() + ":" + mongoContainer.getMappedPort(27017);
-        productCatalog = new ProductCatalogDB(new MongoDBConnector(ProductCatalogDB.COLLECTION, host, "", ""));
+        connector = new MongoDBConnector(host, "", "");
+        productCatalog = new ProductCatalogDB(connector);
         Article article1 = new Article(100001L, "Test1", new BigDecimal("5.25"), 1, 1, 1);
         Article article2 = new Article(100002L, "Test2", new BigDecimal("9.95"), 2, 2, 2);
         productCatalog.create(1L, article1);
         productCatalog.create(1L, article2);
     }
 
+    @AfterEach
+    void closeConnector() {
+        connector.close();
+    }
+
     @Test
     void testGetByIdExisting() {
         Article existing = new Article(100001L, "Test1", new BigDecimal("5.25"), 1, 1, 1);
@@ -91,6 +103,25 @@ class ProductCatalogDBTestIT {
         assertThat(articles).isEmpty();
     }
 
+    @Test
+    void testGetPage() {
+        productCatalog.create(1L, new Article(100003L, "Test3", new BigDecimal("1.00"), 3, 3, 3));
+        List<ArticleProjection> first = productCatalog.getPage(1L, null, 2, List.of());
+        assertThat(first).extracting(ArticleProjection::articleId).containsExactly(100001L, 100002L);
+        assertThat(first.get(0)).hasNoNullFieldsOrProperties();
+        assertThat(first.get(0).price()).isEqualTo(new BigDecimal("5.25"));
+        List<ArticleProjection> second = productCatalog.getPage(1L, 100002L, 2, List.of());
+        assertThat(second).extracting(ArticleProjection::articleId).containsExactly(100003L);
+    }
+
+    @Test
+    void testGetPageWithFields() {
+        List<ArticleProjection> articles = productCatalog.getPage(1L, null, 0, List.of("name", "deficit"));
+        assertThat(articles).hasSize(2);
+        assertThat(articles.get(0).name()).isNotNull();
+        assertThat(articles.get(0)).hasAllNullFieldsOrPropertiesExcept("articleId", "name");
+    }
+
     @Test
     void testCreateExisting() {
         Article article = new Article(100001L, "Test", new BigDecimal("1.00"), 5, 5, 5);
@@ -151,6 +182,86 @@ class ProductCatalogDBTestIT {
         assertThat(productCatalog.getAll(1L)).hasSize(2);
     }
 
+    @Test
+    void testVersions() {
+        long catalogVersion = productCatalog.getVersion(1L);
+        assertThat(catalogVersion).isNotZero();
+        assertThat(productCatalog.getVersion(1L)).isEqualTo(catalogVersion);
+        assertThat(productCatalog.getVersion(1L, 100001L)).isEqualTo(1L);
+        assertThat(productCatalog.getVersion(1L, 100005L)).isNull();
+        assertThat(productCatalog.getVersion(2L)).isZero();
+
+        productCatalog.changeStock(1L, 100001L, 2);
+        long changedVersion = productCatalog.getVersion(1L);
+        assertThat(changedVersion).isNotEqualTo(catalogVersion);
+        productCatalog.update(1L, 100001L, "Test1", new BigDecimal("6.00"), 1);
+        assertThat(productCatalog.getVersion(1L, 100001L)).isEqualTo(3L);
+        assertThat(productCatalog.getVersion(1L, 100002L)).isEqualTo(1L);
+        assertThat(productCatalog.getVersion(1L)).isNotIn(catalogVersion, changedVersion);
+    }
+
+    @Test
+    void testGetVersioned() {
+        productCatalog.changeStock(1L, 100001L, 2);
+        VersionedArticle versioned = productCatalog.getVersioned(1L, 100001L);
+        assertThat(versioned).isNotNull();
+        assertThat(versioned.version()).isEqualTo(2L);
+        assertThat(versioned.article().stock()).isEqualTo(productCatalog.getById(1L, 100001L).stock());
+        assertThat(productCatalog.getVersioned(1L, 100005L)).isNull();
+    }
+
+    @Test
+    void testVersionsAfterRecreate() {
+        long catalogVersion = productCatalog.getVersion(1L);
+        Article article = productCatalog.getById(1L, 100002L);
+        assertThat(productCatalog.delete(1L, 100002L)).isTrue();
+        assertThat(productCatalog.getVersion(1L)).isNotEqualTo(catalogVersion);
+        productCatalog.create(1L, article);
+        assertThat(productCatalog.getVersion(1L, 100002L)).isEqualTo(1L);
+        assertThat(productCatalog.getVersion(1L)).isNotEqualTo(catalogVersion);
+    }
+
+    @Test
+    void testVersionsUnchanged() {
+        long catalogVersion = productCatalog.getVersion(1L);
+        productCatalog.changeStock(1L, 100001L, -5);
+        productCatalog.delete(1L, 100005L);
+        assertThat(productCatalog.getVersion(1L, 100001L)).isEqualTo(1L);
+        assertThat(productCatalog.getVersion(1L)).isEqualTo(catalogVersion);
+    }
+
+    @Test
+    void testUpsertAll() {
+        long catalogVersion = productCatalog.getVersion(1L);
+        List<UpsertResult> results = productCatalog.upsertAll(1L, List.of(
+                new Article(100001L, "Changed", new BigDecimal("7.50"), 3, 10, 10),
+                new Article(100005L, "New", new BigDecimal("1.00"), 2, 4, 0)), true);
+        assertThat(results).extracting(UpsertResult::status)
+                .containsExactly(UpsertStatus.UPDATED, UpsertStatus.CREATED);
+        Article updated = productCatalog.getById(1L, 100001L);
+        assertThat(updated.name()).isEqualTo("Changed");
+        assertThat(updated.price()).isEqualTo(new BigDecimal("7.50"));
+        assertThat(updated.minStock()).isEqualTo(3);
+        assertThat(updated.stock()).isEqualTo(1);
+        assertThat(updated.reserved()).isEqualTo(1);
+        assertThat(productCatalog.getById(1L, 100005L)).isNotNull();
+        assertThat(productCatalog.getById(1L, 100005L).stock()).isEqualTo(4);
+        assertThat(productCatalog.getVersion(1L, 100001L)).isEqualTo(2L);
+        assertThat(productCatalog.getVersion(1L, 100005L)).isEqualTo(1L);
+        assertThat(productCatalog.getVersion(1L)).isNotEqualTo(catalogVersion);
+        assertThat(productCatalog.getLowStock()).anyMatch(e -> e.entity().articleId() == 100001L);
+    }
+
+    @Test
+    void testUpsertAllWithoutCreate() {
+        long catalogVersion = productCatalog.getVersion(1L);
+        List<UpsertResult> results = productCatalog.upsertAll(1L, List.of(
+                new Article(100005L, "New", new BigDecimal("1.00"), 2, 4, 0)), false);
+        assertThat(results).extracting(UpsertResult::status).containsExactly(UpsertStatus.NOT_FOUND);
+        assertThat(productCatalog.getById(1L, 100005L)).isNull();
+        assertThat(productCatalog.getVersion(1L)).isEqualTo(catalogVersion);
+    }
+
     @Test
     void testChangeStockNotExisting() {
         boolean result = productCatalog.changeStock(1L, 100005L, 2);
@@ -241,6 +352,40 @@ class ProductCatalogDBTestIT {
         assertThat(productCatalog.getById(1L, 100001L).reserved()).isEqualTo(3001);
     }
 
+    @Test
+    void testChangeAll() {
+        List<ArticleChange> changes = List.of(
+                new ArticleChange(1L, 100001L, 4, -1),
+                new ArticleChange(1L, 100002L, -3, 1),
+                ArticleChange.reserved(1L, 100002L, 5),
+                ArticleChange.reserved(1L, 100005L, 1)
+        );
+        int changed = productCatalog.changeAll(changes, false);
+        assertThat(changed).isEqualTo(2);
+        assertThat(productCatalog.getById(1L, 100001L).stock()).isEqualTo(5);
+        assertThat(productCatalog.getById(1L, 100001L).reserved()).isZero();
+        assertThat(productCatalog.getById(1L, 100002L).stock()).isEqualTo(2);
+        assertThat(productCatalog.getById(1L, 100002L).reserved()).isEqualTo(7);
+    }
+
+    @Test
+    void testCommitDelivery() {
+        productCatalog.changeStock(1L, 100002L, 3);
+        List<DeliveryArticle> articles = List.of(
+                new DeliveryArticle(100001L, 1, DeliveryArticleStatus.RESERVED),
+                new DeliveryArticle(100002L, 3, DeliveryArticleStatus.RESERVED),
+                new DeliveryArticle(100003L, 1, DeliveryArticleStatus.RESERVED),
+                new DeliveryArticle(100002L, 1, DeliveryArticleStatus.DELIVERED)
+        );
+        List<DeliveryArticle> committed = productCatalog.commitDelivery(1L, articles);
+        assertThat(committed).extracting(DeliveryArticle::status).containsExactly(DeliveryArticleStatus.DELIVERED,
+                DeliveryArticleStatus.RESERVED, DeliveryArticleStatus.RESERVED, DeliveryArticleStatus.DELIVERED);
+        assertThat(productCatalog.getById(1L, 100001L).stock()).isZero();
+        assertThat(productCatalog.getById(1L, 100001L).reserved()).isZero();
+        assertThat(productCatalog.getById(1L, 100002L).stock()).isEqualTo(5);
+        assertThat(productCatalog.getById(1L, 100002L).reserved()).isEqualTo(2);
+    }
+
     @Test
     void testGetLowStock() {
         Article articleOk = new Article(100005L, "Test", new BigDecimal("1.00"), 5, 5, 0);
@@ -256,4 +401,45 @@ class ProductCatalogDBTestIT {
         assertThat(productCatalog.getLowStock().get(2).entity()).isEqualTo(articleStock);
         assertThat(productCatalog.getLowStock().get(3).entity()).isEqualTo(articleReserved);
     }
+
+    @Test
+    void testGetLowStockMaintained() {
+        productCatalog.create(2L, new Article(100005L, "Test", new BigDecimal("1.00"), 5, 5, 0));
+        assertThat(productCatalog.getLowStock()).noneMatch(e -> e.branchId() == 2L);
+        productCatalog.changeReserved(2L, 100005L, 1);
+        assertThat(productCatalog.getLowStock()).anyMatch(e -> e.branchId() == 2L);
+        productCatalog.changeAll(List.of(new ArticleChange(2L, 100005L, 2, 0)), false);
+        assertThat(productCatalog.getLowStock()).noneMatch(e -> e.branchId() == 2L);
+        productCatalog.update(2L, 100005L, "Test", new BigDecimal("1.00"), 7);
+        assertThat(productCatalog.getLowStock()).anyMatch(e -> e.branchId() == 2L);
+        productCatalog.changeStock(2L, 100005L, 1);
+        assertThat(productCatalog.getLowStock()).noneMatch(e -> e.branchId() == 2L);
+    }
+
+    @Test
+    void testDeficitAddedToExistingArticles() {
+        Article article = new Article(100005L, "Test", new BigDecimal("1.00"), 5, 4, 0);
+        connector.collection(ProductCatalogDB.COLLECTION).insertOne(new WarehouseEntity<>(2L, article).toDocument());
+        assertThat(productCatalog.getLowStock()).noneMatch(e -> e.branchId() == 2L);
+        productCatalog = new ProductCatalogDB(connector);
+        assertThat(productCatalog.getLowStock()).anyMatch(e -> e.branchId() == 2L);
+    }
+
+    @Test
+    void testIndexesProvisioned() {
+        MongoDBIndexes indexes = new MongoDBIndexes(connector.collection(ProductCatalogDB.COLLECTION),
+                ProductCatalogDB.INDEXES);
+        assertThat(indexes.verify()).isEmpty();
+    }
+
+    @Test
+    void testIndexDrift() {
+        connector.collection(ProductCatalogDB.COLLECTION).dropIndex("branchId_articleId");
+        connector.collection(ProductCatalogDB.COLLECTION).createIndex(Indexes.ascending("name"));
+        MongoDBIndexes indexes = new MongoDBIndexes(connector.collection(ProductCatalogDB.COLLECTION),
+                ProductCatalogDB.INDEXES);
+        assertThat(indexes.verify())
+                .containsExactlyInAnyOrder("index branchId_articleId is missing", "index name_1 is not expected");
+        assertThat(indexes.ensure()).containsExactly("index name_1 is not expected");
+    }
 }
@@ -1,28 +1,32 @@
 package ch.hslu.swda.business;
 
 import ch.hslu.swda.entities.Article;
+import ch.hslu.swda.entities.DeliveryArticle;
+import ch.hslu.swda.entities.DeliveryArticleStatus;
 import ch.hslu.swda.entities.WarehouseEntity;
 
 import java.math.BigDecimal;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Stream;
 
 /**
- * In-memory implementation of the product catalog used for testing.
+ * In-memory implementation of the product catalog used for testing, synchronized for the load generator.
  */
 public final class ProductCatalogMemory implements ProductCatalog {
 
     private final Map<Long, Article> catalog = new HashMap<>();
 
     @Override
-    public Article getById(final long branchId, final long articleId) {
+    public synchronized Article getById(final long branchId, final long articleId) {
         return branchId == 1 ? catalog.get(articleId) : null;
     }
 
     @Override
-    public Map<Long, Article> getById(final long branchId, final List<Long> articleIds) {
+    public synchronized Map<Long, Article> getById(final long branchId, final List<Long> articleIds) {
         Map<Long, Article> articles = new HashMap<>();
         for (long articleId : articleIds) {
             if (branchId == 1 && catalog.containsKey(articleId)) {
@@ -33,12 +37,44 @@ public final class ProductCatalogMemory implements ProductCatalog {
     }
 
     @Override
-    public List<Article> getAll(final long branchId) {
+    public synchronized long getVersion(final long branchId) {
+        return 0L;
+    }
+
+    @Override
+    public synchronized Long getVersion(final long branchId, final long articleId) {
+        return getById(branchId, articleId) != null ? 0L : null;
+    }
+
+    @Override
+    public synchronized VersionedArticle getVersioned(final long branchId, final long articleId) {
+        Article article = getById(branchId, articleId);
+        return article != null ? new VersionedArticle(article, 0L) : null;
+    }
+
+    @Override
+    public synchronized List<Article> getAll(final long branchId) {
         return branchId == 1 ? new ArrayList<>(catalog.values()) : List.of();
     }
 
     @Override
-    public Article create(final long branchId, final Article article) {
+    public synchronized Stream<Article> streamAll(final long branchId) {
+        return getAll(branchId).stream();
+    }
+
+    @Override
+    public synchronized List<ArticleProjection> getPage(final long branchId, final Long after, final int limit,
+                                                        final List<String> fields) {
+        return getAll(branchId).stream()
+                .filter(a -> after == null || a.articleId() > after)
+                .sorted(Comparator.comparingLong(Article::articleId))
+                .limit(MongoDBPage.limit(limit) > 0 ? MongoDBPage.limit(limit) : Long.MAX_VALUE)
+                .map(a -> new ArticleProjection(ProductCatalogDB.PAGE.select(a.toDocument(), fields)))
+                .toList();
+    }
+
+    @Override
+    public synchronized Article create(final long branchId, final Article article) {
         Article created = null;
         if (branchId == 1) {
             if (!catalog.containsKey(article.articleId())) {
@@ -52,8 +88,8 @@ public final class ProductCatalogMemory implements ProductCatalog {
     }
 
     @Override
-    public Article update(final long branchId, final long articleId, final String name,
-                          final BigDecimal price, final int minStock) {
+    public synchronized Article update(final long branchId, final long articleId, final String name,
+                                       final BigDecimal price, final int minStock) {
         Article updated = null;
         if (branchId == 1 && catalog.containsKey(articleId)) {
             Article exists = catalog.get(articleId);
@@ -64,7 +100,7 @@ public final class ProductCatalogMemory implements ProductCatalog {
     }
 
     @Override
-    public boolean delete(final long branchId, final long articleId) {
+    public synchronized boolean delete(final long branchId, final long articleId) {
         if (branchId == 1) {
             catalog.remove(articleId);
         }
@@ -72,7 +108,7 @@ public final class ProductCatalogMemory implements ProductCatalog {
     }
 
     @Override
-    public boolean changeStock(final long branchId, final long articleId, final int amount) {
+    public synchronized boolean changeStock(final long branchId, final long articleId, final int amount) {
         boolean result = false;
         Article article = catalog.get(articleId);
         if (branchId == 1 && article != null) {
@@ -88,7 +124,7 @@ public final class ProductCatalogMemory implements ProductCatalog {
     }
 
     @Override
-    public boolean changeReserved(final long branchId, final long articleId, final int amount) {
+    public synchronized boolean changeReserved(final long branchId, final long articleId, final int amount) {
         boolean result = false;
         Article article = catalog.get(articleId);
         if (branchId == 1 && article != null) {
@@ -104,7 +140,64 @@ public final class ProductCatalogMemory implements ProductCatalog {
     }
 
     @Override
-    public List<WarehouseEntity<Article>> getLowStock() {
+    public synchronized List<UpsertResult> upsertAll(final long branchId, final List<Article> articles,
+                                                     final boolean create) {
+        List<UpsertResult> results = new ArrayList<>();
+        for (Article article : articles) {
+            Article existing = getById(branchId, article.articleId());
+            if (existing != null) {
+                update(branchId, article.articleId(), article.name(), article.price(), article.minStock());
+                results.add(new UpsertResult(article.articleId(), UpsertStatus.UPDATED, ""));
+            } else if (create && create(branchId, article) != null) {
+                results.add(new UpsertResult(article.articleId(), UpsertStatus.CREATED, ""));
+            } else {
+                UpsertStatus status = create ? UpsertStatus.FAILED : UpsertStatus.NOT_FOUND;
+                results.add(new UpsertResult(article.articleId(), status, ""));
+            }
+        }
+        return results;
+    }
+
+    @Override
+    public synchronized int changeAll(final List<ArticleChange> changes, final boolean ordered) {
+        int result = 0;
+        for (ArticleChange change : changes) {
+            Article article = catalog.get(change.articleId());
+            if (change.branchId() == 1 && article != null) {
+                int newStock = article.stock() + change.stock();
+                int newReserved = article.reserved() + change.reserved();
+                if (newStock >= 0 && newReserved >= 0) {
+                    catalog.put(change.articleId(), new Article(change.articleId(), article.name(), article.price(),
+                            article.minStock(), newStock, newReserved));
+                    result++;
+                } else if (ordered) {
+                    break;
+                }
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public synchronized List<DeliveryArticle> commitDelivery(final long branchId,
+                                                             final List<DeliveryArticle> articles) {
+        List<DeliveryArticle> committed = new ArrayList<>();
+        for (DeliveryArticle a : articles) {
+            Article article = catalog.get(a.articleId());
+            if (branchId == 1 && article != null && a.status() == DeliveryArticleStatus.RESERVED
+                    && article.stock() >= a.quantity() && article.reserved() >= a.quantity()) {
+                catalog.put(a.articleId(), new Article(a.articleId(), article.name(), article.price(),
+                        article.minStock(), article.stock() - a.quantity(), article.reserved() - a.quantity()));
+                committed.add(new DeliveryArticle(a.articleId(), a.quantity(), DeliveryArticleStatus.DELIVERED));
+            } else {
+                committed.add(a);
+            }
+        }
+        return committed;
+    }
+
+    @Override
+    public synchronized List<WarehouseEntity<Article>> getLowStock() {
         return catalog.values().stream()
                 .filter(article -> (article.stock() - article.reserved()) < article.minStock())
                 .map(article -> new WarehouseEntity<>(1L, article))
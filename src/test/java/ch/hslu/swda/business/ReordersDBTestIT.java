@@ -3,6 +3,7 @@ package ch.hslu.swda.business;
 import ch.hslu.swda.entities.Reorder;
 import ch.hslu.swda.entities.ReorderStatus;
 import ch.hslu.swda.entities.WarehouseEntity;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.testcontainers.containers.GenericContainer;
@@ -15,6 +16,10 @@ import java.time.Duration;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -27,6 +32,7 @@ class ReordersDBTestIT {
     private static final String IMAGE = "mongo:4.2.24";
 
     private Reorders reordersDB;
+    private MongoDBConnector connector;
 
     @Container
     private final GenericContainer<?> mongoContainer = new GenericContainer<>(DockerImageName.parse(IMAGE))
@@ -37,11 +43,17 @@ class ReordersDBTestIT {
     @BeforeEach
     void initializeEnv() {
         String host = mongoContainer.getHost() + ":" + mongoContainer.getMappedPort(27017);
-        reordersDB = new ReordersDB(new MongoDBConnector(ReordersDB.COLLECTION, host, "", ""));
+        connector = new MongoDBConnector(host, "", "");
+        reordersDB = new ReordersDB(connector);
         reordersDB.create(1L, 100001L, 1);
         reordersDB.create(1L, 100002L, 2);
     }
 
+    @AfterEach
+    void closeConnector() {
+        connector.close();
+    }
+
     @Test
     void testGetByIdExisting() {
         Reorder reorder = reordersDB.getById(1L, 1L);
@@ -79,6 +91,24 @@ class ReordersDBTestIT {
         assertThat(reorders.get(0).status()).isEqualTo(ReorderStatus.DELIVERED);
     }
 
+    @Test
+    void testGetPage() {
+        reordersDB.create(1L, 100003L, 3);
+        List<ReorderProjection> first = reordersDB.getPage(1L, null, null, 2, List.of());
+        assertThat(first).extracting(ReorderProjection::reorderId).containsExactly(1L, 2L);
+        assertThat(first.get(0).date()).isEqualTo(LocalDate.now().format(DateTimeFormatter.ISO_LOCAL_DATE));
+        List<ReorderProjection> second = reordersDB.getPage(1L, null, 2L, 2, List.of("quantity"));
+        assertThat(second).hasSize(1);
+        assertThat(second.get(0)).hasAllNullFieldsOrPropertiesExcept("reorderId", "quantity");
+    }
+
+    @Test
+    void testGetPageWithStatus() {
+        reordersDB.updateStatus(1L, 2L, ReorderStatus.DELIVERED);
+        List<ReorderProjection> reorders = reordersDB.getPage(1L, ReorderStatus.DELIVERED, null, 10, List.of());
+        assertThat(reorders).extracting(ReorderProjection::reorderId).containsExactly(2L);
+    }
+
     @Test
     void testGetAllByStatus() {
         reordersDB.create(2L, 100001L, 5);
@@ -124,6 +154,29 @@ class ReordersDBTestIT {
         }
     }
 
+    @Test
+    void testCreateContinuesAfterExisting() {
+        connector.collection(SequenceGenerator.COLLECTION).drop();
+        Reorders other = new ReordersDB(connector);
+        Reorder created = other.create(1L, 100003L, 3);
+        assertThat(created.reorderId()).isEqualTo(3L);
+    }
+
+    @Test
+    void testCreateConcurrentInstances() throws InterruptedException {
+        Reorders other = new ReordersDB(connector);
+        ExecutorService executor = Executors.newFixedThreadPool(10);
+        for (int i = 0; i < 250; i++) {
+            executor.submit(() -> reordersDB.create(1L, 100003L, 1));
+            executor.submit(() -> other.create(1L, 100003L, 1));
+        }
+        executor.shutdown();
+        assertThat(executor.awaitTermination(30, TimeUnit.SECONDS)).isTrue();
+        List<Reorder> reorders = reordersDB.getAllByBranch(1L, null);
+        assertThat(reorders).hasSize(502);
+        assertThat(reorders.stream().map(Reorder::reorderId).distinct()).hasSize(502);
+    }
+
     @Test
     void testUpdateStatusExisting() {
         Reorder updated = reordersDB.updateStatus(1L, 1L, ReorderStatus.WAITING);
@@ -164,6 +217,31 @@ class ReordersDBTestIT {
         assertThat(updated).isNull();
     }
 
+    @Test
+    void testUpdateAll() {
+        Reorder reorder1 = new Reorder(1L, ReorderStatus.WAITING, "", 100001L, 5);
+        Reorder reorder2 = new Reorder(2L, ReorderStatus.COMPLETED, "", 100002L, 2);
+        Reorder reorder5 = new Reorder(5L, ReorderStatus.COMPLETED, "", 100005L, 2);
+        List<WarehouseEntity<Reorder>> reorders = List.of(new WarehouseEntity<>(1L, reorder1),
+                new WarehouseEntity<>(1L, reorder2), new WarehouseEntity<>(1L, reorder5));
+        assertThat(reordersDB.updateAll(reorders, ReorderStatus.NEW, true)).isEqualTo(2);
+        assertThat(reordersDB.getById(1L, 1L).status()).isEqualTo(ReorderStatus.WAITING);
+        assertThat(reordersDB.getById(1L, 1L).quantity()).isEqualTo(5);
+        assertThat(reordersDB.getById(1L, 1L).date())
+                .isEqualTo(LocalDate.now().format(DateTimeFormatter.ISO_LOCAL_DATE));
+        assertThat(reordersDB.getById(1L, 2L).status()).isEqualTo(ReorderStatus.COMPLETED);
+        assertThat(reordersDB.getById(1L, 5L)).isNull();
+    }
+
+    @Test
+    void testUpdateAllChanged() {
+        reordersDB.updateStatus(1L, 1L, ReorderStatus.WAITING);
+        Reorder reorder1 = new Reorder(1L, ReorderStatus.COMPLETED, "", 100001L, 5);
+        assertThat(reordersDB.updateAll(List.of(new WarehouseEntity<>(1L, reorder1)), ReorderStatus.DELIVERED,
+                false)).isZero();
+        assertThat(reordersDB.getById(1L, 1L).status()).isEqualTo(ReorderStatus.WAITING);
+    }
+
     @Test
     void testDeleteExisting() {
         boolean result = reordersDB.delete(1L, 1L);
@@ -199,4 +277,27 @@ class ReordersDBTestIT {
         int count = reordersDB.countReorderedArticles(1L, 100005L);
         assertThat(count).isEqualTo(reorder2.quantity() + reorder3.quantity() + reorder4.quantity());
     }
+
+    @Test
+    void testCountReorderedArticlesGrouped() {
+        reordersDB.create(2L, 100005L, 1);
+        reordersDB.create(1L, 100005L, 2);
+        reordersDB.create(1L, 100005L, 3);
+        reordersDB.create(1L, 100006L, 4);
+        Reorder completed = reordersDB.create(1L, 100006L, 5);
+        reordersDB.create(1L, 100007L, 6);
+        reordersDB.updateStatus(1L, completed.reorderId(), ReorderStatus.COMPLETED);
+        Map<Long, Map<Long, Integer>> counts = reordersDB.countReorderedArticles(List.of(100005L, 100006L, 100008L));
+        assertThat(counts).containsOnlyKeys(1L, 2L);
+        assertThat(counts.get(1L)).containsExactlyInAnyOrderEntriesOf(Map.of(100005L, 5, 100006L, 4));
+        assertThat(counts.get(2L)).containsExactlyInAnyOrderEntriesOf(Map.of(100005L, 1));
+        assertThat(reordersDB.countReorderedArticles(List.of())).isEmpty();
+    }
+
+    @Test
+    void testIndexesProvisioned() {
+        MongoDBIndexes indexes = new MongoDBIndexes(connector.collection(ReordersDB.COLLECTION),
+                ReordersDB.INDEXES);
+        assertThat(indexes.verify()).isEmpty();
+    }
 }
@@ -5,25 +5,27 @@ import ch.hslu.swda.entities.ReorderStatus;
 import ch.hslu.swda.entities.WarehouseEntity;
 
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Stream;
 
 
 /**
- * In-memory implementation of the reorders used for testing.
+ * In-memory implementation of the reorders used for testing, synchronized for the load generator.
  */
 public final class ReordersMemory implements Reorders {
 
     private final Map<Long, Reorder> reorders = new HashMap<>();
 
     @Override
-    public Reorder getById(final long branchId, final long orderNumber) {
+    public synchronized Reorder getById(final long branchId, final long orderNumber) {
         return branchId == 1 ? reorders.get(orderNumber) : null;
     }
 
     @Override
-    public List<Reorder> getAllByBranch(final long branchId, final ReorderStatus status) {
+    public synchronized List<Reorder> getAllByBranch(final long branchId, final ReorderStatus status) {
         List<Reorder> result = new ArrayList<>(reorders.values());
         if (status != null) {
             result = result.stream().filter(r -> r.status() == status).toList();
@@ -32,7 +34,19 @@ public final class ReordersMemory implements Reorders {
     }
 
     @Override
-    public List<WarehouseEntity<Reorder>> getAllByStatus(final ReorderStatus status) {
+    public synchronized List<ReorderProjection> getPage(final long branchId, final ReorderStatus status,
+                                                        final Long after, final int limit,
+                                                        final List<String> fields) {
+        return getAllByBranch(branchId, status).stream()
+                .filter(r -> after == null || r.reorderId() > after)
+                .sorted(Comparator.comparingLong(Reorder::reorderId))
+                .limit(MongoDBPage.limit(limit) > 0 ? MongoDBPage.limit(limit) : Long.MAX_VALUE)
+                .map(r -> new ReorderProjection(ReordersDB.PAGE.select(r.toDocument(), fields)))
+                .toList();
+    }
+
+    @Override
+    public synchronized List<WarehouseEntity<Reorder>> getAllByStatus(final ReorderStatus status) {
         List<Reorder> result = new ArrayList<>(reorders.values());
         if (status != null) {
             result = result.stream().filter(r -> r.status() == status).toList();
@@ -41,7 +55,12 @@ public final class ReordersMemory implements Reorders {
     }
 
     @Override
-    public Reorder create(final long branchId, final long articleId, final int quantity) {
+    public synchronized Stream<WarehouseEntity<Reorder>> streamByStatus(final ReorderStatus status) {
+        return getAllByStatus(status).stream();
+    }
+
+    @Override
+    public synchronized Reorder create(final long branchId, final long articleId, final int quantity) {
         Reorder created = null;
         if (branchId == 1) {
             long reorderId = reorders.size() + 1;
@@ -54,7 +73,7 @@ public final class ReordersMemory implements Reorders {
     }
 
     @Override
-    public Reorder updateStatus(final long branchId, final long reorderId, final ReorderStatus status) {
+    public synchronized Reorder updateStatus(final long branchId, final long reorderId, final ReorderStatus status) {
         Reorder updated = null;
         if (branchId == 1) {
             Reorder exists = reorders.get(reorderId);
@@ -67,7 +86,7 @@ public final class ReordersMemory implements Reorders {
     }
 
     @Override
-    public Reorder updateQuantity(final long branchId, final long reorderId, final int quantity) {
+    public synchronized Reorder updateQuantity(final long branchId, final long reorderId, final int quantity) {
         Reorder updated = null;
         if (branchId == 1) {
             Reorder exists = reorders.get(reorderId);
@@ -80,7 +99,23 @@ public final class ReordersMemory implements Reorders {
     }
 
     @Override
-    public boolean delete(final long branchId, final long reorderId) {
+    public synchronized int updateAll(final List<WarehouseEntity<Reorder>> reorders, final ReorderStatus expected,
+                                      final boolean ordered) {
+        int result = 0;
+        for (WarehouseEntity<Reorder> entity : reorders) {
+            Reorder reorder = (Reorder) entity.entity();
+            Reorder exists = entity.branchId() == 1 ? this.reorders.get(reorder.reorderId()) : null;
+            if (exists != null && exists.status() == expected) {
+                this.reorders.put(reorder.reorderId(), new Reorder(reorder.reorderId(), reorder.status(),
+                        exists.date(), exists.articleId(), reorder.quantity()));
+                result++;
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public synchronized boolean delete(final long branchId, final long reorderId) {
         if (branchId == 1) {
             reorders.remove(reorderId);
         }
@@ -88,7 +123,7 @@ public final class ReordersMemory implements Reorders {
     }
 
     @Override
-    public int countReorderedArticles(final long branchId, final long articleId) {
+    public synchronized int countReorderedArticles(final long branchId, final long articleId) {
         int count = 0;
         if (branchId == 1) {
             count = reorders.values().stream()
@@ -99,4 +134,14 @@ public final class ReordersMemory implements Reorders {
         }
         return count;
     }
+
+    @Override
+    public synchronized Map<Long, Map<Long, Integer>> countReorderedArticles(final List<Long> articleIds) {
+        Map<Long, Integer> counts = new HashMap<>();
+        reorders.values().stream()
+                .filter(reorder -> articleIds.contains(reorder.articleId()))
+                .filter(reorder -> reorder.status() != ReorderStatus.COMPLETED)
+                .forEach(reorder -> counts.merge(reorder.articleId(), reorder.quantity(), Integer::sum));
+        return counts.isEmpty() ? Map.of() : Map.of(1L, counts);
+    }
 }
@@ -0,0 +1,76 @@
+package ch.hslu.swda.business;
+
+import ch.hslu.swda.entities.Article;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Test cases for the repository metrics.
+ */
+class RepositoryMetricsTest {
+
+    private MeterRegistry registry;
+    private ProductCatalog catalog;
+
+    @BeforeEach
+    void initializeEnv() {
+        registry = new SimpleMeterRegistry();
+        catalog = RepositoryMetrics.instrument(ProductCatalog.class, new ProductCatalogMemory(), "catalog", registry);
+        catalog.create(1L, new Article(100001L, "Article 1", new BigDecimal("1.50"), 5, 10, 2));
+    }
+
+    private long count(final String operation, final String outcome) {
+        return registry.get("repository.operations")
+                .tag("repository", "catalog")
+                .tag("operation", operation)
+                .tag("outcome", outcome)
+                .timer().count();
+    }
+
+    @Test
+    void testSuccess() {
+        assertThat(catalog.getById(1L, 100001L).name()).isEqualTo("Article 1");
+        assertThat(catalog.changeStock(1L, 100001L, 1)).isTrue();
+        assertThat(count("create", "success")).isEqualTo(1);
+        assertThat(count("getById", "success")).isEqualTo(1);
+        assertThat(count("changeStock", "success")).isEqualTo(1);
+    }
+
+    @Test
+    void testEmpty() {
+        assertThat(catalog.getById(1L, 100005L)).isNull();
+        assertThat(catalog.changeStock(1L, 100005L, 1)).isFalse();
+        assertThat(count("getById", "empty")).isEqualTo(1);
+        assertThat(count("changeStock", "empty")).isEqualTo(1);
+    }
+
+    @Test
+    void testError() {
+        assertThatThrownBy(() -> catalog.getById(1L, (List<Long>) null)).isInstanceOf(NullPointerException.class);
+        assertThat(count("getById", "error")).isEqualTo(1);
+    }
+
+    @Test
+    void testStreamRecordedWhenClosed() {
+        try (Stream<Article> articles = catalog.streamAll(1L)) {
+            assertThat(articles).hasSize(1);
+            assertThat(count("streamAll", "success")).isZero();
+        }
+        assertThat(count("streamAll", "success")).isEqualTo(1);
+    }
+
+    @Test
+    void testObjectMethodsNotRecorded() {
+        assertThat(catalog.toString()).isNotBlank();
+        assertThat(registry.find("repository.operations").tag("operation", "toString").timer()).isNull();
+    }
+}
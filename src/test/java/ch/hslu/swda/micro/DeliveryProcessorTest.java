@@ -10,6 +10,7 @@ import ch.hslu.swda.entities.Delivery;
 import ch.hslu.swda.entities.DeliveryArticle;
 import ch.hslu.swda.entities.DeliveryArticleStatus;
 import ch.hslu.swda.entities.DeliveryStatus;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
@@ -191,4 +192,47 @@ class DeliveryProcessorTest {
         assertThat(deliveries.getAllByStatus(DeliveryStatus.WAITING)).isEmpty();
         assertThat(deliveries.getAllByStatus(DeliveryStatus.READY)).hasSize(2);
     }
+
+    @Test
+    void testScheduledRunProcessesOnLanes() {
+        DeliveryArticle article1 = new DeliveryArticle(100001L, 1, DeliveryArticleStatus.ADD);
+        for (long orderNumber = 1L; orderNumber <= 4L; orderNumber++) {
+            deliveries.create(1L, new Delivery(orderNumber, DeliveryStatus.NEW, List.of(article1)));
+        }
+
+        try (PartitionedExecutor lanes = new PartitionedExecutor("order-lane", 2)) {
+            DeliveryProcessor processor = new DeliveryProcessor(publisher, catalog, deliveries, Runnable::run, lanes,
+                    new SimpleMeterRegistry());
+            processor.run();
+            assertThat(deliveries.getAllByStatus(DeliveryStatus.READY)).hasSize(4);
+            assertThat(catalog.getById(1L, 100001L).reserved()).isEqualTo(7);
+        }
+    }
+
+    @Test
+    void testDeliveryChangedProcessedImmediately() {
+        DeliveryArticle article1 = new DeliveryArticle(100001L, 2, DeliveryArticleStatus.ADD);
+        deliveries.create(1L, new Delivery(1L, DeliveryStatus.NEW, List.of(article1)));
+
+        DeliveryEvents events = new DeliveryEvents();
+        events.subscribe(new DeliveryProcessor(publisher, catalog, deliveries));
+        events.deliveryChanged(1L, 1L);
+        assertThat(deliveries.getById(1L, 1L).status()).isEqualTo(DeliveryStatus.READY);
+        assertThat(deliveries.getById(1L, 1L).articles()).allMatch(a -> a.status() == DeliveryArticleStatus.RESERVED);
+        assertThat(catalog.getById(1L, 100001L).reserved()).isEqualTo(5);
+    }
+
+    @Test
+    void testStockChangedProcessesWaiting() {
+        DeliveryArticle article2 = new DeliveryArticle(100002L, 12, DeliveryArticleStatus.RESERVED);
+        deliveries.create(1L, new Delivery(1L, DeliveryStatus.WAITING, List.of(article2)));
+
+        DeliveryEvents events = new DeliveryEvents();
+        events.subscribe(new DeliveryProcessor(publisher, catalog, deliveries));
+        events.stockChanged(1L);
+        assertThat(deliveries.getById(1L, 1L).status()).isEqualTo(DeliveryStatus.WAITING);
+        catalog.changeStock(1L, 100002L, 5);
+        events.stockChanged(1L);
+        assertThat(deliveries.getById(1L, 1L).status()).isEqualTo(DeliveryStatus.READY);
+    }
 }
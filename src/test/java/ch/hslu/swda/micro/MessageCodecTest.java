@@ -0,0 +1,66 @@
+package ch.hslu.swda.micro;
+
+import ch.hslu.swda.dto.ArticleDeliveredDTO;
+import ch.hslu.swda.dto.ArticleGetDTO;
+import ch.hslu.swda.dto.ArticleOrderDTO;
+import ch.hslu.swda.dto.LogEventDTO;
+import ch.hslu.swda.dto.OrderDTO;
+import ch.hslu.swda.entities.DeliveryArticleStatus;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Test cases for the message codec.
+ */
+class MessageCodecTest {
+
+    @Test
+    void testReadFromBytes() throws IOException {
+        byte[] body = "{\"branchId\":1,\"orderNumber\":5,\"articles\":[100001,100002]}"
+                .getBytes(StandardCharsets.UTF_8);
+        ArticleGetDTO dto = MessageCodec.read(body, ArticleGetDTO.class);
+        assertThat(dto.branchId()).isEqualTo(1L);
+        assertThat(dto.orderNumber()).isEqualTo(5L);
+        assertThat(dto.articles()).containsExactly(100001L, 100002L);
+    }
+
+    @Test
+    void testReadIgnoresUnknownProperties() throws JsonProcessingException {
+        OrderDTO dto = MessageCodec.read("{\"branchId\":1,\"orderNumber\":5,\"customer\":7}", OrderDTO.class);
+        assertThat(dto.branchId()).isEqualTo(1L);
+        assertThat(dto.articles()).isEmpty();
+    }
+
+    @Test
+    void testReadInvalid() {
+        assertThatThrownBy(() -> MessageCodec.read("{}", OrderDTO.class))
+                .isInstanceOf(JsonProcessingException.class);
+    }
+
+    @Test
+    void testWrite() throws JsonProcessingException {
+        ArticleOrderDTO article = new ArticleOrderDTO(100001L, "Article 1", new BigDecimal("5.25"), 2,
+                DeliveryArticleStatus.ADD);
+        OrderDTO dto = new OrderDTO(1L, 5L, List.of(article), List.of());
+        assertThat(new String(MessageCodec.write(dto), StandardCharsets.UTF_8)).isEqualTo("{\"branchId\":1,"
+                + "\"orderNumber\":5,\"articles\":[{\"articleId\":100001,\"name\":\"Article 1\",\"price\":5.25,"
+                + "\"quantity\":2,\"action\":\"ADD\"}],\"error\":[]}");
+    }
+
+    @Test
+    void testRoundTrip() throws IOException {
+        LogEventDTO event = new LogEventDTO(1L, "article.added", "Added article", "2023-11-01T10:00");
+        assertThat(MessageCodec.read(MessageCodec.write(event), LogEventDTO.class)).isEqualTo(event);
+        ArticleDeliveredDTO delivered = new ArticleDeliveredDTO(1L, 5L);
+        assertThat(MessageCodec.read(MessageCodec.writeAsString(delivered), ArticleDeliveredDTO.class))
+                .isEqualTo(delivered);
+    }
+}
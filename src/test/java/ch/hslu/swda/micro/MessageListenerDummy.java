@@ -1,25 +1,29 @@
 package ch.hslu.swda.micro;
 
-import java.util.HashMap;
+import java.nio.charset.StandardCharsets;
 import java.util.Map;
-import java.util.function.Consumer;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
 
 /**
  * Dummy implementation of the message listener used for testing.
  */
 public final class MessageListenerDummy implements MessageListener {
 
-    private final Map<String, Consumer<String>> callbacks = new HashMap<>();
+    private final Map<String, Function<byte[], CompletableFuture<Void>>> callbacks = new ConcurrentHashMap<>();
 
     @Override
-    public void receiveMessages(final String route, final Consumer<String> callback) {
+    public void receiveMessagesAsync(final String route, final Function<byte[], CompletableFuture<Void>> callback) {
         callbacks.put(route, callback);
     }
 
     public void mockMessage(final String route, final String message) {
-        Consumer<String> callback = callbacks.get(route);
-        if (callback != null) {
-            callback.accept(message);
-        }
+        deliver(route, message.getBytes(StandardCharsets.UTF_8)).join();
+    }
+
+    public CompletableFuture<Void> deliver(final String route, final byte[] body) {
+        Function<byte[], CompletableFuture<Void>> callback = callbacks.get(route);
+        return callback != null ? callback.apply(body) : CompletableFuture.completedFuture(null);
     }
 }
@@ -1,10 +1,10 @@
 package ch.hslu.swda.micro;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
 
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Dummy implementation of the message publisher used for testing.
@@ -13,14 +13,16 @@ import java.util.Map;
  */
 public final class MessagePublisherDummy<T> implements MessagePublisher<T> {
 
-    private final Map<String, String> messages = new HashMap<>();
+    private final Map<String, String> messages = new ConcurrentHashMap<>();
 
     @Override
-    public void sendMessage(final String route, final T messageObject) {
+    public CompletableFuture<Void> sendMessage(final String route, final T messageObject) {
         try {
-            messages.put(route, new ObjectMapper().writeValueAsString(messageObject));
+            messages.put(route, MessageCodec.writeAsString(messageObject));
+            return CompletableFuture.completedFuture(null);
         } catch (JsonProcessingException e) {
             messages.put(route, "Failed to serialize message: {}" + e.getMessage());
+            return CompletableFuture.failedFuture(e);
         }
     }
 
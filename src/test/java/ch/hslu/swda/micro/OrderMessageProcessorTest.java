@@ -6,9 +6,11 @@ import ch.hslu.swda.entities.Delivery;
 import ch.hslu.swda.entities.DeliveryArticle;
 import ch.hslu.swda.entities.DeliveryArticleStatus;
 import ch.hslu.swda.entities.DeliveryStatus;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
 
@@ -18,6 +20,7 @@ class OrderMessageProcessorTest {
 
     private Deliveries deliveries;
     private MessageListenerDummy listener;
+    private PartitionedExecutor lanes;
 
     @BeforeEach
     void initializeEnv() {
@@ -30,10 +33,16 @@ class OrderMessageProcessorTest {
         )));
 
         listener = new MessageListenerDummy();
-        OrderMessageProcessor processor = new OrderMessageProcessor(listener, deliveries);
+        lanes = new PartitionedExecutor("order-lane", 2);
+        OrderMessageProcessor processor = new OrderMessageProcessor(listener, deliveries, new DeliveryEvents(), lanes);
         processor.run();
     }
 
+    @AfterEach
+    void closeLanes() {
+        lanes.close();
+    }
+
     @Test
     void testInvalidMessageReceived() {
         listener.mockMessage(Routes.ORDER, "{}");
@@ -182,6 +191,31 @@ class OrderMessageProcessorTest {
         assertThat(deliveries.getById(1L, 2L).articles().get(0).status()).isEqualTo(DeliveryArticleStatus.DELIVERED);
     }
 
+    @Test
+    void testDeliveryChangedEvent() {
+        List<Long> changed = new ArrayList<>();
+        DeliveryEvents events = new DeliveryEvents();
+        events.subscribe(new DeliveryListener() {
+            @Override
+            public void onDeliveryChanged(final long branchId, final long orderNumber) {
+                changed.add(orderNumber);
+            }
+
+            @Override
+            public void onStockChanged(final long branchId) {
+            }
+        });
+        MessageListenerDummy eventListener = new MessageListenerDummy();
+        new OrderMessageProcessor(eventListener, deliveries, events, lanes).run();
+
+        String article = createMessageStringArticle(100005L, 5, DeliveryArticleStatus.ADD);
+        eventListener.mockMessage(Routes.ORDER, createMessageString(5L, List.of(article)));
+        eventListener.mockMessage(Routes.ORDER, createMessageString(1L, List.of(article)));
+        eventListener.mockMessage(Routes.ORDER, createMessageString(2L, List.of(article)));
+        eventListener.mockMessage(Routes.ORDER, createMessageString(6L, List.of()));
+        assertThat(changed).containsExactly(5L, 1L);
+    }
+
     private String createMessageString(final long orderNumber, final List<String> articles) {
         StringBuilder message = new StringBuilder();
         message.append("{\"branchId\":").append(1L);
@@ -0,0 +1,83 @@
+package ch.hslu.swda.micro;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Test cases for the partitioned executor.
+ */
+class PartitionedExecutorTest {
+
+    @Test
+    void testInvalidLanes() {
+        assertThatThrownBy(() -> new PartitionedExecutor("test", 0))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("lanes should not be lower than 1");
+    }
+
+    @Test
+    void testSameKeySameLane() {
+        try (PartitionedExecutor executor = new PartitionedExecutor("test", 8)) {
+            assertThat(executor.size()).isEqualTo(8);
+            assertThat(executor.lane(List.of(1L, 5L))).isEqualTo(executor.lane(List.of(1L, 5L)));
+            assertThat(executor.lane(-17L)).isBetween(0, 7);
+        }
+    }
+
+    @Test
+    void testOrderedPerKey() {
+        List<Integer> executed = Collections.synchronizedList(new ArrayList<>());
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        try (PartitionedExecutor executor = new PartitionedExecutor("test", 4)) {
+            for (int i = 0; i < 100; i++) {
+                int value = i;
+                futures.add(executor.submit("order", () -> executed.add(value)));
+            }
+            CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).join();
+        }
+        assertThat(executed).isSorted().hasSize(100);
+    }
+
+    @Test
+    void testParallelAcrossKeys() throws InterruptedException {
+        CountDownLatch blocked = new CountDownLatch(1);
+        try (PartitionedExecutor executor = new PartitionedExecutor("test", 2)) {
+            Object first = 0;
+            Object second = 1;
+            assertThat(executor.lane(first)).isNotEqualTo(executor.lane(second));
+            executor.submit(first, () -> {
+                try {
+                    blocked.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            CompletableFuture<Void> other = executor.submit(second, () -> { });
+            other.orTimeout(5, TimeUnit.SECONDS).join();
+            assertThat(other).isCompleted();
+            blocked.countDown();
+        }
+    }
+
+    @Test
+    void testDrain() {
+        List<Integer> executed = Collections.synchronizedList(new ArrayList<>());
+        try (PartitionedExecutor executor = new PartitionedExecutor("test", 4)) {
+            for (int i = 0; i < 100; i++) {
+                int value = i;
+                executor.executor(value).execute(() -> executed.add(value));
+            }
+            executor.drain().orTimeout(5, TimeUnit.SECONDS).join();
+            assertThat(executed).hasSize(100);
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package ch.hslu.swda.micro;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.event.EventRecordingLogger;
+import org.slf4j.event.SubstituteLoggingEvent;
+import org.slf4j.helpers.SubstituteLogger;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Test cases for the route log.
+ */
+class RouteLogTest {
+
+    private Queue<SubstituteLoggingEvent> events;
+    private Logger log;
+
+    @BeforeEach
+    void initializeEnv() {
+        events = new ConcurrentLinkedQueue<>();
+        log = new EventRecordingLogger(new SubstituteLogger("route", events, false), events);
+    }
+
+    @Test
+    void testSummaryPerInterval() {
+        RouteLog routeLog = new RouteLog(log, "Received", Map.of("LOG_SUMMARY_INTERVAL", "0"));
+        routeLog.message("order.new", 100);
+        routeLog.failed("order.new");
+        routeLog.message("order.new", 50);
+        assertThat(events).extracting(SubstituteLoggingEvent::getArgumentArray).containsExactly(
+                new Object[]{"Received", 1L, 100L, 0L, "order.new", 0L},
+                new Object[]{"Received", 1L, 50L, 1L, "order.new", 0L});
+    }
+
+    @Test
+    void testNoSummaryWithinInterval() {
+        RouteLog routeLog = new RouteLog(log, "Sent", Map.of());
+        for (int i = 0; i < 1000; i++) {
+            routeLog.message("article.return", 10);
+        }
+        assertThat(events).isEmpty();
+    }
+
+    @Test
+    void testIntervalFromMap() {
+        assertThat(RouteLog.intervalFromMap(log, Map.of())).isEqualTo(RouteLog.DEFAULT_INTERVAL);
+        assertThat(RouteLog.intervalFromMap(log, Map.of("LOG_SUMMARY_INTERVAL", " 5 "))).isEqualTo(5L);
+        assertThat(events).isEmpty();
+    }
+
+    @Test
+    void testInvalidIntervalUsesDefault() {
+        RouteLog routeLog = new RouteLog(log, "Received", Map.of("LOG_SUMMARY_INTERVAL", "1m"));
+        assertThat(events).extracting(SubstituteLoggingEvent::getArgumentArray).containsExactly(
+                new Object[]{"1m", "LOG_SUMMARY_INTERVAL", RouteLog.DEFAULT_INTERVAL});
+        events.clear();
+        routeLog.message("order.new", 100);
+        routeLog.message("order.new", 100);
+        assertThat(events).isEmpty();
+        assertThat(RouteLog.intervalFromMap(log, Map.of("LOG_SUMMARY_INTERVAL", "-1")))
+                .isEqualTo(RouteLog.DEFAULT_INTERVAL);
+    }
+
+    @Test
+    void testPayload() {
+        assertThat(RouteLog.payload("{\"branchId\":1}".getBytes(StandardCharsets.UTF_8))).isEqualTo("{\"branchId\":1}");
+    }
+
+    @Test
+    void testPayloadTruncated() {
+        byte[] body = "x".repeat(RouteLog.MAX_PAYLOAD + 100).getBytes(StandardCharsets.UTF_8);
+        assertThat(RouteLog.payload(body))
+                .startsWith("x".repeat(RouteLog.MAX_PAYLOAD) + "...")
+                .endsWith("(" + body.length + " bytes)");
+    }
+}